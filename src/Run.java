@@ -1,15 +1,14 @@
 import core.Game;
+import farm.GameResult;
+import farm.GameSpec;
+import farm.PlayerSpec;
+import farm.WorkerFarm;
 import players.*;
-import players.mcts.MCTSParams;
-import players.mcts.MCTSPlayer;
-import players.pessimisticMcts.pMCTSParams;
-import players.pessimisticMcts.pessimisticMCTSPlayer;
-import players.rhea.RHEAPlayer;
-import players.rhea.utils.Constants;
-import players.rhea.utils.RHEAParams;
 import utils.*;
 
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.Future;
 
 import static utils.Types.VISUALS;
 
@@ -19,7 +18,7 @@ public class Run {
     {
         System.out.println("Usage: java Run [args]");
         System.out.println("\t [arg index = 0] Game Mode. 0: FFA; 1: TEAM");
-        System.out.println("\t [arg index = 1] Number of level generation seeds. \"-1\" to execute with the ones from paper (20).");
+        System.out.println("\t [arg index = 1] Number of level generation seeds. \"-1\" to execute with the ones from paper (20), \"0\" with the ones of the level pool.");
         System.out.println("\t [arg index = 2] Repetitions per seed [N]. \"1\" for one game only with visuals.");
         System.out.println("\t [arg index = 3] Vision Range [VR]. (0, 1, 2 for PO; -1 for Full Observability)");
         System.out.println("\t [arg index = 4-7] Agents. When in TEAM, agents are mates as indices 4-6, 5-7:");
@@ -30,13 +29,15 @@ public class Run {
         System.out.println("\t\t 4 RHEA 200 itereations, shift buffer, pop size 1, random init, length: 12");
         System.out.println("\t\t 5 MCTS 200 iterations, length: 12");
         System.out.println("\t\t 6 pessimisticMCTS");
+        System.out.println("\t [arg index = 8] Worker processes to play the games in (optional, 0 to play them here).");
+        System.out.println("\t [arg index = 9] Level pool file to load the levels from (optional, see LevelPool).");
     }
 
     public static void main(String[] args) {
         if(args.length == 0)
             args = new String[]{"0", "-1", "10", "-1", "3", "3", "3", "6"};
 
-        if(args.length != 8) {
+        if(args.length < 8 || args.length > 10) {
             printHelp();
             return;
         }
@@ -57,14 +58,23 @@ public class Run {
             int S = Integer.parseInt(args[1]);
             int N = Integer.parseInt(args[2]);
             Types.DEFAULT_VISION_RANGE = Integer.parseInt(args[3]);
+            int nWorkers = args.length > 8 ? Integer.parseInt(args[8]) : 0;
+            File levelPool = args.length > 9 ? new File(args[9]) : null;
+            if (levelPool != null) {
+                System.out.println("Loaded " + LevelPool.load(levelPool) + " levels from " + levelPool);
+            }
 
             long seeds[];
 
-            if (S == -1)
+            if (S == 0 && levelPool != null)
+            {
+                //Seeds chosen for the benchmark, e.g. with SeedScreen
+                seeds = LevelPool.getLoadedSeeds();
+            }
+            else if (S == -1)
             {
                 //Special case, these seeds are fixed for the experiments in the paper:
-                seeds = new long[] {93988, 19067, 64416, 83884, 55636, 27599, 44350, 87872, 40815,
-                        11772, 58367, 17546, 75375, 75772, 58237, 30464, 27180, 23643, 67054, 19508};
+                seeds = LevelPool.PAPER_SEEDS.clone();
             }else
             {
                 if(S <= 0)
@@ -79,66 +89,21 @@ public class Run {
             long seed = 0;
 
             String[] playerStr = new String[4];
+            int[] agentTypes = new int[4];
 
             for(int i = 4; i <= 7; ++i) {
                 int agentType = Integer.parseInt(args[i]);
-                Player p = null;
-
-
-                switch(agentType) {
-                    case 0:
-                        p = new DoNothingPlayer(playerID++);
-                        playerStr[i-4] = "DoNothing";
-                        break;
-                    case 1:
-                        p = new RandomPlayer(seed, playerID++);
-                        playerStr[i-4] = "Random";
-                        break;
-                    case 2:
-                        p = new OSLAPlayer(seed, playerID++);
-                        playerStr[i-4] = "OSLA";
-                        break;
-                    case 3:
-                        p = new SimplePlayer(seed, playerID++);
-                        playerStr[i-4] = "RuleBased";
-                        break;
-                    case 4:
-                        RHEAParams rheaParams = new RHEAParams();
-                        rheaParams.budget_type = Constants.ITERATION_BUDGET;
-                        rheaParams.iteration_budget = 200;
-                        rheaParams.individual_length = 12;
-                        rheaParams.heurisic_type = Constants.CUSTOM_HEURISTIC;
-
-                        p = new RHEAPlayer(seed, playerID++, rheaParams);
-                        playerStr[i-4] = "RHEA";
-                        break;
-                    case 5:
-                        MCTSParams mctsParams = new MCTSParams();
-                        mctsParams.stop_type = mctsParams.STOP_ITERATIONS;
-                        mctsParams.num_iterations = 150;
-                        mctsParams.rollout_depth = 10;
-
-                        mctsParams.heuristic_method = mctsParams.ADVANCED_HEURISTIC;
-                        p = new MCTSPlayer(seed, playerID++, mctsParams);
-                        playerStr[i-4] = "MCTS";
-                        break;
-                    case 6:
-                        pMCTSParams pMCTSParams = new pMCTSParams();
-//                        pMCTSParams.stop_type = pMCTSParams.STOP_TIME;
-//                        pMCTSParams.num_time = 70;
-                        pMCTSParams.stop_type = pMCTSParams.STOP_ITERATIONS;
-                        pMCTSParams.num_iterations = 150;
-                        pMCTSParams.search_depth = 1;
-                        pMCTSParams.pessimistic_simulation_depth = 12;
-                        pMCTSParams.rollout_depth = 10;
-                        pMCTSParams.heuristic_method = pMCTSParams.MODIFIED_ADVANCED_HEURISTIC;
-                        pMCTSParams.probabilistic_model = false;
-
-                        p = new pessimisticMCTSPlayer(seed, playerID++, pMCTSParams);
-                        playerStr[i-4] = "pMCTS";
-                        break;
-                    default:
-                        System.out.println("WARNING: Invalid agent ID: " + agentType );
+                Player p;
+
+
+                if (agentType >= PlayerSpec.DO_NOTHING && agentType <= PlayerSpec.PESSIMISTIC_MCTS) {
+                    p = PlayerSpec.create(agentType, seed, playerID++);
+                    playerStr[i-4] = PlayerSpec.NAMES[agentType];
+                    agentTypes[i-4] = agentType;
+                } else {
+                    System.out.println("ERROR: Invalid agent ID: " + agentType );
+                    printHelp();
+                    return;
                 }
 
                 players.add(p);
@@ -166,7 +131,11 @@ public class Run {
             }
             System.out.println("]");
 
-            runGames(game, seeds, N, false);
+            if (nWorkers > 0) {
+                runGames(gMode, boardSize, agentTypes, seeds, N, nWorkers, levelPool);
+            } else {
+                runGames(game, seeds, N, false);
+            }
         } catch(Exception e) {
             e.printStackTrace();
             printHelp();
@@ -245,10 +214,90 @@ public class Run {
             }
         }
 
+        // Write out the events still pending
+        if (Types.LOGGING_STATISTICS)
+            EventLog.closeAll();
+
         //Done, show stats
-        System.out.println("N \tWin \tTie \tLoss \tPlayer (overtime average)");
+        String[] playerStr = new String[numPlayers];
+        for (int pIdx = 0; pIdx < numPlayers; pIdx++) {
+            playerStr[pIdx] = g.getPlayers().get(pIdx).getClass().toString().replaceFirst("class ", "");
+        }
+        printStats(playerStr, totalNgames, winCount, tieCount, lossCount, overtimeCount);
+    }
+
+    /**
+     * Runs the games of runGames in worker processes, see WorkerFarm.
+     * @param gMode - game mode.
+     * @param boardSize - size of the board.
+     * @param agentTypes - type of each player, as in the arguments (see PlayerSpec).
+     * @param seeds - seeds of the boards to play.
+     * @param repetitions - games per board.
+     * @param nWorkers - number of worker processes.
+     * @param levelPool - level pool file the workers load, null for none.
+     */
+    public static void runGames(Types.GAME_MODE gMode, int boardSize, int[] agentTypes, long seeds[],
+                                int repetitions, int nWorkers, File levelPool) {
+        int numPlayers = agentTypes.length;
+        int[] winCount = new int[numPlayers];
+        int[] tieCount = new int[numPlayers];
+        int[] lossCount = new int[numPlayers];
+
+        int[] overtimeCount = new int[numPlayers];
+
+        int numSeeds = seeds.length;
+        int totalNgames = numSeeds * repetitions;
+
+        PlayerSpec[] players = new PlayerSpec[numPlayers];
+        String[] playerStr = new String[numPlayers];
         for (int pIdx = 0; pIdx < numPlayers; pIdx++) {
-            String player = g.getPlayers().get(pIdx).getClass().toString().replaceFirst("class ", "");
+            players[pIdx] = new PlayerSpec(agentTypes[pIdx]);
+            playerStr[pIdx] = players[pIdx].toString();
+        }
+
+        try (WorkerFarm farm = new WorkerFarm(nWorkers, levelPool)) {
+            ArrayList<GameSpec> games = new ArrayList<>();
+            ArrayList<Future<GameResult>> results = new ArrayList<>();
+            for (int s = 0; s < numSeeds; s++) {
+                for (int i = 0; i < repetitions; i++) {
+                    // Different games must not get the same player seed, they start at the same time
+                    GameSpec spec = new GameSpec(seeds[s], System.currentTimeMillis() + games.size(), boardSize,
+                            gMode, players);
+                    games.add(spec);
+                    results.add(farm.submit(spec));
+                }
+            }
+
+            for (int k = 0; k < totalNgames; k++) {
+                GameResult result = WorkerFarm.get(results.get(k));
+                System.out.println(games.get(k).playerSeed + ", " + games.get(k).seed + ", " + k + "/" + totalNgames
+                        + ", " + Arrays.toString(result.results));
+
+                for (int pIdx = 0; pIdx < numPlayers; pIdx++) {
+                    switch (result.results[pIdx]) {
+                        case WIN:
+                            winCount[pIdx]++;
+                            break;
+                        case TIE:
+                            tieCount[pIdx]++;
+                            break;
+                        case LOSS:
+                            lossCount[pIdx]++;
+                            break;
+                    }
+                    overtimeCount[pIdx] += result.overtimes[pIdx];
+                }
+            }
+        }
+
+        printStats(playerStr, totalNgames, winCount, tieCount, lossCount, overtimeCount);
+    }
+
+    private static void printStats(String[] playerStr, int totalNgames, int[] winCount, int[] tieCount,
+                                   int[] lossCount, int[] overtimeCount) {
+        System.out.println("N \tWin \tTie \tLoss \tPlayer (overtime average)");
+        for (int pIdx = 0; pIdx < playerStr.length; pIdx++) {
+            String player = playerStr[pIdx];
 
             double winPerc = winCount[pIdx] * 100.0 / (double)totalNgames;
             double tiePerc = tieCount[pIdx] * 100.0 / (double)totalNgames;
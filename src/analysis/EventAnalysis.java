@@ -0,0 +1,149 @@
+package analysis;
+
+import utils.EventLog;
+import utils.EventLogReader;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Analyses the event logs of all tournaments in a game logs folder: suicides, team kills, deaths, bombs and power-ups
+ * per agent type, game mode and vision range, plus heatmaps of bombs, deaths and pick-ups. Logs are read in parallel.
+ *
+ * Usage: java analysis.EventAnalysis [logs folder = res/gamelogs/] [output folder = res/analysis/] [partial results]
+ * Writes summary.csv, heatmaps/*.csv and heatmaps/*.png to the output folder, as well as stats.ser with the partial
+ * results, which can be given to later runs to merge them with the new logs.
+ */
+public class EventAnalysis {
+
+    // Size in pixels of each heatmap cell
+    private static final int CELL_PIXELS = 32;
+
+    // Heatmap colour scale, from no events to the most events in the map (yellow - green - blue)
+    private static final Color[] SCALE = {new Color(255, 255, 217), new Color(199, 233, 180),
+            new Color(65, 182, 196), new Color(34, 94, 168), new Color(8, 29, 88)};
+
+    public static void main(String[] args) throws IOException {
+        File logsFolder = new File(args.length > 0 ? args[0] : "res/gamelogs/");
+        File outFolder = new File(args.length > 1 ? args[1] : "res/analysis/");
+
+        long start = System.currentTimeMillis();
+        EventStats stats = analyse(logsFolder);
+        for (int i = 2; i < args.length; i++) {
+            stats.merge(EventStats.load(new File(args[i])));
+        }
+        write(stats, outFolder);
+        System.out.println("Analysed " + stats.getGames() + " games in " + (System.currentTimeMillis() - start)
+                + " ms, results in " + outFolder);
+    }
+
+    /**
+     * Reads the event logs of all tournaments in the given folder, in parallel.
+     * @param logsFolder - folder with one sub-folder per tournament, named by Run after its configuration.
+     * @return the aggregated statistics.
+     */
+    public static EventStats analyse(File logsFolder) {
+        File[] folders = logsFolder.listFiles(File::isDirectory);
+        List<File> tournaments = folders == null ? new ArrayList<>() : Arrays.asList(folders);
+        return tournaments.parallelStream()
+                .filter(f -> new File(f, EventLog.FILE_NAME).exists() && TournamentConfig.parse(f.getName()) != null)
+                .collect(EventStats::new, EventAnalysis::addTournament, EventStats::merge);
+    }
+
+    private static void addTournament(EventStats stats, File folder) {
+        File file = new File(folder, EventLog.FILE_NAME);
+        try {
+            stats.add(EventLogReader.open(file), TournamentConfig.parse(folder.getName()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read event log " + file, e);
+        }
+    }
+
+    /**
+     * Writes the summary table, heatmaps and partial results.
+     * @param stats - statistics to write.
+     * @param outFolder - folder to write to, created if needed.
+     */
+    public static void write(EventStats stats, File outFolder) throws IOException {
+        File heatmapFolder = new File(outFolder, "heatmaps");
+        if (!heatmapFolder.exists() && !heatmapFolder.mkdirs()) {
+            throw new IOException("Folder " + heatmapFolder + " does not exist nor could be created.");
+        }
+
+        try (PrintWriter out = new PrintWriter(new FileWriter(new File(outFolder, "summary.csv")))) {
+            out.print("game_mode,observability,agent,samples");
+            for (EventStats.Metric metric : EventStats.Metric.values()) {
+                String name = metric.name().toLowerCase();
+                out.print("," + name + "_per_game," + name + "_ci95");
+            }
+            out.println();
+            for (EventStats.Cell cell : stats.getCells()) {
+                out.print(TournamentConfig.modeName(cell.gameMode) + "," + cell.visionRange + ","
+                        + TournamentConfig.agentName(cell.agent) + "," + cell.getSamples());
+                for (EventStats.Metric metric : EventStats.Metric.values()) {
+                    out.print("," + cell.mean(metric) + "," + cell.confidence(metric));
+                }
+                out.println();
+            }
+        }
+
+        for (EventStats.Cell cell : stats.getCells()) {
+            for (EventStats.Heatmap map : EventStats.Heatmap.values()) {
+                String name = TournamentConfig.agentName(cell.agent) + "_" + TournamentConfig.modeName(cell.gameMode)
+                        + "_" + map.name().toLowerCase() + "_" + TournamentConfig.visionName(cell.visionRange);
+                int[][] heatmap = cell.getHeatmap(map);
+                writeCsv(heatmap, new File(heatmapFolder, name + ".csv"));
+                javax.imageio.ImageIO.write(toImage(heatmap), "png", new File(heatmapFolder, name + ".png"));
+            }
+        }
+
+        stats.save(new File(outFolder, "stats.ser"));
+    }
+
+    private static void writeCsv(int[][] heatmap, File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+            for (int[] row : heatmap) {
+                for (int x = 0; x < row.length; x++) {
+                    out.print(x == 0 ? "" : ",");
+                    out.print(row[x]);
+                }
+                out.println();
+            }
+        }
+    }
+
+    private static BufferedImage toImage(int[][] heatmap) {
+        int max = 0;
+        for (int[] row : heatmap) {
+            for (int count : row) {
+                max = Math.max(max, count);
+            }
+        }
+        BufferedImage image = new BufferedImage(heatmap[0].length * CELL_PIXELS, heatmap.length * CELL_PIXELS,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int y = 0; y < heatmap.length; y++) {
+            for (int x = 0; x < heatmap[y].length; x++) {
+                g.setColor(colour(max == 0 ? 0 : (double) heatmap[y][x] / max));
+                g.fillRect(x * CELL_PIXELS, y * CELL_PIXELS, CELL_PIXELS, CELL_PIXELS);
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    // Interpolates the colour scale at the given fraction in [0, 1]
+    private static Color colour(double fraction) {
+        double pos = fraction * (SCALE.length - 1);
+        int i = Math.min((int) pos, SCALE.length - 2);
+        double t = pos - i;
+        Color a = SCALE[i], b = SCALE[i + 1];
+        return new Color((int) Math.round(a.getRed() + t * (b.getRed() - a.getRed())),
+                (int) Math.round(a.getGreen() + t * (b.getGreen() - a.getGreen())),
+                (int) Math.round(a.getBlue() + t * (b.getBlue() - a.getBlue())));
+    }
+}
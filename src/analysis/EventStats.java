@@ -0,0 +1,223 @@
+package analysis;
+
+import utils.EventLogReader;
+import utils.EventType;
+import utils.Types;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Aggregated events of any number of games, by game mode, vision range and agent type. Partial results from
+ * different logs (or machines) are combined with merge, so logs can be analysed in parallel and incrementally.
+ *
+ * Each player in each game is one sample of its agent type. For every sample the number of suicides, team kills,
+ * deaths, bombs placed and power-ups picked up is counted; heatmaps count where bombs were placed, players died and
+ * power-ups were picked up.
+ */
+public class EventStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Metric { SUICIDES, TEAM_KILLS, DEATHS, BOMBS, PICKUPS }
+    public enum Heatmap { BOMB, DEATH, PICKUP }
+
+    private static final int N_METRICS = Metric.values().length;
+
+    /**
+     * Statistics of one agent type in one game mode and vision range.
+     */
+    public static class Cell implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        public final int gameMode;
+        public final int visionRange;
+        public final int agent;
+
+        long samples;
+        final double[] sums = new double[N_METRICS];
+        final double[] sumSquares = new double[N_METRICS];
+        final int[][][] heatmaps = new int[Heatmap.values().length][Types.BOARD_SIZE][Types.BOARD_SIZE];
+
+        Cell(int gameMode, int visionRange, int agent) {
+            this.gameMode = gameMode;
+            this.visionRange = visionRange;
+            this.agent = agent;
+        }
+
+        void addSample(int[] counts) {
+            samples++;
+            for (int m = 0; m < N_METRICS; m++) {
+                sums[m] += counts[m];
+                sumSquares[m] += (double) counts[m] * counts[m];
+            }
+        }
+
+        void addToHeatmap(Heatmap map, int x, int y) {
+            int[][] heatmap = heatmaps[map.ordinal()];
+            if (y >= 0 && y < heatmap.length && x >= 0 && x < heatmap[y].length) {
+                heatmap[y][x]++;
+            }
+        }
+
+        void merge(Cell other) {
+            samples += other.samples;
+            for (int m = 0; m < N_METRICS; m++) {
+                sums[m] += other.sums[m];
+                sumSquares[m] += other.sumSquares[m];
+            }
+            for (int h = 0; h < heatmaps.length; h++) {
+                for (int y = 0; y < heatmaps[h].length; y++) {
+                    for (int x = 0; x < heatmaps[h][y].length; x++) {
+                        heatmaps[h][y][x] += other.heatmaps[h][y][x];
+                    }
+                }
+            }
+        }
+
+        public long getSamples() {
+            return samples;
+        }
+
+        /**
+         * @return average count of the metric per sample (player in a game).
+         */
+        public double mean(Metric metric) {
+            return samples == 0 ? 0 : sums[metric.ordinal()] / samples;
+        }
+
+        /**
+         * @return half width of the 95% confidence interval of the mean, using the normal approximation.
+         */
+        public double confidence(Metric metric) {
+            if (samples == 0) return 0;
+            double mean = mean(metric);
+            double variance = Math.max(0, sumSquares[metric.ordinal()] / samples - mean * mean);
+            return 1.96 * Math.sqrt(variance) / Math.sqrt(samples);
+        }
+
+        /**
+         * @return counts of the heatmap, indexed [y][x].
+         */
+        public int[][] getHeatmap(Heatmap map) {
+            return heatmaps[map.ordinal()];
+        }
+    }
+
+    // Cells by key, see key()
+    private final HashMap<Long, Cell> cells = new HashMap<>();
+    private long games;
+
+    /**
+     * Adds the events of one tournament's log.
+     * @param log - events of the tournament.
+     * @param config - configuration of the tournament.
+     */
+    public void add(EventLogReader log, TournamentConfig config) {
+        // Per game: counts of each metric for each player
+        HashMap<Integer, int[][]> counts = new HashMap<>();
+        Cell[] playerCells = new Cell[config.agents.length];
+        for (int p = 0; p < playerCells.length; p++) {
+            playerCells[p] = cell(config.gameMode, config.visionRange, config.agents[p]);
+        }
+        boolean team = config.gameMode == 1;
+
+        for (int i = 0; i < log.size(); i++) {
+            int[][] gameCounts = counts.computeIfAbsent(log.getGame(i), g -> new int[playerCells.length][N_METRICS]);
+            int p = log.getPlayer(i);
+            if (p < 0 || p >= playerCells.length) continue;
+
+            EventType type = log.getType(i);
+            switch (type) {
+                case BOMB_PLACED:
+                    gameCounts[p][Metric.BOMBS.ordinal()]++;
+                    playerCells[p].addToHeatmap(Heatmap.BOMB, log.getX(i), log.getY(i));
+                    break;
+                case PICKUP:
+                    gameCounts[p][Metric.PICKUPS.ordinal()]++;
+                    playerCells[p].addToHeatmap(Heatmap.PICKUP, log.getX(i), log.getY(i));
+                    break;
+                case DEATH:
+                    gameCounts[p][Metric.DEATHS.ordinal()]++;
+                    playerCells[p].addToHeatmap(Heatmap.DEATH, log.getX(i), log.getY(i));
+                    long killers = log.getArg(i);
+                    if ((killers & (1L << p)) != 0) {
+                        gameCounts[p][Metric.SUICIDES.ordinal()]++;
+                    }
+                    int mate = (p + 2) % 4;
+                    if (team && (killers & (1L << mate)) != 0) {
+                        gameCounts[mate][Metric.TEAM_KILLS.ordinal()]++;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        for (int[][] gameCounts : counts.values()) {
+            for (int p = 0; p < playerCells.length; p++) {
+                playerCells[p].addSample(gameCounts[p]);
+            }
+        }
+        games += counts.size();
+    }
+
+    /**
+     * Adds the statistics of another set of games to these.
+     * @param other - statistics to add.
+     * @return this object.
+     */
+    public EventStats merge(EventStats other) {
+        for (Cell cell : other.cells.values()) {
+            cell(cell.gameMode, cell.visionRange, cell.agent).merge(cell);
+        }
+        games += other.games;
+        return this;
+    }
+
+    /**
+     * @return all cells, ordered by game mode, vision range and agent type.
+     */
+    public List<Cell> getCells() {
+        ArrayList<Cell> sorted = new ArrayList<>(cells.values());
+        sorted.sort(Comparator.comparingInt((Cell c) -> c.gameMode)
+                .thenComparingInt(c -> c.visionRange)
+                .thenComparingInt(c -> c.agent));
+        return sorted;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    private Cell cell(int gameMode, int visionRange, int agent) {
+        return cells.computeIfAbsent(key(gameMode, visionRange, agent),
+                k -> new Cell(gameMode, visionRange, agent));
+    }
+
+    private static long key(int gameMode, int visionRange, int agent) {
+        return ((long) gameMode << 40) | ((long) (visionRange & 0xFFFFF) << 20) | (agent & 0xFFFFF);
+    }
+
+    /**
+     * Saves these statistics, to be merged with others later.
+     * @param file - file to write.
+     */
+    public void save(File file) throws IOException {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeObject(this);
+        }
+    }
+
+    /**
+     * Loads statistics saved with save.
+     * @param file - file to read.
+     * @return the statistics.
+     */
+    public static EventStats load(File file) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (EventStats) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Not an event statistics file: " + file, e);
+        }
+    }
+}
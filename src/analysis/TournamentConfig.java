@@ -0,0 +1,71 @@
+package analysis;
+
+import java.util.ArrayList;
+
+/**
+ * Configuration of a tournament, parsed from the name of its game logs folder. Run names it after its arguments:
+ * game mode, number of seeds, repetitions, vision range and the 4 agent types, joined by "-" (so a vision range of -1
+ * shows as "--1"). Older logs left out the number of seeds.
+ */
+public class TournamentConfig {
+    public static final String[] AGENT_NAMES = {"DoNothing", "Random", "OSLA", "SimplePlayer", "RHEA", "MCTS",
+            "pessimisticMCTS"};
+    public static final String[] MODE_NAMES = {"FFA", "TEAM"};
+
+    public final int gameMode;      // 0: FFA, 1: TEAM
+    public final int visionRange;   // -1 for full observability
+    public final int[] agents;      // Agent type of each player, as in Run's arguments
+
+    TournamentConfig(int gameMode, int visionRange, int[] agents) {
+        this.gameMode = gameMode;
+        this.visionRange = visionRange;
+        this.agents = agents;
+    }
+
+    /**
+     * @param name - name of the tournament's folder.
+     * @return its configuration, or null if the name isn't in the format used by Run.
+     */
+    public static TournamentConfig parse(String name) {
+        ArrayList<Integer> values = new ArrayList<>();
+        String[] parts = name.split("-", -1);
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                if (parts[i].isEmpty() && i + 1 < parts.length) {
+                    // The separator was followed by a minus sign
+                    values.add(-Integer.parseInt(parts[++i]));
+                } else {
+                    values.add(Integer.parseInt(parts[i]));
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        int vision;
+        if (values.size() == 8) {
+            vision = 3;
+        } else if (values.size() == 7) {
+            vision = 2;
+        } else {
+            return null;
+        }
+        int[] agents = new int[4];
+        for (int i = 0; i < agents.length; i++) {
+            agents[i] = values.get(vision + 1 + i);
+        }
+        return new TournamentConfig(values.get(0), values.get(vision), agents);
+    }
+
+    public static String agentName(int agent) {
+        return agent >= 0 && agent < AGENT_NAMES.length ? AGENT_NAMES[agent] : "Agent" + agent;
+    }
+
+    public static String modeName(int mode) {
+        return mode >= 0 && mode < MODE_NAMES.length ? MODE_NAMES[mode] : "Mode" + mode;
+    }
+
+    public static String visionName(int vision) {
+        return vision < 0 ? "OBSERVABLE" : "PO" + vision;
+    }
+}
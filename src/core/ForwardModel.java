@@ -6,9 +6,13 @@ import objects.Flame;
 import objects.GameObject;
 import utils.EventsStatistics;
 import utils.LevelGenerator;
+import utils.LevelPool;
 import utils.Types;
 import utils.Vector2d;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.*;
 
 import static utils.Types.*;
@@ -165,11 +169,21 @@ public class ForwardModel {
     }
 
     /**
-     * Executes "saveToTextFile" method of EventsStatistics class, only works for the true model.
+     * Starts logging the events of this game to the event log of its tournament, only works for the true model.
      */
-    void saveEventsStatistics(String gameIdStr, long seed) {
-        if (trueModel && LOGGING_STATISTICS && es != null)
-            es.saveToTextFile(gameIdStr, seed);
+    void startEventsStatistics(String gameIdStr, long seed) {
+        if (trueModel && LOGGING_STATISTICS)
+            es = new EventsStatistics(gameIdStr, seed);
+    }
+
+    /**
+     * Logs the end of this game, if its events are being logged.
+     */
+    void endEventsStatistics() {
+        if (es != null) {
+            es.endGame(tick);
+            es = null;
+        }
     }
 
     /**
@@ -222,7 +236,6 @@ public class ForwardModel {
         if(trueModel && LOGGING_STATISTICS){
             tick = 0;
             isAgentStuck = new boolean[]{false, false, false, false};
-            es = new EventsStatistics();
         }
     }
 
@@ -245,6 +258,141 @@ public class ForwardModel {
         return aliveAgents;
     }
 
+    /**
+     * Writes everything needed to continue the game from this model, as copy() would keep it: board, hidden
+     * power-ups, agents, bombs and flames. Bomb arrays are rebuilt from the bombs when read back.
+     * @param out - stream to write to.
+     */
+    void writeCheckpoint(DataOutputStream out) throws IOException {
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                out.writeByte(board[y][x] == null ? 0 : board[y][x].ordinal() + 1);
+                out.writeByte(powerups[y][x] == null ? 0 : powerups[y][x].ordinal() + 1);
+            }
+        }
+
+        out.writeByte(agents.length);
+        for (GameObject agent : agents) {
+            Avatar a = (Avatar) agent;
+            writeObject(out, a);
+            out.writeBoolean(a.canKick());
+            out.writeShort(a.getAmmo());
+            out.writeShort(a.getBlastStrength());
+            out.writeShort(a.getVisionRange());
+            out.writeByte(a.getWinner().ordinal());
+        }
+        out.writeByte(aliveAgents.size());
+        for (GameObject agent : aliveAgents) {
+            out.writeByte(((Avatar) agent).getPlayerID() - Types.TILETYPE.AGENT0.getKey());
+        }
+
+        out.writeShort(bombs.size());
+        for (GameObject b : bombs) {
+            Bomb bomb = (Bomb) b;
+            writeObject(out, bomb);
+            out.writeShort(bomb.getBlastStrength());
+            out.writeByte(bomb.getPlayerIdx());
+            writeVector(out, bomb.getVelocity());
+        }
+
+        out.writeShort(flames.size());
+        for (GameObject f : flames) {
+            writeObject(out, f);
+            out.writeByte(((Flame) f).playerIdx);
+        }
+    }
+
+    /**
+     * Reads a model written by writeCheckpoint.
+     * @param in - stream to read from.
+     * @param size - size of the board.
+     * @param gameMode - game mode being played.
+     * @return the model, not flagged as the true model of a game.
+     */
+    static ForwardModel readCheckpoint(DataInputStream in, int size, Types.GAME_MODE gameMode) throws IOException {
+        TILETYPE[] types = TILETYPE.values();
+        ForwardModel model = new ForwardModel(size, gameMode);
+        model.board = new TILETYPE[size][size];
+        model.powerups = new TILETYPE[size][size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int b = in.readUnsignedByte();
+                int p = in.readUnsignedByte();
+                model.board[y][x] = b == 0 ? null : types[b - 1];
+                model.powerups[y][x] = p == 0 ? null : types[p - 1];
+            }
+        }
+
+        model.agents = new GameObject[in.readUnsignedByte()];
+        for (int i = 0; i < model.agents.length; i++) {
+            Avatar a = new Avatar(Types.TILETYPE.AGENT0.getKey() + i, gameMode);
+            readObject(in, a);
+            if (in.readBoolean()) a.setCanKick();
+            a.setAmmo(in.readShort());
+            a.setBlastStrength(in.readShort());
+            a.setVisionRange(in.readShort());
+            a.setWinner(RESULT.values()[in.readUnsignedByte()]);
+            model.agents[i] = a;
+        }
+        int nAlive = in.readUnsignedByte();
+        model.aliveAgents = new ArrayList<>(nAlive);
+        for (int i = 0; i < nAlive; i++) {
+            model.aliveAgents.add(model.agents[in.readUnsignedByte()]);
+        }
+
+        model.bombBlastStrength = new int[size][size];
+        model.bombLife = new int[size][size];
+        int nBombs = in.readUnsignedShort();
+        model.bombs = new ArrayList<>(nBombs);
+        for (int i = 0; i < nBombs; i++) {
+            Bomb bomb = new Bomb();
+            readObject(in, bomb);
+            bomb.setBlastStrength(in.readShort());
+            bomb.setPlayerIdx(in.readByte());
+            bomb.setVelocity(readVector(in));
+            model.bombs.add(bomb);
+            Vector2d position = bomb.getPosition();
+            model.bombBlastStrength[position.y][position.x] = bomb.getBlastStrength();
+            model.bombLife[position.y][position.x] = bomb.getLife();
+        }
+
+        int nFlames = in.readUnsignedShort();
+        model.flames = new ArrayList<>(nFlames);
+        for (int i = 0; i < nFlames; i++) {
+            Flame flame = new Flame();
+            readObject(in, flame);
+            flame.playerIdx = in.readByte();
+            model.flames.add(flame);
+        }
+        return model;
+    }
+
+    private static void writeObject(DataOutputStream out, GameObject object) throws IOException {
+        writeVector(out, object.getPosition());
+        writeVector(out, object.getDesiredCoordinate());
+        out.writeShort(object.getLife());
+    }
+
+    private static void readObject(DataInputStream in, GameObject object) throws IOException {
+        Vector2d position = readVector(in);
+        Vector2d desired = readVector(in);
+        if (position == null) object.setPositionNull(); else object.setPosition(position);
+        if (desired == null) object.setDesiredCoordinateNull(); else object.setDesiredCoordinate(desired);
+        object.setLife(in.readShort());
+    }
+
+    // Vectors are written as 2 shorts, null as (Short.MIN_VALUE, Short.MIN_VALUE)
+    private static void writeVector(DataOutputStream out, Vector2d v) throws IOException {
+        out.writeShort(v == null ? Short.MIN_VALUE : v.x);
+        out.writeShort(v == null ? Short.MIN_VALUE : v.y);
+    }
+
+    private static Vector2d readVector(DataInputStream in) throws IOException {
+        short x = in.readShort();
+        short y = in.readShort();
+        return x == Short.MIN_VALUE ? null : new Vector2d(x, y);
+    }
+
     /**
      * Creates a copy of this model
      * @return a deep copy of this model
@@ -422,17 +570,13 @@ public class ForwardModel {
         }
 
         // 17. Logging
-        if(trueModel && LOGGING_STATISTICS) {
+        if(es != null) {
             for (GameObject p : aliveAgents) {
                 int agentID = p.getType().getKey() - 10;
                 boolean isStuck = isStuckAdvanced(board, bombs, ((Avatar) p)); //isStuck(board, ((Avatar) p));
-                /*
                 if (!isAgentStuck[agentID] && isStuck){
-                    String eventString = tick + " | [" + agentID + "] got stuck at ("
-                            + p.getPosition().x + ", " + p.getPosition().y + ")\n";
-                    es.events.add(eventString);
+                    es.stuck(tick, agentID, p.getPosition().x, p.getPosition().y);
                 }
-                */
                 isAgentStuck[agentID] = isStuck;
             }
             tick++;
@@ -560,27 +704,13 @@ public class ForwardModel {
                 if (flameOccupancy.get(b.getPosition()) != null) forceExplosion = true;
 
                 // Find the flame owners who triggered the explosion
-                if(trueModel && LOGGING_STATISTICS) {
+                if(es != null) {
                     if (forceExplosion) {
-                        StringBuilder eventSB = new StringBuilder();
-                        eventSB.append(tick + " | [" + ((Bomb) b).getPlayerIdx() + "]'s bomb exploded at ("
-                                + b.getPosition().x + ", " + b.getPosition().y + ") triggered by ");
-                        Set<Integer> killerIDs = new HashSet<>();
-                        for (GameObject flame : this.flames) {
-                            if (flame.getPosition().equals(b.getPosition()))
-                                killerIDs.add(((Flame) flame).playerIdx);
-                        }
-                        for (Integer id : killerIDs) {
-                            eventSB.append("[" + id + "]");
-                            es.bombsTriggered[id]++;
-                        }
-                        eventSB.append("\n");
-                        es.events.add(eventSB.toString());
+                        es.bombTriggered(tick, ((Bomb) b).getPlayerIdx(), b.getPosition().x, b.getPosition().y,
+                                flameOwners(b.getPosition()));
                     }
                     else if(b.getLife() == 0){
-                        String eventString = tick + " | [" + ((Bomb) b).getPlayerIdx() + "]'s bomb exploded at ("
-                                + b.getPosition().x + ", " + b.getPosition().y + ")\n";
-                        es.events.add(eventString);
+                        es.bombExploded(tick, ((Bomb) b).getPlayerIdx(), b.getPosition().x, b.getPosition().y);
                     }
                 }
 
@@ -615,6 +745,21 @@ public class ForwardModel {
         return flameOccupancy;
     }
 
+    /**
+     * Finds the owners of the flames at a position, for event logging.
+     * @param position - position to check.
+     * @return bit mask of the indices of the players owning flames at the position.
+     */
+    private long flameOwners(Vector2d position) {
+        long owners = 0;
+        for (GameObject flame : flames) {
+            int owner = ((Flame) flame).playerIdx;
+            if (owner >= 0 && position.equals(flame.getPosition()))
+                owners |= 1L << owner;
+        }
+        return owners;
+    }
+
     /**
      * Handles killing agents with flames in the board.
      * @param flameOccupancy location of the flames on this tick.
@@ -632,27 +777,9 @@ public class ForwardModel {
                 p.setLife(0);
                 deadAgentsThisTick.add(p);
 
-                if(trueModel && LOGGING_STATISTICS) {
-                    StringBuilder eventSB = new StringBuilder();
-                    eventSB.append(tick + " | [" + (((Avatar) p).getPlayerID() - 10) + "] died at ("
-                            + nextPos.x + ", " + nextPos.y + ") by ");
-
-                    Set<Integer> killerIDs = new HashSet<>();
-                    for (GameObject flame : this.flames) {
-                        if (flame.getPosition().equals(nextPos))
-                            killerIDs.add(((Flame) flame).playerIdx);
-                    }
-                    for (Integer id : killerIDs) {
-                        eventSB.append("[" + id + "]");
-                    }
-                    eventSB.append("'s flame(s)");
-
-                    if (isAgentStuck[((Avatar) p).getPlayerID() - 10]) {
-                        eventSB.append(" (was stuck)");
-                    }
-                    eventSB.append("\n");
-
-                    es.events.add(eventSB.toString());
+                if(es != null) {
+                    int agentID = ((Avatar) p).getPlayerID() - 10;
+                    es.death(tick, agentID, nextPos.x, nextPos.y, flameOwners(nextPos), isAgentStuck[agentID]);
                 }
 
                 if (VERBOSE_FM_DEBUG) {
@@ -765,22 +892,13 @@ public class ForwardModel {
                     agent.reduceAmmo();
                     addBomb(pos.x, pos.y, agent.getBlastStrength(), BOMB_LIFE, i, true);
                     successful = true;
-                    if(trueModel && LOGGING_STATISTICS) {
-                        int agentID = (agent.getPlayerID() - 10);
-                        String eventString = tick + " | [" + agentID + "] placed a bomb at ("
-                                +  pos.x + ", " + pos.y + ")\n";
-                        es.events.add(eventString);
-                        es.bombsPlaced[agentID]++;
-                        es.bombPlacementsAttempted[agentID]++;
+                    if(es != null) {
+                        es.bombPlaced(tick, agent.getPlayerID() - 10, pos.x, pos.y);
                     }
                 } else {
                     successful = false;
-                    if(trueModel && LOGGING_STATISTICS) {
-                        int agentID = (agent.getPlayerID() - 10);
-                        String eventString = tick + " | [" + agentID + "] failed to place a bomb at ("
-                                +  pos.x + ", " + pos.y + ")\n";
-                        es.events.add(eventString);
-                        es.bombPlacementsAttempted[agentID]++;
+                    if(es != null) {
+                        es.bombFailed(tick, agent.getPlayerID() - 10, pos.x, pos.y);
                     }
                 }
             }
@@ -804,27 +922,18 @@ public class ForwardModel {
         if (x >= 0 && x < size && y >= 0 && y < size) {
             if (board[y][x] == Types.TILETYPE.EXTRABOMB) {
                 p.addAmmo();
-                if(trueModel && LOGGING_STATISTICS) {
-                    String eventString = tick + " | [" + (p.getPlayerID() - 10) + "] picked up AMMO at ("
-                            +  x + ", " + y + ")\n";
-                    es.events.add(eventString);
-                    es.powerUpsTaken[p.getPlayerID() - 10]++;
+                if(es != null) {
+                    es.pickup(tick, p.getPlayerID() - 10, x, y, Types.TILETYPE.EXTRABOMB);
                 }
             } else if (board[y][x] == Types.TILETYPE.INCRRANGE) {
                 p.addBlastStrength();
-                if(trueModel && LOGGING_STATISTICS) {
-                    String eventString = tick + " | [" + (p.getPlayerID() - 10) + "] picked up BLAST STRENGTH at ("
-                            +  x + ", " + y + ")\n";
-                    es.events.add(eventString);
-                    es.powerUpsTaken[p.getPlayerID() - 10]++;
+                if(es != null) {
+                    es.pickup(tick, p.getPlayerID() - 10, x, y, Types.TILETYPE.INCRRANGE);
                 }
             } else if (board[y][x] == Types.TILETYPE.KICK) {
                 p.setCanKick();
-                if(trueModel && LOGGING_STATISTICS) {
-                    String eventString = tick + " | [" + (p.getPlayerID() - 10) + "] picked up CAN KICK at ("
-                            +  x + ", " + y + ")\n";
-                    es.events.add(eventString);
-                    es.powerUpsTaken[p.getPlayerID() - 10]++;
+                if(es != null) {
+                    es.pickup(tick, p.getPlayerID() - 10, x, y, Types.TILETYPE.KICK);
                 }
             }
         }
@@ -833,10 +942,12 @@ public class ForwardModel {
     /**
      * Generates the game board, of size 'this.size' and using the seed 'this.seed'.
      * It uses Types.BOARD_* to decide number of rigid blocks, wood, items, etc.
+     * Levels already generated with the same seed and settings are taken from LevelPool.
      */
     private void generateBoard(long seed) {
-        int[][] intBoard = LevelGenerator.makeBoard(seed, size, Types.BOARD_NUM_RIGID, Types.BOARD_NUM_WOOD, agents);
-        generateBoard(intBoard, seed);
+        LevelPool.Level level = LevelPool.get(seed, size);
+        translate(level.getBoard(), true);
+        translate(level.getItems(), false);
     }
 
     /**
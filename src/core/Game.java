@@ -6,6 +6,7 @@ import players.Player;
 import players.SimonSaysPlayer;
 import utils.*;
 
+import java.io.IOException;
 import java.util.*;
 
 import static utils.Types.*;
@@ -17,6 +18,9 @@ public class Game {
      // State of the game (objects, ticks, etc).
     private GameLog gameLog;
 
+    // Binary log the actions are streamed to while the game runs, if LOG_GAME_BINARY.
+    private GameLogWriter gameLogWriter;
+
     // State of the game (objects, ticks, etc).
     private GameState gs;
 
@@ -41,6 +45,8 @@ public class Game {
     // Log flags
     public static boolean LOG_GAME = false;
     public static boolean LOG_GAME_JSON = false; // If the game is being logged, should it be saved to json
+    public static boolean LOG_GAME_BINARY = false; // If the game is being logged, should it be streamed to a binary log
+    public static int LOG_CHECKPOINT_INTERVAL = 50; // Ticks between game state checkpoints in binary logs (0 for none)
 
     // Variables for multi-threaded run 
     private Actor[] actors = new Actor[NUM_PLAYERS];
@@ -106,6 +112,20 @@ public class Game {
         updateAssignedGameStates();
     }
 
+    /**
+     * Creates a game that continues from the given state exactly. Unlike the constructors, the state is not copied
+     * (copies hide information such as flame life and bomb owners), so the game takes it over.
+     * @param gs Starting game state, not to be used elsewhere afterwards
+     * @return the game
+     */
+    static Game continueFrom(GameState gs) {
+        Game game = new Game(gs);
+        game.gs = gs;
+        game.gs.model.setTrueModel();
+        game.updateAssignedGameStates();
+        return game;
+    }
+
     /**
      * Resets the game to its initial state
      * @param seed new seed for the game;
@@ -116,6 +136,7 @@ public class Game {
         this.gs = new GameState(seed, size, gameMode, true);
         this.gs.model.setTrueModel();
         this.gs.init();
+        this.gs.model.startEventsStatistics(gameIdStr, seed);
         updateAssignedGameStates();
     }
 
@@ -131,6 +152,7 @@ public class Game {
         this.gs = new GameState(seed, size, gameMode, true);
         this.gs.model.setTrueModel();
         this.gs.init();
+        this.gs.model.startEventsStatistics(gameIdStr, seed);
         updateAssignedGameStates();
     }
 
@@ -202,8 +224,12 @@ public class Game {
 
         boolean firstEnd = true;
         Types.RESULT[] results = null;
-        if (LOG_GAME)
+        if (LOG_GAME) {
             gameLog = new GameLog(seed, size, gameMode);
+            if (LOG_GAME_BINARY) {
+                openBinaryLog();
+            }
+        }
 
         if (separateThreads) {
             createActors();
@@ -243,7 +269,9 @@ public class Game {
 
         // Save logged game
         if (LOG_GAME) {
-            if (LOG_GAME_JSON) {
+            if (LOG_GAME_BINARY) {
+                closeBinaryLog(results);
+            } else if (LOG_GAME_JSON) {
                 gameLog.serializeJSON(gameIdStr);
             } else {
                 gameLog.serialize();
@@ -262,6 +290,39 @@ public class Game {
         return results;
     }
 
+    /**
+     * Starts streaming the actions of this game to its binary log file.
+     */
+    private void openBinaryLog() {
+        try {
+            gameLogWriter = new GameLogWriter(gameLog.getBinaryLogFile(gameIdStr), seed, size, gameMode,
+                    LOG_CHECKPOINT_INTERVAL);
+        } catch (IOException e) {
+            e.printStackTrace();
+            gameLogWriter = null;
+        }
+    }
+
+    /**
+     * Finishes the binary log of this game, if one is being written.
+     * @param results - results of the game, to record with its final state. Null if the log is being abandoned.
+     */
+    private void closeBinaryLog(Types.RESULT[] results) {
+        if (gameLogWriter != null) {
+            try {
+                if (results != null && LOG_CHECKPOINT_INTERVAL > 0) {
+                    gameLogWriter.addCheckpoint(gs.toCheckpoint());
+                    gameLogWriter.addStateHash(gs.stateHash());
+                    gameLogWriter.setResults(results);
+                }
+                gameLogWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            gameLogWriter = null;
+        }
+    }
+
     /**
      * Ticks the game forward. Asks agents for actions and applies returned actions to obtain the next game state.
      * @param separateThreads - true if game should be run in separate threads, false otherwise.
@@ -286,6 +347,20 @@ public class Game {
         // Log actions
         if (LOG_GAME) {
             gameLog.addActions(actions);
+            if (gameLogWriter != null) {
+                try {
+                    if (gameLogWriter.needsCheckpoint()) {
+                        gameLogWriter.addCheckpoint(gs.toCheckpoint());
+                    }
+                    if (LOG_CHECKPOINT_INTERVAL > 0) {
+                        gameLogWriter.addStateHash(gs.stateHash());
+                    }
+                    gameLogWriter.addActions(actions);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    closeBinaryLog(null);
+                }
+            }
         }
 
         // Advance the game state
@@ -443,8 +518,7 @@ public class Game {
             p.result(finalRewards[i]);
         }
 
-        if (LOGGING_STATISTICS)
-            gs.model.saveEventsStatistics(gameIdStr, seed);
+        gs.model.endEventsStatistics();
 
 //        if (VERBOSE) {
 //        System.out.println("GameOver: " + Arrays.toString(results));
@@ -6,6 +6,7 @@ import objects.GameObject;
 import utils.Types;
 import utils.Vector2d;
 
+import java.io.*;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -121,6 +122,111 @@ public class GameState {
         return model.getAliveAgents();
     }
 
+    /**
+     * Encodes the full state of the game (not reduced to any player's view) in a compact binary form, from which
+     * the game can be continued exactly. Used for replay checkpoints.
+     * @return encoded state.
+     */
+    byte[] toCheckpoint() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(tick);
+            out.writeBoolean(message != null);
+            if (message != null) {
+                out.writeByte(message.length);
+                out.writeByte(message.length > 0 ? message[0].length : 0);
+                for (int[] m : message) {
+                    for (int word : m) {
+                        out.writeInt(word);
+                    }
+                }
+            }
+            model.writeCheckpoint(out);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not encode game state", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Hashes the state evolved by the forward model: the tick and the full model, but not the messages sent by the
+     * players. Used to check that replays of a log reproduce the game that was played.
+     * @return hash of the state.
+     */
+    int stateHash() {
+        HashOutputStream hash = new HashOutputStream();
+        try (DataOutputStream out = new DataOutputStream(hash)) {
+            out.writeInt(tick);
+            model.writeCheckpoint(out);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not hash game state", e);
+        }
+        return hash.hash;
+    }
+
+    /**
+     * 64 bit hash of what stateHash hashes. Players given states with the same fingerprint (and the same random
+     * numbers) decide the same, barring collisions, so fingerprints can key caches of their decisions.
+     * @return fingerprint of the state.
+     */
+    public long fingerprint() {
+        Hash64OutputStream hash = new Hash64OutputStream();
+        try (DataOutputStream out = new DataOutputStream(hash)) {
+            out.writeInt(tick);
+            model.writeCheckpoint(out);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not hash game state", e);
+        }
+        return hash.hash;
+    }
+
+    // 32 bit FNV-1a hash of the bytes written
+    private static class HashOutputStream extends OutputStream {
+        int hash = 0x811C9DC5;
+
+        @Override
+        public void write(int b) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+    }
+
+    // 64 bit FNV-1a hash of the bytes written
+    private static class Hash64OutputStream extends OutputStream {
+        long hash = 0xCBF29CE484222325L;
+
+        @Override
+        public void write(int b) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+    }
+
+    /**
+     * Decodes a state encoded by toCheckpoint.
+     * @param data - encoded state.
+     * @param seed - seed of the game.
+     * @param size - size of the board.
+     * @param gameMode - game mode being played.
+     * @return the decoded state, with all information available (not assigned to any player).
+     */
+    static GameState fromCheckpoint(byte[] data, long seed, int size, Types.GAME_MODE gameMode) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            GameState gs = new GameState(seed, size, gameMode, false);
+            gs.tick = in.readInt();
+            if (in.readBoolean()) {
+                gs.message = new int[in.readUnsignedByte()][in.readUnsignedByte()];
+                for (int[] m : gs.message) {
+                    for (int i = 0; i < m.length; i++) {
+                        m[i] = in.readInt();
+                    }
+                }
+            }
+            gs.model = ForwardModel.readCheckpoint(in, size, gameMode);
+            return gs;
+        } catch (IOException e) {
+            throw new RuntimeException("Could not decode game state", e);
+        }
+    }
+
     /**
      * For debug purposes only: shows the current state of winners for all players.
      */
@@ -417,70 +523,42 @@ public class GameState {
      * @param state JSON game state
      */
     public GameState(String state){
-        // TODO might be too much construction, maybe creating only forward models would be more efficient?
-//        System.out.println("state = " + state);
-
-        // State is [obs, action_space]
-        Gson gson = new Gson();
-        JsonParser parser = new JsonParser();
-        JsonElement element = parser.parse(state);
-        JsonObject object = element.getAsJsonObject();
-
-        // Take obs and further extract the information
-        String obs1 = object.get("obs").toString();
-
-        // TODO this regex works, problem: if obs.get called the JSON breaks so have to fix it with replacements
-        String obs = obs1.replaceAll("\\\\", "");
-        obs = obs.replaceAll("\"\\{", "\\{");
-        obs = obs.replaceAll("\\}\"", "\\}");
-        JsonElement obsE = parser.parse(obs);
-        JsonObject obsObj = obsE.getAsJsonObject();
-
-        // Casting all the information to their java equivalent before passing it to the gamestate constructor
-        int[] alive = gson.fromJson(obsObj.get("alive"), int[].class);
-        int[][] board = gson.fromJson(obsObj.get("board"), int[][].class);
-        int[][] bomb_blast_strength = gson.fromJson(obsObj.get("bomb_blast_strength"), int[][].class);
-        int[][] bomb_life = gson.fromJson(obsObj.get("bomb_life"), int[][].class);
-
-        int game_type = gson.fromJson(obsObj.get("game_type"), int.class); // game_type: 1 FFA
-        String game_env = gson.fromJson(obsObj.get("game_env"), String.class); // pommerman.envs.v0:Pomme
-        int[] position = gson.fromJson(obsObj.get("position"), int[].class); // [9, 1] - current agent's position x,y
-        int blast_strength = gson.fromJson(obsObj.get("blast_strength"), int.class); // int -current agent's blast strength
-        boolean can_kick = gson.fromJson(obsObj.get("can_kick"), boolean.class); // boolean
-        //Types.TILETYPE[] teammate; //teammate - dummy 9 // todo it's hardcoded in our levegenerator
-        int ammo = gson.fromJson(obsObj.get("ammo"), int.class); // int 1 -default
-        //Types.TILETYPE[] enemies; // enemies list // todo
-        int step_count = gson.fromJson(obsObj.get("step_count"), int.class); // step_count
-        int action_space = object.get("action_space").getAsInt();
+        this(new ObservationDecoder().parse(state));
+    }
 
+    /**
+     * Creates the game state of a JSON observation, read by an ObservationDecoder.
+     * @param obs - decoder holding the fields of the observation.
+     */
+    GameState(ObservationDecoder obs){
         Types.GAME_MODE gameMode = Types.GAME_MODE.FFA; // Default
-        if (game_type == 1) {
+        if (obs.gameType == 1) {
             gameMode = Types.GAME_MODE.FFA;
             DEFAULT_VISION_RANGE = 4; // TODO THIS IS HARDCODED BY US
         }
-        else if (game_type == 2){
+        else if (obs.gameType == 2){
             gameMode = Types.GAME_MODE.TEAM;
             DEFAULT_VISION_RANGE = 4; // TODO THIS IS HARDCODED BY US
         }
-        else if (game_type == 3){
+        else if (obs.gameType == 3){
             gameMode = Types.GAME_MODE.TEAM_RADIO;
         }
 
         this.gameMode = gameMode;
 
-        this.tick = step_count;
+        this.tick = obs.stepCount;
         this.seed = -1; // todo setting seed to -1 when communicating with python
-        this.playerIdx = board[position[0]][position[1]]-10; // Coordinates are swapped
-        this.nActions = action_space;
-        this.size = board.length;
+        this.playerIdx = obs.board[obs.position[0]][obs.position[1]]-10; // Coordinates are swapped
+        this.nActions = obs.actionSpace;
+        this.size = obs.board.length;
 
         try {
-            this.model = new ForwardModel(board, bomb_blast_strength, bomb_life, alive, gameMode, this.playerIdx);
+            this.model = new ForwardModel(obs.board, obs.bombBlastStrength, obs.bombLife, obs.alive, gameMode, this.playerIdx);
             this.avatar = (Avatar) model.getAgents()[playerIdx];
-            this.avatar.setAmmo(ammo);
-            this.avatar.setBlastStrength(blast_strength);
+            this.avatar.setAmmo(obs.ammo);
+            this.avatar.setBlastStrength(obs.blastStrength);
             this.avatar.setVisionRange(DEFAULT_VISION_RANGE);
-            if (can_kick) this.avatar.canKick();
+            if (obs.canKick) this.avatar.canKick();
         } catch (Exception e){
             e.printStackTrace();
         }
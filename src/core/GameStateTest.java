@@ -1,7 +1,10 @@
 package core;
 
+import com.google.gson.Gson;
 import utils.Types;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 class GameStateTest {
 
     @org.junit.jupiter.api.Test
@@ -10,4 +13,31 @@ class GameStateTest {
         gs.init();
         System.out.println(gs.model);
     }
-}
\ No newline at end of file
+
+    @org.junit.jupiter.api.Test
+    void observationDecoding() {
+        String board = "[[10, 0, 2], [0, 3, 0], [1, 0, 11]]";
+        String bombs = "[[0, 0, 0], [0, 4, 0], [0, 0, 0]]";
+        String obs = "{\"alive\": [10, 11], \"board\": " + board + ", \"bomb_blast_strength\": " + bombs
+                + ", \"bomb_life\": " + bombs + ", \"bomb_moving_direction\": [[0]], \"game_type\": 1, "
+                + "\"game_env\": \"pommerman.envs.v0:Pomme\", \"position\": [0, 0], \"blast_strength\": 3, "
+                + "\"can_kick\": false, \"teammate\": 9, \"ammo\": 2, \"enemies\": [11, 12, 13], \"step_count\": 7}";
+
+        // pommerman sends the observation json-encoded as a string, but a plain object works too
+        ObservationDecoder decoder = new ObservationDecoder();
+        GameState fromObject = decoder.decode("{\"obs\": " + obs + ", \"action_space\": 6}");
+        GameState fromString = decoder.decode("{\"obs\": " + new Gson().toJson(obs) + ", \"action_space\": \"6\"}");
+        for (GameState gs : new GameState[]{fromObject, fromString}) {
+            assertEquals(7, gs.getTick());
+            assertEquals(0, gs.getPlayerId() - Types.TILETYPE.AGENT0.getKey());
+            assertEquals(Types.TILETYPE.BOMB, gs.getBoard()[1][1]);
+            assertEquals(4, gs.model.getBombLife()[1][1]);
+            assertEquals(2, gs.getAliveAgents().size());
+        }
+        assertEquals(fromObject.model.toString(), fromString.model.toString());
+        // The bomb arrays belong to each state, the decoder doesn't reuse them
+        assertNotSame(fromObject.model.getBombLife(), fromString.model.getBombLife());
+
+        assertThrows(IllegalArgumentException.class, () -> decoder.decode("{\"obs\": {\"board\": [[0]]}}"));
+    }
+}
@@ -437,6 +437,39 @@ class GameTest {
 //        Run.runGames(game, new long[]{seed}, N, useSeparateThreads);
     }
 
+    /**
+     * Two RHEA players with the same seed and number of evaluation threads pick the same actions, with iteration and
+     * FM budgets, however the threads are scheduled.
+     */
+    @Test
+    void rheaParallelEvaluationDeterminism() {
+        for (int budgetType : new int[]{Constants.ITERATION_BUDGET, Constants.FM_BUDGET}) {
+            RHEAParams params = new RHEAParams();
+            params.budget_type = budgetType;
+            params.evaluation_threads = 4;
+            params.population_size = 10;
+            params.tournament_size = 2;
+
+            int playerID = Types.TILETYPE.AGENT0.getKey();
+            RHEAPlayer player1 = new RHEAPlayer(42, playerID, params);
+            RHEAPlayer player2 = new RHEAPlayer(42, playerID, params);
+
+            GameState gs = new Game(123, Types.BOARD_SIZE, Types.GAME_MODE.FFA, "").getGameState();
+            Random random = new Random(7);
+            for (int tick = 0; tick < 20 && !gs.isTerminal(); tick++) {
+                Types.ACTIONS action = player1.act(gs.copy(0));
+                assertEquals(action, player2.act(gs.copy(0)), "Tick " + tick + ", budget type " + budgetType);
+
+                Types.ACTIONS[] actions = new Types.ACTIONS[Types.NUM_PLAYERS];
+                actions[0] = action;
+                for (int i = 1; i < actions.length; i++) {
+                    actions[i] = Types.ACTIONS.all().get(random.nextInt(Types.ACTIONS.all().size()));
+                }
+                gs.next(actions);
+            }
+        }
+    }
+
     /**
      * This tests whether the replay is the same as the original game,
      * when the game is played by agents that DO use the forward model.
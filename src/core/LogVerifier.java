@@ -0,0 +1,236 @@
+package core;
+
+import objects.Avatar;
+import objects.GameObject;
+import utils.GameLogReader;
+import utils.GameLogWriter;
+import utils.Types;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Checks that recorded games still play out the same, e.g. after changes to the forward model. Replays binary logs
+ * through GameState.next and compares the hash of the state at every tick, and the final results, with those
+ * recorded when the game was played. Logs are verified in parallel.
+ *
+ * Usage: java core.LogVerifier [logs folder = res/gamelogs/] [threads = number of processors]
+ */
+public class LogVerifier {
+
+    public enum Status { OK, DIVERGED, UNVERIFIABLE, ERROR }
+
+    /**
+     * Outcome of verifying one log.
+     */
+    public static class Result {
+        public final File file;
+        public final Status status;
+        public final int divergentTick;  // First tick whose state differs, -1 if none
+        public final String message;     // What differs, or why the log couldn't be verified; empty if OK
+
+        Result(File file, Status status, int divergentTick, String message) {
+            this.file = file;
+            this.status = status;
+            this.divergentTick = divergentTick;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return file + ": " + status + (divergentTick >= 0 ? " at tick " + divergentTick : "")
+                    + (message.isEmpty() ? "" : "\n" + message);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        File folder = new File(args.length > 0 ? args[0] : "res/gamelogs/");
+        int nThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.currentTimeMillis();
+        List<Result> results = verifyAll(findLogs(folder), nThreads);
+        int[] counts = new int[Status.values().length];
+        for (Result result : results) {
+            counts[result.status.ordinal()]++;
+            if (result.status != Status.OK) {
+                System.out.println(result);
+            }
+        }
+        System.out.println("Verified " + results.size() + " logs in " + (System.currentTimeMillis() - start)
+                + " ms: " + counts[Status.OK.ordinal()] + " OK, " + counts[Status.DIVERGED.ordinal()]
+                + " diverged, " + counts[Status.UNVERIFIABLE.ordinal()] + " unverifiable, "
+                + counts[Status.ERROR.ordinal()] + " errors");
+        if (counts[Status.DIVERGED.ordinal()] + counts[Status.ERROR.ordinal()] > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param folder - folder to search, including sub-folders.
+     * @return all binary game logs found, in path order.
+     */
+    public static List<File> findLogs(File folder) {
+        ArrayList<File> logs = new ArrayList<>();
+        ArrayDeque<File> folders = new ArrayDeque<>();
+        folders.add(folder);
+        while (!folders.isEmpty()) {
+            File[] files = folders.poll().listFiles();
+            if (files == null) continue;
+            for (File f : files) {
+                if (f.isDirectory()) folders.add(f);
+                else if (f.getName().endsWith(GameLogWriter.FILE_EXTENSION)) logs.add(f);
+            }
+        }
+        Collections.sort(logs);
+        return logs;
+    }
+
+    /**
+     * Verifies the given logs in parallel. The vision range and game length used in the replays are set from each
+     * log, so logs are verified in groups sharing them; they are restored afterwards.
+     * @param files - binary game logs.
+     * @param nThreads - number of threads to use.
+     * @return the result for each log, in the same order.
+     */
+    public static List<Result> verifyAll(List<File> files, int nThreads) throws InterruptedException {
+        Result[] results = new Result[files.size()];
+        TreeMap<Long, List<Integer>> groups = new TreeMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                GameLogReader log = GameLogReader.open(files.get(i));
+                long key = ((long) log.getVisionRange() << 32) | (log.getMaxGameTicks() & 0xFFFFFFFFL);
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            } catch (Exception e) {
+                results[i] = new Result(files.get(i), Status.ERROR, -1, e.toString());
+            }
+        }
+
+        int visionRange = Types.DEFAULT_VISION_RANGE;
+        int maxGameTicks = Types.MAX_GAME_TICKS;
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        try {
+            for (Map.Entry<Long, List<Integer>> group : groups.entrySet()) {
+                Types.DEFAULT_VISION_RANGE = (int) (group.getKey() >> 32);
+                Types.MAX_GAME_TICKS = (int) (long) group.getKey();
+                ArrayList<Callable<Void>> tasks = new ArrayList<>();
+                for (int i : group.getValue()) {
+                    tasks.add(() -> {
+                        results[i] = verify(files.get(i));
+                        return null;
+                    });
+                }
+                pool.invokeAll(tasks);
+            }
+        } finally {
+            pool.shutdown();
+            Types.DEFAULT_VISION_RANGE = visionRange;
+            Types.MAX_GAME_TICKS = maxGameTicks;
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Verifies one log, with the current game settings.
+     * @param file - binary game log.
+     * @return the result.
+     */
+    public static Result verify(File file) {
+        try {
+            GameLogReader log = GameLogReader.open(file);
+            if (log.getNumStateHashes() == 0) {
+                return new Result(file, Status.UNVERIFIABLE, -1, "No state hashes recorded in this log");
+            }
+
+            GameState gs = new GameState(log.getSeed(), log.getSize(), log.getGameMode());
+            Types.ACTIONS[] actions = new Types.ACTIONS[log.getNumPlayers()];
+            for (int t = 0; t <= log.getNumTicks(); t++) {
+                if (t < log.getNumStateHashes() && gs.stateHash() != log.getStateHash(t)) {
+                    return new Result(file, Status.DIVERGED, t, describeDivergence(log, gs, t));
+                }
+                if (t < log.getNumTicks()) {
+                    log.getActions(t, actions);
+                    gs.next(actions);
+                }
+            }
+
+            Types.RESULT[] recorded = log.getResults();
+            Types.RESULT[] replayed = results(gs);
+            if (recorded != null && !Arrays.equals(recorded, replayed)) {
+                return new Result(file, Status.DIVERGED, log.getNumTicks(), "Results differ: recorded "
+                        + Arrays.toString(recorded) + ", replayed " + Arrays.toString(replayed));
+            }
+            return new Result(file, Status.OK, -1, "");
+        } catch (Exception e) {
+            return new Result(file, Status.ERROR, -1, e.toString());
+        }
+    }
+
+    private static Types.RESULT[] results(GameState gs) {
+        GameObject[] agents = gs.getAgents();
+        Types.RESULT[] results = new Types.RESULT[agents.length];
+        for (int i = 0; i < agents.length; i++) {
+            results[i] = ((Avatar) agents[i]).getWinner();
+        }
+        return results;
+    }
+
+    /**
+     * Compares the replayed state with the one recorded at the first checkpoint at or after the divergent tick.
+     * @param log - log being verified.
+     * @param gs - replayed state, at the divergent tick. Advanced to the checkpoint if needed.
+     * @param tick - first tick whose state hash differs.
+     * @return description of the differences.
+     */
+    private static String describeDivergence(GameLogReader log, GameState gs, int tick) {
+        int checkpoint = log.findCheckpoint(tick);
+        if (checkpoint < 0 || log.getCheckpointTick(checkpoint) < tick) {
+            checkpoint++;
+        }
+        if (checkpoint >= log.getNumCheckpoints()) {
+            return "State hash differs; no checkpoint recorded after it to compare with";
+        }
+
+        int checkpointTick = log.getCheckpointTick(checkpoint);
+        Types.ACTIONS[] actions = new Types.ACTIONS[log.getNumPlayers()];
+        for (int t = tick; t < checkpointTick; t++) {
+            log.getActions(t, actions);
+            gs.next(actions);
+        }
+        GameState recorded = GameState.fromCheckpoint(log.getCheckpoint(checkpoint), log.getSeed(), log.getSize(),
+                log.getGameMode());
+
+        StringBuilder sb = new StringBuilder("State hash differs. Differences at tick " + checkpointTick
+                + " (recorded -> replayed):\n");
+        int length = sb.length();
+        Types.TILETYPE[][] expectedBoard = recorded.model.getBoard();
+        Types.TILETYPE[][] board = gs.model.getBoard();
+        for (int y = 0; y < board.length; y++) {
+            for (int x = 0; x < board[y].length; x++) {
+                if (expectedBoard[y][x] != board[y][x]) {
+                    sb.append("  board (").append(x).append(", ").append(y).append("): ").append(expectedBoard[y][x])
+                            .append(" -> ").append(board[y][x]).append("\n");
+                }
+            }
+        }
+        GameObject[] expectedAgents = recorded.getAgents();
+        GameObject[] agents = gs.getAgents();
+        for (int i = 0; i < agents.length; i++) {
+            String expected = describe((Avatar) expectedAgents[i]);
+            String replayed = describe((Avatar) agents[i]);
+            if (!expected.equals(replayed)) {
+                sb.append("  agent ").append(i).append(": ").append(expected).append(" -> ").append(replayed)
+                        .append("\n");
+            }
+        }
+        if (sb.length() == length) {
+            sb.append("  no differences in the board or agents; bombs, flames or power-ups differ\n");
+        }
+        return sb.toString();
+    }
+
+    private static String describe(Avatar a) {
+        return "position " + a.getPosition() + ", ammo " + a.getAmmo() + ", blast " + a.getBlastStrength()
+                + ", kick " + a.canKick() + ", " + a.getWinner();
+    }
+}
@@ -0,0 +1,235 @@
+package core;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * Decodes the JSON observations sent by pommerman's python agents in a single streaming pass, reading the fields
+ * straight into the arrays the forward model is built from. pommerman sends the observation (and the action space)
+ * json-encoded a second time, as a string; such strings are decoded where an object is expected.
+ *
+ * A decoder reuses its buffers from one observation to the next, so each session should keep its own. Not thread safe.
+ */
+public class ObservationDecoder {
+
+    // Fields required in each observation, as bits of the mask of fields read
+    private static final String[] REQUIRED = {"alive", "board", "bomb_blast_strength", "bomb_life", "game_type",
+            "position", "blast_strength", "can_kick", "ammo", "step_count", "action_space"};
+
+    // Fields of the last observation decoded. The board is reused, the bomb arrays are kept by the forward model.
+    int[][] board;
+    int[][] bombBlastStrength;
+    int[][] bombLife;
+    int[] alive;
+    int gameType;           // game_type: 1 FFA, 2 TEAM, 3 TEAM_RADIO
+    String gameEnv;         // pommerman.envs.v0:Pomme
+    int[] position;         // [9, 1] - current agent's position, row first
+    int blastStrength;      // current agent's blast strength
+    boolean canKick;
+    int ammo;
+    int stepCount;
+    int actionSpace;
+
+    private int fieldsRead;
+    private int[] row = new int[16];
+    private int[] list = new int[8];
+
+    /**
+     * Decodes an observation.
+     * @param state - JSON with the observation ("obs") and the size of the action space ("action_space").
+     * @return the game state observed.
+     */
+    public GameState decode(String state) {
+        return new GameState(parse(state));
+    }
+
+    /**
+     * Decodes an observation that is part of a larger JSON document.
+     * @param in - reader positioned at the observation, an object as in decode(String).
+     * @return the game state observed.
+     */
+    public GameState decode(JsonReader in) throws IOException {
+        return new GameState(parse(in));
+    }
+
+    /**
+     * Reads the fields of an observation into this decoder.
+     * @param state - JSON with the observation ("obs") and the size of the action space ("action_space").
+     * @return this decoder.
+     */
+    ObservationDecoder parse(String state) {
+        try {
+            return parse(reader(state));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed observation: " + e.getMessage(), e);
+        }
+    }
+
+    private ObservationDecoder parse(JsonReader in) throws IOException {
+        fieldsRead = 0;
+        gameEnv = null;
+        try {
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (name.equals("obs")) {
+                    if (in.peek() == JsonToken.STRING) {
+                        readObservation(reader(in.nextString()));
+                    } else {
+                        readObservation(in);
+                    }
+                } else if (name.equals("action_space")) {
+                    actionSpace = in.nextInt();
+                    read("action_space");
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed observation: " + e.getMessage(), e);
+        }
+
+        if (fieldsRead != (1 << REQUIRED.length) - 1) {
+            for (int i = 0; i < REQUIRED.length; i++) {
+                if ((fieldsRead & (1 << i)) == 0) {
+                    throw new IllegalArgumentException("Observation without " + REQUIRED[i]);
+                }
+            }
+        }
+        return this;
+    }
+
+    private void readObservation(JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "alive":
+                    alive = readList(in);
+                    break;
+                case "board":
+                    board = readMatrix(in, board);
+                    break;
+                case "bomb_blast_strength":
+                    bombBlastStrength = readMatrix(in, null);
+                    break;
+                case "bomb_life":
+                    bombLife = readMatrix(in, null);
+                    break;
+                case "game_type":
+                    gameType = in.nextInt();
+                    break;
+                case "game_env":
+                    gameEnv = in.nextString();
+                    break;
+                case "position":
+                    position = readList(in);
+                    break;
+                case "blast_strength":
+                    blastStrength = in.nextInt();
+                    break;
+                case "can_kick":
+                    canKick = in.nextBoolean();
+                    break;
+                case "ammo":
+                    ammo = in.nextInt();
+                    break;
+                case "step_count":
+                    stepCount = in.nextInt();
+                    break;
+                default:
+                    in.skipValue();
+                    continue;
+            }
+            read(name);
+        }
+        in.endObject();
+    }
+
+    private void read(String field) {
+        for (int i = 0; i < REQUIRED.length; i++) {
+            if (REQUIRED[i].equals(field)) {
+                fieldsRead |= 1 << i;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads a square matrix of integers.
+     * @param reuse - matrix to read into if it has the right size, null to always allocate a new one.
+     */
+    private int[][] readMatrix(JsonReader in, int[][] reuse) throws IOException {
+        in.beginArray();
+        int[][] matrix = null;
+        int y = 0;
+        while (in.hasNext()) {
+            if (matrix == null) {
+                // The first row gives the size
+                int n = readRow(in);
+                matrix = reuse != null && reuse.length == n ? reuse : new int[n][n];
+                System.arraycopy(row, 0, matrix[0], 0, n);
+            } else {
+                if (y >= matrix.length) {
+                    throw new IllegalStateException("Matrix with more rows than columns");
+                }
+                in.beginArray();
+                int x = 0;
+                while (in.hasNext()) {
+                    if (x >= matrix.length) {
+                        throw new IllegalStateException("Rows of different lengths");
+                    }
+                    matrix[y][x++] = in.nextInt();
+                }
+                in.endArray();
+                if (x != matrix.length) {
+                    throw new IllegalStateException("Rows of different lengths");
+                }
+            }
+            y++;
+        }
+        in.endArray();
+        if (matrix == null || y != matrix.length) {
+            throw new IllegalStateException("Matrix not square");
+        }
+        return matrix;
+    }
+
+    // Reads an array of integers into row, returns its length
+    private int readRow(JsonReader in) throws IOException {
+        in.beginArray();
+        int n = 0;
+        while (in.hasNext()) {
+            if (n == row.length) {
+                row = Arrays.copyOf(row, 2 * n);
+            }
+            row[n++] = in.nextInt();
+        }
+        in.endArray();
+        return n;
+    }
+
+    private int[] readList(JsonReader in) throws IOException {
+        in.beginArray();
+        int n = 0;
+        while (in.hasNext()) {
+            if (n == list.length) {
+                list = Arrays.copyOf(list, 2 * n);
+            }
+            list[n++] = in.nextInt();
+        }
+        in.endArray();
+        return Arrays.copyOf(list, n);
+    }
+
+    private static JsonReader reader(String json) {
+        JsonReader in = new JsonReader(new StringReader(json));
+        in.setLenient(true);
+        return in;
+    }
+}
@@ -0,0 +1,109 @@
+package core;
+
+import players.Player;
+import players.SimonSaysPlayer;
+import utils.GameLogReader;
+import utils.Types;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Queue;
+
+import static utils.Types.NUM_PLAYERS;
+
+/**
+ * Random access to the states of a game recorded in a binary log. With a checkpointed log, seeking to a tick only
+ * re-simulates the ticks since the closest checkpoint before it, instead of the whole game from its start.
+ */
+public class Replay {
+    private final GameLogReader log;
+
+    /**
+     * @param log - binary game log to replay.
+     */
+    public Replay(GameLogReader log) {
+        this.log = log;
+    }
+
+    /**
+     * @param tick - tick to seek to, in range [0, getNumTicks()].
+     * @return state of the game at the start of the given tick, before its actions were played. Not assigned to any
+     * player.
+     */
+    public GameState getState(int tick) {
+        if (tick < 0 || tick > log.getNumTicks()) {
+            throw new IndexOutOfBoundsException("Tick " + tick + " outside of the log, which has "
+                    + log.getNumTicks() + " ticks");
+        }
+        int checkpoint = log.findCheckpoint(tick);
+        GameState gs;
+        int from;
+        if (checkpoint >= 0) {
+            gs = decodeCheckpoint(checkpoint);
+            from = log.getCheckpointTick(checkpoint);
+        } else {
+            gs = new GameState(log.getSeed(), log.getSize(), log.getGameMode());
+            from = 0;
+        }
+        simulate(gs, from, tick);
+        return gs;
+    }
+
+    /**
+     * Creates a game that continues from the given tick, its players repeating the logged actions.
+     * @param tick - tick to start from, in range [0, getNumTicks()].
+     * @return game ready to be run.
+     */
+    public Game getGame(int tick) {
+        Game game = Game.continueFrom(getState(tick));
+        game.setLogGame(false);
+
+        ArrayList<Player> players = new ArrayList<>();
+        int playerID = Types.TILETYPE.AGENT0.getKey();
+        for (int i = 0; i < NUM_PLAYERS; i++) {
+            Queue<Types.ACTIONS> actions = new ArrayDeque<>();
+            for (int t = tick; t < log.getNumTicks(); t++) {
+                actions.add(log.getAction(t, i));
+            }
+            players.add(new SimonSaysPlayer(playerID++, actions));
+        }
+        game.setPlayers(players);
+        return game;
+    }
+
+    /**
+     * Re-simulates the whole game from its start and checks it reaches the state stored at every checkpoint.
+     * @return tick of the first checkpoint that doesn't match the simulation, or -1 if all of them match.
+     */
+    public int verify() {
+        GameState gs = new GameState(log.getSeed(), log.getSize(), log.getGameMode());
+        int tick = 0;
+        for (int i = 0; i < log.getNumCheckpoints(); i++) {
+            int checkpointTick = log.getCheckpointTick(i);
+            simulate(gs, tick, checkpointTick);
+            tick = checkpointTick;
+            if (!gs.equals(decodeCheckpoint(i))) {
+                return checkpointTick;
+            }
+        }
+        return -1;
+    }
+
+    public int getNumTicks() {
+        return log.getNumTicks();
+    }
+
+    private GameState decodeCheckpoint(int checkpoint) {
+        return GameState.fromCheckpoint(log.getCheckpoint(checkpoint), log.getSeed(), log.getSize(),
+                log.getGameMode());
+    }
+
+    // Advances the given state, at tick from, by the logged actions up to tick to
+    private void simulate(GameState gs, int from, int to) {
+        Types.ACTIONS[] actions = new Types.ACTIONS[log.getNumPlayers()];
+        for (int t = from; t < to; t++) {
+            log.getActions(t, actions);
+            gs.next(actions);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package core;
+
+import org.junit.jupiter.api.Test;
+import utils.GameLogReader;
+import utils.GameLogWriter;
+import utils.Types;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayTest {
+
+    @Test
+    void seekMatchesSimulation() throws IOException {
+        File file = File.createTempFile("replay", GameLogWriter.FILE_EXTENSION);
+        file.deleteOnExit();
+
+        // Play random actions
+        GameState gs = new GameState(99L, 11, Types.GAME_MODE.FFA);
+        ArrayList<Types.ACTIONS[]> played = new ArrayList<>();
+        Random random = new Random(7);
+        try (GameLogWriter writer = new GameLogWriter(file, 99L, 11, Types.GAME_MODE.FFA, 25)) {
+            for (int t = 0; t < 120 && !gs.isTerminal(); t++) {
+                Types.ACTIONS[] actions = new Types.ACTIONS[Types.NUM_PLAYERS];
+                for (int i = 0; i < actions.length; i++) {
+                    actions[i] = Types.ACTIONS.all().get(random.nextInt(Types.ACTIONS.all().size()));
+                }
+                if (writer.needsCheckpoint()) {
+                    writer.addCheckpoint(gs.toCheckpoint());
+                }
+                writer.addActions(actions);
+                played.add(actions);
+                gs.next(actions);
+            }
+        }
+
+        GameLogReader reader = GameLogReader.open(file);
+        assertEquals(played.size(), reader.getNumTicks());
+        assertEquals((reader.getNumTicks() + 24) / 25, reader.getNumCheckpoints());
+
+        Replay replay = new Replay(reader);
+        assertEquals(-1, replay.verify());
+
+        // Copies hide flame life and bomb owners, so compare against the game played again instead
+        GameState expected = new GameState(99L, 11, Types.GAME_MODE.FFA);
+        for (int t = 0; t <= played.size(); t++) {
+            assertEquals(expected, replay.getState(t));
+            if (t < played.size()) {
+                expected.next(played.get(t));
+            }
+        }
+    }
+}
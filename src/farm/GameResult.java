@@ -0,0 +1,42 @@
+package farm;
+
+import utils.Types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Outcome of a game played in a worker.
+ */
+public class GameResult {
+    public final Types.RESULT[] results;    // Per player
+    public final int[] overtimes;           // Decisions over the time limit, per player
+    public final int ticks;                 // Length of the game
+
+    GameResult(Types.RESULT[] results, int[] overtimes, int ticks) {
+        this.results = results;
+        this.overtimes = overtimes;
+        this.ticks = ticks;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeByte(results.length);
+        for (int i = 0; i < results.length; i++) {
+            out.writeByte(results[i].ordinal());
+            out.writeInt(overtimes[i]);
+        }
+        out.writeInt(ticks);
+    }
+
+    static GameResult read(DataInput in) throws IOException {
+        int n = in.readByte();
+        Types.RESULT[] results = new Types.RESULT[n];
+        int[] overtimes = new int[n];
+        for (int i = 0; i < n; i++) {
+            results[i] = Types.RESULT.values()[in.readByte()];
+            overtimes[i] = in.readInt();
+        }
+        return new GameResult(results, overtimes, in.readInt());
+    }
+}
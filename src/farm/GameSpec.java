@@ -0,0 +1,70 @@
+package farm;
+
+import utils.Types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A game to play in a worker: the board, the rules that are global settings of this JVM (vision range and length of
+ * the game, taken from Types when the spec is created) and the players, in their starting positions.
+ */
+public class GameSpec {
+    public final long seed;         // Of the board
+    public final long playerSeed;   // Of every player
+    public final int boardSize;
+    public final Types.GAME_MODE gameMode;
+    public final int visionRange;
+    public final int maxGameTicks;
+    public final PlayerSpec[] players;
+
+    /**
+     * @param seed - seed of the board.
+     * @param playerSeed - random seed of the players.
+     * @param boardSize - size of the board.
+     * @param gameMode - game mode.
+     * @param players - players, in order of their starting positions.
+     */
+    public GameSpec(long seed, long playerSeed, int boardSize, Types.GAME_MODE gameMode, PlayerSpec... players) {
+        this(seed, playerSeed, boardSize, gameMode, Types.DEFAULT_VISION_RANGE, Types.MAX_GAME_TICKS, players);
+    }
+
+    private GameSpec(long seed, long playerSeed, int boardSize, Types.GAME_MODE gameMode, int visionRange,
+                     int maxGameTicks, PlayerSpec[] players) {
+        this.seed = seed;
+        this.playerSeed = playerSeed;
+        this.boardSize = boardSize;
+        this.gameMode = gameMode;
+        this.visionRange = visionRange;
+        this.maxGameTicks = maxGameTicks;
+        this.players = players;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeLong(seed);
+        out.writeLong(playerSeed);
+        out.writeInt(boardSize);
+        out.writeByte(gameMode.ordinal());
+        out.writeInt(visionRange);
+        out.writeInt(maxGameTicks);
+        out.writeByte(players.length);
+        for (PlayerSpec player : players) {
+            player.write(out);
+        }
+    }
+
+    static GameSpec read(DataInput in) throws IOException {
+        long seed = in.readLong();
+        long playerSeed = in.readLong();
+        int boardSize = in.readInt();
+        Types.GAME_MODE gameMode = Types.GAME_MODE.values()[in.readByte()];
+        int visionRange = in.readInt();
+        int maxGameTicks = in.readInt();
+        PlayerSpec[] players = new PlayerSpec[in.readByte()];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = PlayerSpec.read(in);
+        }
+        return new GameSpec(seed, playerSeed, boardSize, gameMode, visionRange, maxGameTicks, players);
+    }
+}
@@ -0,0 +1,145 @@
+package farm;
+
+import players.*;
+import players.mcts.MCTSParams;
+import players.mcts.MCTSPlayer;
+import players.optimisers.ParameterizedPlayer;
+import players.pessimisticMcts.pMCTSParams;
+import players.pessimisticMcts.pessimisticMCTSPlayer;
+import players.rhea.RHEAPlayer;
+import players.rhea.utils.Constants;
+import players.rhea.utils.RHEAParams;
+import players.optimisers.evodef.SearchSpaceUtil;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A player to create in a game played elsewhere: its type and, for parameterized players, the values of the
+ * parameters to tune as given to ParameterSet.translate.
+ */
+public class PlayerSpec {
+
+    // Types of players. The first ones are those of Run
+    public static final int DO_NOTHING = 0;
+    public static final int RANDOM = 1;
+    public static final int OSLA = 2;
+    public static final int RULE_BASED = 3;
+    public static final int RHEA = 4;           // 200 iterations, shift buffer, pop size 1, random init, length: 12
+    public static final int MCTS = 5;           // 150 iterations, rollout depth 10, advanced heuristic
+    public static final int PESSIMISTIC_MCTS = 6;
+    public static final int RHEA_DEFAULT = 7;   // Default RHEAParams, as tuned by RunNTBEA
+    public static final int MCTS_DEFAULT = 8;   // Default MCTSParams, as the opponents of EvaluatePommerman
+
+    public static final String[] NAMES = {"DoNothing", "Random", "OSLA", "RuleBased", "RHEA", "MCTS", "pMCTS",
+            "RHEA (default)", "MCTS (default)"};
+
+    public final int type;
+    public final int[] parameters;  // null to keep those of the type
+    public final boolean topLevel;
+
+    public PlayerSpec(int type) {
+        this(type, null, false);
+    }
+
+    /**
+     * @param type - type of player.
+     * @param parameters - values of the parameters to tune, null to keep those of the type.
+     * @param topLevel - true if only top level parameters are given.
+     */
+    public PlayerSpec(int type, int[] parameters, boolean topLevel) {
+        if (type < 0 || type >= NAMES.length) {
+            throw new IllegalArgumentException("Invalid agent type: " + type);
+        }
+        this.type = type;
+        this.parameters = parameters;
+        this.topLevel = topLevel;
+    }
+
+    /**
+     * Creates a player of the given type.
+     * @param type - type of player.
+     * @param seed - random seed of the player.
+     * @param playerID - id of the player (tile type key of its avatar).
+     * @return the player.
+     */
+    public static Player create(int type, long seed, int playerID) {
+        switch (type) {
+            case DO_NOTHING:
+                return new DoNothingPlayer(playerID);
+            case RANDOM:
+                return new RandomPlayer(seed, playerID);
+            case OSLA:
+                return new OSLAPlayer(seed, playerID);
+            case RULE_BASED:
+                return new SimplePlayer(seed, playerID);
+            case RHEA:
+                RHEAParams rheaParams = new RHEAParams();
+                rheaParams.budget_type = Constants.ITERATION_BUDGET;
+                rheaParams.iteration_budget = 200;
+                rheaParams.individual_length = 12;
+                rheaParams.heurisic_type = Constants.CUSTOM_HEURISTIC;
+                return new RHEAPlayer(seed, playerID, rheaParams);
+            case MCTS:
+                MCTSParams mctsParams = new MCTSParams();
+                mctsParams.stop_type = mctsParams.STOP_ITERATIONS;
+                mctsParams.num_iterations = 150;
+                mctsParams.rollout_depth = 10;
+                mctsParams.heuristic_method = mctsParams.ADVANCED_HEURISTIC;
+                return new MCTSPlayer(seed, playerID, mctsParams);
+            case PESSIMISTIC_MCTS:
+                pMCTSParams pMCTSParams = new pMCTSParams();
+//                pMCTSParams.stop_type = pMCTSParams.STOP_TIME;
+//                pMCTSParams.num_time = 70;
+                pMCTSParams.stop_type = pMCTSParams.STOP_ITERATIONS;
+                pMCTSParams.num_iterations = 150;
+                pMCTSParams.search_depth = 1;
+                pMCTSParams.pessimistic_simulation_depth = 12;
+                pMCTSParams.rollout_depth = 10;
+                pMCTSParams.heuristic_method = pMCTSParams.MODIFIED_ADVANCED_HEURISTIC;
+                pMCTSParams.probabilistic_model = false;
+                return new pessimisticMCTSPlayer(seed, playerID, pMCTSParams);
+            case RHEA_DEFAULT:
+                return new RHEAPlayer(seed, playerID, new RHEAParams());
+            case MCTS_DEFAULT:
+                return new MCTSPlayer(seed, playerID);
+            default:
+                throw new IllegalArgumentException("Invalid agent type: " + type);
+        }
+    }
+
+    /**
+     * Creates the player, with its parameters.
+     * @param seed - random seed of the player.
+     * @param playerID - id of the player (tile type key of its avatar).
+     * @return the player.
+     */
+    public Player create(long seed, int playerID) {
+        Player player = create(type, seed, playerID);
+        if (parameters != null) {
+            if (!(player instanceof ParameterizedPlayer)) {
+                throw new IllegalArgumentException(NAMES[type] + " players have no parameters");
+            }
+            ((ParameterizedPlayer) player).translateParameters(parameters, topLevel);
+        }
+        return player;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeByte(type);
+        SearchSpaceUtil.writePoint(out, parameters);
+        out.writeBoolean(topLevel);
+    }
+
+    static PlayerSpec read(DataInput in) throws IOException {
+        int type = in.readByte();
+        int[] parameters = SearchSpaceUtil.readPoint(in);
+        return new PlayerSpec(type, parameters, in.readBoolean());
+    }
+
+    @Override
+    public String toString() {
+        return NAMES[type];
+    }
+}
@@ -0,0 +1,85 @@
+package farm;
+
+import core.Game;
+import players.Player;
+import utils.LevelPool;
+import utils.Types;
+
+import java.io.*;
+import java.util.ArrayList;
+
+/**
+ * Main class of the worker processes of WorkerFarm: plays the games it reads from its standard input, one at a time,
+ * and writes their results to its standard output. Anything else printed goes to the standard error.
+ *
+ * Frames (big-endian) are an int length followed by that many bytes:
+ *   request:  a GameSpec
+ *   response: byte OK and a GameResult, or byte ERROR and a utf message if the game could not be played
+ * The worker exits when its standard input is closed.
+ *
+ * Usage: java farm.Worker [level pool files to load, see LevelPool]
+ */
+public class Worker {
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    public static void main(String[] args) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        // Games and players print, keep the protocol stream for responses
+        System.setOut(System.err);
+        for (String levelPool : args) {
+            LevelPool.load(new File(levelPool));
+        }
+
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(response);
+        while (true) {
+            byte[] frame;
+            try {
+                frame = new byte[in.readInt()];
+            } catch (EOFException e) {
+                return;
+            }
+            in.readFully(frame);
+
+            response.reset();
+            try {
+                GameSpec spec = GameSpec.read(new DataInputStream(new ByteArrayInputStream(frame)));
+                GameResult result = play(spec);
+                payload.writeByte(OK);
+                result.write(payload);
+            } catch (Exception e) {
+                e.printStackTrace();
+                response.reset();
+                payload.writeByte(ERROR);
+                payload.writeUTF(String.valueOf(e));
+            }
+            out.writeInt(response.size());
+            response.writeTo(out);
+            out.flush();
+        }
+    }
+
+    /**
+     * Plays a game.
+     * @param spec - game to play.
+     * @return its result.
+     */
+    static GameResult play(GameSpec spec) {
+        Types.DEFAULT_VISION_RANGE = spec.visionRange;
+        Types.MAX_GAME_TICKS = spec.maxGameTicks;
+
+        Game game = new Game(spec.seed, spec.boardSize, spec.gameMode, "");
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < spec.players.length; i++) {
+            int playerID = Types.TILETYPE.AGENT0.getKey() + i;
+            Player player = spec.players[i].create(spec.playerSeed, playerID);
+            player.reset(spec.playerSeed, playerID);
+            players.add(player);
+        }
+        game.setPlayers(players);
+        Types.RESULT[] results = game.run(false);
+        return new GameResult(results, game.getPlayerOvertimes().clone(), game.getTick());
+    }
+}
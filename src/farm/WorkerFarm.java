@@ -0,0 +1,241 @@
+package farm;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays games in local worker processes (see Worker), each a JVM of its own: games are not limited by the heap and
+ * garbage collector of one JVM, and players that leak memory or crash only take down their worker.
+ *
+ * Games wait in a queue shared by all the workers, each taking the next game as soon as it finishes the previous one,
+ * so faster workers play more games. A worker that dies (or whose pipes break) is replaced by a new one, and the game
+ * it was playing goes back to the queue, up to MAX_ATTEMPTS times. So is a worker that takes longer than GAME_TIMEOUT
+ * to play a game, e.g. stuck in a player: it is killed, and its game goes back to the queue. Games that throw an
+ * exception in the worker are not retried.
+ */
+public class WorkerFarm implements Closeable {
+
+    // Times a game is tried in a worker that crashes before it is given up
+    public static int MAX_ATTEMPTS = 3;
+
+    // Milliseconds a worker may take to play a game before it is killed, 0 for no limit
+    public static long GAME_TIMEOUT = 600000;
+
+    // Kills workers past their deadline, for all farms
+    private static final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "worker-farm-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    static {
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    private final List<String> command = new ArrayList<>();
+    private final LinkedBlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final ArrayList<Thread> feeders = new ArrayList<>();
+    private final AtomicInteger restarts = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    private static class Task {
+        final GameSpec spec;
+        final CompletableFuture<GameResult> result = new CompletableFuture<>();
+        int attempts = 0;
+
+        Task(GameSpec spec) {
+            this.spec = spec;
+        }
+    }
+
+    /**
+     * Starts the workers, with the classpath of this JVM.
+     * @param nWorkers - number of worker processes.
+     * @param jvmOptions - options of the worker JVMs, e.g. "-Xmx2g".
+     */
+    public WorkerFarm(int nWorkers, String... jvmOptions) {
+        this(nWorkers, null, jvmOptions);
+    }
+
+    /**
+     * Starts the workers, with the classpath of this JVM.
+     * @param nWorkers - number of worker processes.
+     * @param levelPool - level pool file each worker loads when it starts (see LevelPool), null for none.
+     * @param jvmOptions - options of the worker JVMs, e.g. "-Xmx2g".
+     */
+    public WorkerFarm(int nWorkers, File levelPool, String... jvmOptions) {
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(Arrays.asList(jvmOptions));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Worker.class.getName());
+        if (levelPool != null) {
+            command.add(levelPool.getAbsolutePath());
+        }
+
+        for (int i = 0; i < nWorkers; i++) {
+            Thread feeder = new Thread(this::feed, "worker-farm-" + i);
+            feeder.setDaemon(true);
+            feeders.add(feeder);
+            feeder.start();
+        }
+    }
+
+    /**
+     * Queues a game.
+     * @param spec - game to play.
+     * @return the result of the game, once played.
+     */
+    public Future<GameResult> submit(GameSpec spec) {
+        if (closed) {
+            throw new IllegalStateException("The worker farm is closed");
+        }
+        Task task = new Task(spec);
+        queue.add(task);
+        return task.result;
+    }
+
+    /**
+     * Plays games, waiting for all of them.
+     * @param specs - games to play.
+     * @return the results of the games, in the same order.
+     */
+    public List<GameResult> run(List<GameSpec> specs) {
+        ArrayList<Future<GameResult>> futures = new ArrayList<>();
+        for (GameSpec spec : specs) {
+            futures.add(submit(spec));
+        }
+        ArrayList<GameResult> results = new ArrayList<>();
+        for (Future<GameResult> future : futures) {
+            results.add(get(future));
+        }
+        return results;
+    }
+
+    /**
+     * Waits for the result of a game.
+     * @param future - as returned by submit.
+     * @return the result of the game.
+     */
+    public static GameResult get(Future<GameResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a game", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Game failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * @return number of workers that had to be replaced.
+     */
+    public int getRestarts() {
+        return restarts.get();
+    }
+
+    /**
+     * Stops the workers. Games still queued are cancelled.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread feeder : feeders) {
+            feeder.interrupt();
+        }
+        Task task;
+        while ((task = queue.poll()) != null) {
+            task.result.cancel(false);
+        }
+    }
+
+    /**
+     * Feeds games to one worker process, replacing it whenever it dies.
+     */
+    private void feed() {
+        Process process = null;
+        DataOutputStream toWorker = null;
+        DataInputStream fromWorker = null;
+        try {
+            while (!closed) {
+                Task task = queue.take();
+                if (task.result.isCancelled()) {
+                    continue;
+                }
+                boolean timedOut = false;
+                try {
+                    if (process == null) {
+                        process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                        toWorker = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+                        fromWorker = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+                    }
+                    ByteArrayOutputStream request = new ByteArrayOutputStream();
+                    task.spec.write(new DataOutputStream(request));
+                    toWorker.writeInt(request.size());
+                    request.writeTo(toWorker);
+                    toWorker.flush();
+
+                    byte[] response;
+                    ScheduledFuture<?> deadline = null;
+                    if (GAME_TIMEOUT > 0) {
+                        Process worker = process;
+                        deadline = watchdog.schedule(worker::destroyForcibly, GAME_TIMEOUT, TimeUnit.MILLISECONDS);
+                    }
+                    try {
+                        response = new byte[fromWorker.readInt()];
+                        fromWorker.readFully(response);
+                    } finally {
+                        timedOut = deadline != null && !deadline.cancel(false);
+                    }
+                    if (timedOut) {
+                        // Killed right after answering: the game is played, but the worker has to be replaced
+                        process = null;
+                        restarts.incrementAndGet();
+                    }
+                    DataInputStream in = new DataInputStream(new ByteArrayInputStream(response));
+                    if (in.readByte() == Worker.OK) {
+                        task.result.complete(GameResult.read(in));
+                    } else {
+                        task.result.completeExceptionally(new RuntimeException(in.readUTF()));
+                    }
+                } catch (IOException e) {
+                    // The worker died or was killed: replace it, and give the game to the next worker free
+                    if (process != null) {
+                        process.destroyForcibly();
+                        process = null;
+                        restarts.incrementAndGet();
+                    }
+                    if (closed) {
+                        task.result.cancel(false);
+                    } else if (++task.attempts < MAX_ATTEMPTS) {
+                        queue.add(task);
+                    } else {
+                        task.result.completeExceptionally(new RuntimeException((timedOut ?
+                                "Workers timed out " : "Workers crashed ") + task.attempts + " times playing the game", e));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        } finally {
+            if (process != null) {
+                try {
+                    // Workers exit once their input is closed
+                    toWorker.close();
+                } catch (IOException e) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package network;
+
+import core.GameState;
+import utils.Types;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Length-prefixed binary protocol over persistent TCP connections, for clients that query many agents quickly.
+ * A connection may carry requests for any number of sessions; they are answered in order. Each connection is served
+ * by its own thread, so different connections never wait for each other.
+ *
+ * Frames (all integers big-endian, strings as in DataOutput.writeUTF):
+ *   request:  int length, byte type, utf session id, payload
+ *   response: int length, byte type, payload
+ * where length counts the bytes after it. Requests and their payloads:
+ *   INIT:        int id, int game_type      -> OK
+ *   ACTION:      UTF-8 JSON observation     -> ACTION with one byte, the key of the action
+ *   EPISODE_END: UTF-8 message              -> OK
+ *   SHUTDOWN:    (nothing), ends the session -> OK
+ * Any failure is answered with ERROR and a utf message, leaving the connection open.
+ */
+public class BinaryServer {
+
+    public static final byte OK = 0;
+    public static final byte INIT = 1;
+    public static final byte ACTION = 2;
+    public static final byte EPISODE_END = 3;
+    public static final byte SHUTDOWN = 4;
+    public static final byte ERROR = -1;
+
+    // Names of the request types in metrics, by type
+    private static final String[] ENDPOINTS = {"binary_unknown", "binary_init", "binary_action", "binary_episode_end",
+            "binary_shutdown"};
+
+    // Largest request accepted, guards against reading garbage as a length
+    public static int MAX_FRAME_SIZE = 1 << 24;
+
+    private final Server server;
+    private final ServerSocket socket;
+    private final ExecutorService connections;
+
+    /**
+     * @param server - server holding the sessions.
+     * @param port - port to listen at.
+     */
+    BinaryServer(Server server, int port) throws IOException {
+        this.server = server;
+        this.socket = new ServerSocket(port);
+        this.connections = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "binary-connection");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts accepting connections, in a background thread.
+     */
+    void start() {
+        Thread acceptor = new Thread(this::accept, "binary-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    void stop() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        connections.shutdownNow();
+    }
+
+    public int getPort() {
+        return socket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!socket.isClosed()) {
+            try {
+                Socket client = socket.accept();
+                client.setTcpNoDelay(true);
+                connections.execute(() -> serve(client));
+            } catch (SocketException e) {
+                // Server socket closed
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until the client closes it.
+     */
+    private void serve(Socket client) {
+        try (Socket c = client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(c.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(c.getOutputStream()))) {
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(response);
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (length < 1 || length > MAX_FRAME_SIZE) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+
+                response.reset();
+                byte type;
+                try {
+                    type = handle(frame, payload);
+                } catch (Exception e) {
+                    response.reset();
+                    payload.writeUTF(String.valueOf(e.getMessage()));
+                    type = ERROR;
+                }
+                out.writeInt(response.size() + 1);
+                out.writeByte(type);
+                response.writeTo(out);
+                // Only flush once the requests already received have been answered
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            if (!socket.isClosed()) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Processes one request.
+     * @param frame - request, without its length.
+     * @param payload - where to write the payload of the response.
+     * @return type of the response.
+     */
+    private byte handle(byte[] frame, DataOutputStream payload) throws IOException {
+        long start = System.nanoTime();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        byte type = in.readByte();
+        Metrics metrics = server.getMetrics();
+        String endpoint = type >= 0 && type < ENDPOINTS.length ? ENDPOINTS[type] : "binary_unknown";
+        try {
+            String sessionId = in.readUTF();
+            int rest = in.available();
+            switch (type) {
+                case INIT:
+                    server.initSession(sessionId, in.readInt(), in.readInt());
+                    break;
+                case ACTION:
+                    Session session = server.getSession(sessionId);
+                    GameState gs = session.decode(new String(frame, frame.length - rest, rest, StandardCharsets.UTF_8));
+                    long parsed = System.nanoTime();
+                    Types.ACTIONS action = session.act(gs);
+                    long decided = System.nanoTime();
+                    payload.writeByte(action.getKey());
+                    metrics.request(endpoint, parsed - start, decided - parsed, System.nanoTime() - decided);
+                    return ACTION;
+                case EPISODE_END:
+                    server.episodeEnd(sessionId, new String(frame, frame.length - rest, rest, StandardCharsets.UTF_8));
+                    break;
+                case SHUTDOWN:
+                    server.endSession(sessionId);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown request type " + type);
+            }
+        } catch (IOException | RuntimeException e) {
+            metrics.error(endpoint);
+            throw e;
+        }
+        metrics.request(endpoint, System.nanoTime() - start);
+        return OK;
+    }
+}
@@ -0,0 +1,87 @@
+package network;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values with a fixed relative precision, in the style of HdrHistogram: values are counted in
+ * buckets that double in width every SUB_BUCKETS buckets, so any value is reported within 1 / SUB_BUCKETS of its
+ * actual magnitude, from 0 up to Long.MAX_VALUE, in constant memory. Recording is lock-free and can be done from any
+ * number of threads; percentiles read while values are recorded may miss the newest ones.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;   // Buckets per power of two, above SUB_BUCKETS
+    private static final int N_BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(N_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Adds a value to the histogram. Negative values are counted as 0.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+            // Retry, another thread raised the maximum
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile - quantile to get, in [0, 1].
+     * @return the highest value that falls in the same bucket as the quantile (capped by the maximum value recorded),
+     * 0 if the histogram is empty.
+     */
+    public long getValueAtQuantile(double quantile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int b = 0; b < N_BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= rank) {
+                return Math.min(highestValue(b), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    // Values below SUB_BUCKETS have a bucket each; above, each power of two is split in SUB_BUCKETS buckets
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
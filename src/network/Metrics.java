@@ -0,0 +1,166 @@
+package network;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the agent server, served at "/metrics" in the Prometheus text format:
+ * - requests and errors, per endpoint.
+ * - latency per endpoint and phase: parse (reading and decoding the request), think (the agent deciding),
+ *   serialise (writing the response) and total.
+ * - per session: iterations and rollouts of the agent's searches, decisions and overtimes (decisions taking longer
+ *   than Types.DECISION_TIME_LIMIT).
+ * - GC pauses, per collector.
+ * Latencies are kept in microseconds and reported in seconds, as Prometheus expects.
+ */
+public class Metrics {
+
+    public static final String PARSE = "parse";
+    public static final String THINK = "think";
+    public static final String SERIALISE = "serialise";
+    public static final String TOTAL = "total";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999, 1};
+
+    // By endpoint, sorted so the output is stable
+    private final ConcurrentSkipListMap<String, LongAdder> requests = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, LongAdder> errors = new ConcurrentSkipListMap<>();
+    // By endpoint and phase, as labels
+    private final ConcurrentSkipListMap<String, Histogram> latencies = new ConcurrentSkipListMap<>();
+    // By collector name, in milliseconds
+    private final ConcurrentHashMap<String, Histogram> gcPauses = new ConcurrentHashMap<>();
+
+    public Metrics() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter)) continue;
+            ((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    return;
+                }
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                gcPauses.computeIfAbsent(info.getGcName(), k -> new Histogram()).record(info.getGcInfo().getDuration());
+            }, null, null);
+        }
+    }
+
+    /**
+     * Counts a request that was served.
+     * @param endpoint - endpoint requested.
+     * @param parse - nanoseconds reading and decoding the request.
+     * @param think - nanoseconds the agent took to decide.
+     * @param serialise - nanoseconds writing the response.
+     */
+    public void request(String endpoint, long parse, long think, long serialise) {
+        request(endpoint, parse + think + serialise);
+        latency(endpoint, PARSE).record(parse / 1000);
+        latency(endpoint, THINK).record(think / 1000);
+        latency(endpoint, SERIALISE).record(serialise / 1000);
+    }
+
+    /**
+     * Counts a request that was served, without splitting its time in phases.
+     * @param endpoint - endpoint requested.
+     * @param total - nanoseconds taken to serve it.
+     */
+    public void request(String endpoint, long total) {
+        requests.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+        latency(endpoint, TOTAL).record(total / 1000);
+    }
+
+    /**
+     * Counts a request that failed.
+     */
+    public void error(String endpoint) {
+        requests.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+        errors.computeIfAbsent(endpoint, k -> new LongAdder()).increment();
+    }
+
+    private Histogram latency(String endpoint, String phase) {
+        return latencies.computeIfAbsent("endpoint=\"" + endpoint + "\",phase=\"" + phase + "\"",
+                k -> new Histogram());
+    }
+
+    /**
+     * @return all metrics, in the Prometheus text format.
+     */
+    public String toPrometheus(Collection<Session> sessions) {
+        StringBuilder sb = new StringBuilder();
+        counter(sb, "pommerman_requests_total", "Requests served, by endpoint.", "endpoint", requests);
+        counter(sb, "pommerman_request_errors_total", "Requests that failed, by endpoint.", "endpoint", errors);
+        header(sb, "pommerman_request_latency_seconds", "summary", "Request latency, by endpoint and phase.");
+        for (Map.Entry<String, Histogram> e : latencies.entrySet()) {
+            summary(sb, "pommerman_request_latency_seconds", e.getKey(), e.getValue(), 1e-6);
+        }
+
+        TreeMap<String, Session> sorted = new TreeMap<>();
+        for (Session session : sessions) {
+            sorted.put(session.getSessionId(), session);
+        }
+        header(sb, "pommerman_sessions", "gauge", "Sessions open.");
+        sb.append("pommerman_sessions ").append(sorted.size()).append('\n');
+        header(sb, "pommerman_decisions_total", "counter", "Decisions made, by session.");
+        for (Session s : sorted.values()) {
+            sb.append("pommerman_decisions_total{").append(label(s)).append("} ").append(s.getDecisions()).append('\n');
+        }
+        header(sb, "pommerman_overtimes_total", "counter", "Decisions over the time limit, by session.");
+        for (Session s : sorted.values()) {
+            sb.append("pommerman_overtimes_total{").append(label(s)).append("} ").append(s.getOvertimes()).append('\n');
+        }
+        header(sb, "pommerman_search_iterations", "summary", "Search iterations per decision, by session.");
+        for (Session s : sorted.values()) {
+            summary(sb, "pommerman_search_iterations", label(s), s.getIterations(), 1);
+        }
+        header(sb, "pommerman_search_rollouts", "summary", "Search rollouts per decision, by session.");
+        for (Session s : sorted.values()) {
+            summary(sb, "pommerman_search_rollouts", label(s), s.getRollouts(), 1);
+        }
+
+        header(sb, "jvm_gc_pause_seconds", "summary", "GC pauses, by collector.");
+        for (Map.Entry<String, Histogram> e : new TreeMap<>(gcPauses).entrySet()) {
+            summary(sb, "jvm_gc_pause_seconds", "gc=\"" + escape(e.getKey()) + "\"", e.getValue(), 1e-3);
+        }
+        return sb.toString();
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, String label,
+                                Map<String, LongAdder> counters) {
+        header(sb, name, "counter", help);
+        for (Map.Entry<String, LongAdder> e : counters.entrySet()) {
+            sb.append(name).append('{').append(label).append("=\"").append(escape(e.getKey())).append("\"} ")
+                    .append(e.getValue().sum()).append('\n');
+        }
+    }
+
+    private static void summary(StringBuilder sb, String name, String labels, Histogram h, double scale) {
+        for (double q : QUANTILES) {
+            sb.append(name).append('{').append(labels).append(",quantile=\"").append(q).append("\"} ")
+                    .append(h.getValueAtQuantile(q) * scale).append('\n');
+        }
+        sb.append(name).append("_sum{").append(labels).append("} ").append(h.getSum() * scale).append('\n');
+        sb.append(name).append("_count{").append(labels).append("} ").append(h.getCount()).append('\n');
+    }
+
+    private static String label(Session s) {
+        return "session=\"" + escape(s.getSessionId()) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -4,121 +4,332 @@ import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-import com.sun.net.httpserver.HttpContext;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 import core.GameState;
-import players.Player;
-import players.mcts.MCTSParams;
-import players.mcts.MCTSPlayer;
 import utils.Types;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
 
+/**
+ * Serves agents to remote (python) clients. Hosts any number of concurrent sessions, each with its own agent, over
+ * HTTP (as pommerman's HttpAgent expects) and over the binary protocol of BinaryServer.
+ *
+ * HTTP clients choose their session with a "Session-Id" header or a "session" query parameter; requests without
+ * either use the "default" session, so a single pommerman agent works unchanged. Several sessions can be stepped with
+ * one request to "/actions", whose body maps session ids to observations, each as sent to "/action":
+ *   {"session1": {"obs": ..., "action_space": 6}, "session2": {...}, ...}
+ * The agents decide in parallel, and the response maps the same session ids to their actions, in the same order:
+ *   {"actions": {"session1": 2, "session2": 0, ...}}
+ * Sessions whose agent failed get action -1 and their error in "errors", a map from session id to message.
+ *
+ * Request counts, latencies, search statistics and GC pauses are served at "/metrics", see Metrics.
+ *
+ * Before accepting connections the server warms up the JIT, see WarmUp.
+ *
+ * Usage: java network.Server [http port = 12345, -1 to only warm up] [binary port = 12346, -1 for none]
+ *                            [http threads = 4 x processors] [max warm-up games = 10, 0 for none]
+ */
 public class Server {
-    static int id = -1;
-    static int game_type = -1;
-    static Player agent;
+    public static final String DEFAULT_SESSION = "default";
+    public static final String SESSION_HEADER = "Session-Id";
+    public static final String SESSION_PARAMETER = "session";
 
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Metrics metrics = new Metrics();
+    private HttpServer http;
+    private ExecutorService httpExecutor;
+    private ExecutorService batchExecutor;    // Agents deciding the actions of batched requests
+    private BinaryServer binary;
 
     public static void main(String[] args) throws IOException {
-        // todo remove static keyword and maybe from this out from the main function
-        HttpServer server = HttpServer.create(new InetSocketAddress(12345), 0);
-        HttpContext context = server.createContext("/");
-        HttpContext actionContext = server.createContext("/action");
-        HttpContext initContext = server.createContext("/init_agent");
-        HttpContext episodeEndContext = server.createContext("/episode_end");
-        HttpContext shutdownContext = server.createContext("/shutdown");
-        context.setHandler(Server::handleRequest);
-        actionContext.setHandler(Server::getAction);
-        initContext.setHandler(Server::initAgent);
-        episodeEndContext.setHandler(Server::episodeEnd);
-        shutdownContext.setHandler(Server::shutdown);
-        server.start();
-    }
-
-    private static void handleRequest(HttpExchange exchange) throws IOException {
-        // httpagent calls this first, maybe initialize agents here?
-        System.out.println("default");
-        String response = "";
-        exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
-    }
-
-    private static void getAction(HttpExchange exchange) throws IOException {
-        String state = getMessageBody(exchange);
-        GameState gs = new GameState(state);
+        int httpPort = args.length > 0 ? Integer.parseInt(args[0]) : 12345;
+        int binaryPort = args.length > 1 ? Integer.parseInt(args[1]) : 12346;
+        int nThreads = args.length > 2 ? Integer.parseInt(args[2]) : 4 * Runtime.getRuntime().availableProcessors();
+        int warmUpGames = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        WarmUp.run(warmUpGames);
+        if (httpPort < 0) {
+            return;
+        }
+
+        Server server = new Server();
+        server.start(httpPort, binaryPort, nThreads);
+        System.out.println("Serving HTTP at port " + httpPort
+                + (binaryPort >= 0 ? ", binary protocol at port " + binaryPort : ""));
+    }
+
+    /**
+     * Starts serving.
+     * @param httpPort - port for HTTP requests.
+     * @param binaryPort - port for the binary protocol, negative for none.
+     * @param nThreads - threads handling HTTP requests; binary connections have a thread each.
+     */
+    public void start(int httpPort, int binaryPort, int nThreads) throws IOException {
+        http = HttpServer.create(new InetSocketAddress(httpPort), 0);
+        http.createContext("/", this::handleRequest);
+        http.createContext("/action", this::getAction);
+        http.createContext("/actions", this::getActions);
+        http.createContext("/init_agent", this::initAgent);
+        http.createContext("/episode_end", this::episodeEnd);
+        http.createContext("/shutdown", this::shutdown);
+        http.createContext("/metrics", this::getMetrics);
+        httpExecutor = Executors.newFixedThreadPool(nThreads);
+        http.setExecutor(httpExecutor);
+        batchExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        http.start();
+
+        if (binaryPort >= 0) {
+            binary = new BinaryServer(this, binaryPort);
+            binary.start();
+        }
+    }
+
+    /**
+     * Stops serving, dropping all sessions.
+     */
+    public void stop() {
+        if (http != null) {
+            http.stop(0);
+            httpExecutor.shutdown();
+            batchExecutor.shutdown();
+        }
+        if (binary != null) {
+            binary.stop();
+        }
+        sessions.clear();
+    }
+
+    public int getHttpPort() {
+        return http.getAddress().getPort();
+    }
+
+    public int getBinaryPort() {
+        return binary == null ? -1 : binary.getPort();
+    }
+
+    /**
+     * Creates a session, replacing any other with the same key.
+     * @param sessionId - key of the session.
+     * @param id - index of the agent as sent by pommerman, from 0.
+     * @param gameType - game type as sent by pommerman.
+     * @return the new session.
+     */
+    public Session initSession(String sessionId, int id, int gameType) {
+        Session session = new Session(sessionId, id, gameType);
+        sessions.put(sessionId, session);
+        System.out.println("initAgent: " + session);
+        return session;
+    }
+
+    /**
+     * @param sessionId - key of the session.
+     * @return the session, which must have been initialised.
+     */
+    public Session getSession(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            throw new IllegalStateException("Session " + sessionId + " has not been initialised");
+        }
+        return session;
+    }
+
+    public void episodeEnd(String sessionId, String message) {
+        System.out.println("episodeEnd: session " + sessionId + ": " + message);
+    }
+
+    public void endSession(String sessionId) {
+        Session session = sessions.remove(sessionId);
+        System.out.println("shutdown: " + (session == null ? "session " + sessionId : session));
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public int getNumSessions() {
+        return sessions.size();
+    }
+
+    private void handleRequest(HttpExchange exchange) throws IOException {
+        // httpagent calls this first
+        getMessageBody(exchange);
+        sendResponse(exchange, 200, "");
+    }
+
+    private void getAction(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
         try {
-            Types.ACTIONS action = agent.act(gs);
-            //System.out.println("selected action = " + action);
-
-            String response = "{\"action\": " + action.getKey() + "}";
-            exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-            OutputStream os = exchange.getResponseBody();
-            os.write(response.getBytes());
-            os.close();
-        } catch (Exception e){
+            String state = getMessageBody(exchange);
+            Session session = getSession(getSessionId(exchange));
+            GameState gs = session.decode(state);
+            long parsed = System.nanoTime();
+            Types.ACTIONS action = session.act(gs);
+            long decided = System.nanoTime();
+            sendResponse(exchange, 200, "{\"action\": " + action.getKey() + "}");
+            metrics.request("action", parsed - start, decided - parsed, System.nanoTime() - decided);
+        } catch (Exception e) {
             e.printStackTrace();
+            metrics.error("action");
+            sendResponse(exchange, 500, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void getActions(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        ArrayList<String> sessionIds = new ArrayList<>();
+        ArrayList<Future<Types.ACTIONS>> actions = new ArrayList<>();
+        try {
+            // Observations are decoded as they are read, each agent starts deciding as soon as its own is
+            JsonReader in = new JsonReader(new StringReader(getMessageBody(exchange)));
+            in.setLenient(true);
+            in.beginObject();
+            while (in.hasNext()) {
+                String sessionId = in.nextName();
+                Session session = getSession(sessionId);
+                GameState gs = session.decode(in);
+                sessionIds.add(sessionId);
+                actions.add(batchExecutor.submit(() -> session.act(gs)));
+            }
+            in.endObject();
+        } catch (Exception e) {
+            for (Future<Types.ACTIONS> action : actions) {
+                action.cancel(true);
+            }
+            metrics.error("actions");
+            sendResponse(exchange, 400, String.valueOf(e.getMessage()));
+            return;
+        }
+        long parsed = System.nanoTime();
+
+        StringWriter response = new StringWriter();
+        JsonWriter out = new JsonWriter(response);
+        LinkedHashMap<String, String> errors = new LinkedHashMap<>();
+        int[] keys = new int[actions.size()];
+        for (int i = 0; i < actions.size(); i++) {
+            keys[i] = -1;
+            try {
+                keys[i] = actions.get(i).get().getKey();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                errors.put(sessionIds.get(i), "interrupted");
+            } catch (ExecutionException e) {
+                e.getCause().printStackTrace();
+                errors.put(sessionIds.get(i), String.valueOf(e.getCause().getMessage()));
+            }
         }
+        long decided = System.nanoTime();
 
+        out.beginObject().name("actions").beginObject();
+        for (int i = 0; i < keys.length; i++) {
+            out.name(sessionIds.get(i)).value(keys[i]);
+        }
+        out.endObject();
+        if (!errors.isEmpty()) {
+            out.name("errors").beginObject();
+            for (Map.Entry<String, String> error : errors.entrySet()) {
+                out.name(error.getKey()).value(error.getValue());
+            }
+            out.endObject();
+        }
+        out.endObject();
+        sendResponse(exchange, 200, response.toString());
+        metrics.request("actions", parsed - start, decided - parsed, System.nanoTime() - decided);
     }
 
-    private static void initAgent(HttpExchange exchange) throws IOException {
+    private void initAgent(HttpExchange exchange) throws IOException {
         // httpagent calls this second
-        System.out.println("initAgent");
-
-        Gson gson = new Gson();
-        String value = getMessageBody(exchange);
-        System.out.println(value);
-        JsonParser parser = new JsonParser();
-        JsonElement e = parser.parse(value);
-        JsonObject obj = e.getAsJsonObject();
-        id = gson.fromJson(obj.get("id"), int.class) + 10; // todo pommerman agent starts from 0
-        game_type = gson.fromJson(obj.get("game_type"), int.class);
-        agent = new MCTSPlayer(0, id, new MCTSParams());
-
-        System.out.println("id = " + id);
-        System.out.println("game_type = " + game_type);
-
-        String response = "";
-        exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
-    }
-
-    private static void episodeEnd(HttpExchange exchange) throws IOException {
-        System.out.println("episodeend");
-        String message = getMessageBody(exchange);
-        System.out.println(message);
-        String response = "";
-        exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
-    }
-
-    private static void shutdown(HttpExchange exchange) throws IOException {
-        System.out.println("shutdown");
-        String message = getMessageBody(exchange);
-        System.out.println(message);
-        String response = "";
-        exchange.sendResponseHeaders(200, response.getBytes().length);//response code and length
-        OutputStream os = exchange.getResponseBody();
-        os.write(response.getBytes());
-        os.close();
+        long start = System.nanoTime();
+        try {
+            Gson gson = new Gson();
+            JsonObject obj = new JsonParser().parse(getMessageBody(exchange)).getAsJsonObject();
+            int id = gson.fromJson(obj.get("id"), int.class);
+            int gameType = gson.fromJson(obj.get("game_type"), int.class);
+            initSession(getSessionId(exchange), id, gameType);
+            sendResponse(exchange, 200, "");
+            metrics.request("init_agent", System.nanoTime() - start);
+        } catch (Exception e) {
+            e.printStackTrace();
+            metrics.error("init_agent");
+            sendResponse(exchange, 400, String.valueOf(e.getMessage()));
+        }
+    }
+
+    private void episodeEnd(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        episodeEnd(getSessionId(exchange), getMessageBody(exchange));
+        sendResponse(exchange, 200, "");
+        metrics.request("episode_end", System.nanoTime() - start);
+    }
+
+    private void shutdown(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        getMessageBody(exchange);
+        endSession(getSessionId(exchange));
+        sendResponse(exchange, 200, "");
+        metrics.request("shutdown", System.nanoTime() - start);
+    }
+
+    private void getMetrics(HttpExchange exchange) throws IOException {
+        getMessageBody(exchange);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        sendResponse(exchange, 200, metrics.toPrometheus(sessions.values()));
     }
 
+    /**
+     * @return the session requested: from the session header, the session query parameter or the default one.
+     */
+    static String getSessionId(HttpExchange exchange) throws IOException {
+        String header = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        if (header != null) {
+            return header;
+        }
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int eq = parameter.indexOf('=');
+                if (eq > 0 && parameter.substring(0, eq).equals(SESSION_PARAMETER)) {
+                    return URLDecoder.decode(parameter.substring(eq + 1), "UTF-8");
+                }
+            }
+        }
+        return DEFAULT_SESSION;
+    }
+
+    /**
+     * Reads the whole body of the request, which may span several lines.
+     */
     public static String getMessageBody(HttpExchange exchange) throws IOException {
-        InputStreamReader isr =  new InputStreamReader(exchange.getRequestBody(),"utf-8");
-        BufferedReader br = new BufferedReader(isr);
-        return br.readLine();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                body.write(buffer, 0, n);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
     }
 
+    static void sendResponse(HttpExchange exchange, int code, String response) throws IOException {
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length); //response code and length
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
 }
@@ -0,0 +1,130 @@
+package network;
+
+import com.google.gson.stream.JsonReader;
+import core.GameState;
+import core.ObservationDecoder;
+import players.Player;
+import players.mcts.MCTSParams;
+import players.mcts.MCTSPlayer;
+import utils.Types;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One remote agent: the player that decides its actions and the game it is playing. Requests for the same session
+ * are served one at a time; different sessions run concurrently.
+ */
+public class Session {
+    private final String sessionId;
+    private final int id;           // Player id (tile type key of its avatar)
+    private final int gameType;     // Game type as sent by the client (1: FFA, 2: TEAM, 3: TEAM_RADIO)
+    private final Player agent;
+    private final ObservationDecoder decoder = new ObservationDecoder();
+
+    // Decisions made, and made over the time limit
+    private final LongAdder decisions = new LongAdder();
+    private final LongAdder overtimes = new LongAdder();
+    private final Histogram iterations = new Histogram();
+    private final Histogram rollouts = new Histogram();
+
+    /**
+     * @param sessionId - key of the session in the server.
+     * @param id - index of the agent as sent by pommerman, from 0.
+     * @param gameType - game type as sent by pommerman.
+     */
+    Session(String sessionId, int id, int gameType) {
+        this.sessionId = sessionId;
+        this.id = id + Types.TILETYPE.AGENT0.getKey(); // pommerman agents start from 0
+        this.gameType = gameType;
+        this.agent = createAgent(0, this.id);
+    }
+
+    /**
+     * Creates the agent that plays for sessions.
+     * @param seed - random seed of the agent.
+     * @param id - player id (tile type key of its avatar).
+     * @return the agent.
+     */
+    static Player createAgent(long seed, int id) {
+        return new MCTSPlayer(seed, id, new MCTSParams());
+    }
+
+    /**
+     * Decides the action of this session's agent, recording the effort of its search.
+     * @param gs - observation of the agent, from decode.
+     * @return the action chosen.
+     */
+    public synchronized Types.ACTIONS act(GameState gs) {
+        long start = System.nanoTime();
+        Types.ACTIONS action = agent.act(gs);
+        decisions.increment();
+        if (System.nanoTime() - start > Types.DECISION_TIME_LIMIT * 1000000L) {
+            overtimes.increment();
+        }
+        if (agent.getLastIterations() >= 0) {
+            iterations.record(agent.getLastIterations());
+        }
+        if (agent.getLastRollouts() >= 0) {
+            rollouts.record(agent.getLastRollouts());
+        }
+        return action;
+    }
+
+    /**
+     * Decodes an observation of this session's agent.
+     * @param state - observation of the agent, in the JSON format sent by pommerman.
+     * @return the game state observed.
+     */
+    public synchronized GameState decode(String state) {
+        return decoder.decode(state);
+    }
+
+    /**
+     * Decodes an observation of this session's agent, as part of a larger request.
+     * @param in - reader positioned at the observation, in the JSON format sent by pommerman.
+     * @return the game state observed.
+     */
+    public synchronized GameState decode(JsonReader in) throws IOException {
+        return decoder.decode(in);
+    }
+
+    public long getDecisions() {
+        return decisions.sum();
+    }
+
+    public long getOvertimes() {
+        return overtimes.sum();
+    }
+
+    /**
+     * @return iterations of the agent's search per decision, empty if the agent doesn't search.
+     */
+    public Histogram getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return rollouts of the agent's search per decision, empty if the agent doesn't search.
+     */
+    public Histogram getRollouts() {
+        return rollouts;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getGameType() {
+        return gameType;
+    }
+
+    @Override
+    public String toString() {
+        return "session " + sessionId + " (id = " + id + ", game_type = " + gameType + ")";
+    }
+}
@@ -0,0 +1,79 @@
+package network;
+
+import core.Game;
+import players.Player;
+import utils.Types;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * Warms up the JIT compiler before the server accepts connections, so agents search at full speed from the first
+ * tick of the first game they're asked to play. Plays short headless games between the agents sessions use, until the
+ * time the JIT spends compiling during a game becomes a small fraction of it.
+ *
+ * To also start faster, the classes loaded by the warm-up can be stored in an AppCDS archive (JDK 13 or later):
+ *   java -XX:ArchiveClassesAtExit=server.jsa network.Server -1 -1 [warm-up games]
+ *   java -XX:SharedArchiveFile=server.jsa network.Server [http port] [binary port] [threads] [warm-up games]
+ * The first command only warms up and exits, writing the archive; the second starts the server from it. Both need the
+ * same class path, made only of jar files.
+ */
+public class WarmUp {
+
+    public static int GAME_TICKS = 50;                  // Ticks per warm-up game
+    public static double STABLE_COMPILATION = 0.02;     // Fraction of a game's time spent compiling considered stable
+    public static int MIN_GAMES = 2;                    // Games played even if compilation looks stable before
+
+    /**
+     * Plays warm-up games until compilation stabilises.
+     * @param maxGames - maximum number of games to play.
+     * @return number of games played.
+     */
+    public static int run(int maxGames) {
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean timed = jit != null && jit.isCompilationTimeMonitoringSupported();
+
+        // Server agents see partially observable states, see GameState(String)
+        int maxGameTicks = Types.MAX_GAME_TICKS;
+        int visionRange = Types.DEFAULT_VISION_RANGE;
+        Types.MAX_GAME_TICKS = GAME_TICKS;
+        Types.DEFAULT_VISION_RANGE = 4;
+        int g = 0;
+        try {
+            while (g < maxGames) {
+                long compilationStart = timed ? jit.getTotalCompilationTime() : 0;
+                long start = System.currentTimeMillis();
+
+                Types.GAME_MODE mode = g % 2 == 0 ? Types.GAME_MODE.FFA : Types.GAME_MODE.TEAM;
+                Game game = new Game(g, Types.BOARD_SIZE, mode, "warmup");
+                ArrayList<Player> players = new ArrayList<>();
+                for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                    players.add(Session.createAgent(g * Types.NUM_PLAYERS + i, Types.TILETYPE.AGENT0.getKey() + i));
+                }
+                game.setPlayers(players);
+                game.run(false);
+                g++;
+
+                long time = Math.max(1, System.currentTimeMillis() - start);
+                if (!timed) {
+                    System.out.println("Warm-up game " + g + ": " + time + " ms");
+                    continue;
+                }
+                long compilation = jit.getTotalCompilationTime() - compilationStart;
+                System.out.println("Warm-up game " + g + ": " + time + " ms, " + compilation + " ms compiling");
+                if (g >= MIN_GAMES && compilation < STABLE_COMPILATION * time) {
+                    System.out.println("Compilation stable after " + g + " warm-up games");
+                    return g;
+                }
+            }
+            if (timed) {
+                System.out.println("Compilation not yet stable after " + g + " warm-up games");
+            }
+        } finally {
+            Types.MAX_GAME_TICKS = maxGameTicks;
+            Types.DEFAULT_VISION_RANGE = visionRange;
+        }
+        return g;
+    }
+}
@@ -59,6 +59,23 @@ public abstract class Player {
 
     public abstract Player copy();
 
+    /**
+     * Search effort of the last decision, for players that search.
+     * @return number of iterations of the search in the last act call, -1 if this player doesn't search.
+     */
+    public int getLastIterations() {
+        return -1;
+    }
+
+    /**
+     * Search effort of the last decision, for players that search.
+     * @return number of rollouts (simulations with the forward model) in the last act call, -1 if this player
+     * doesn't search.
+     */
+    public int getLastRollouts() {
+        return -1;
+    }
+
     public void reset(long seed, int playerID) {
         this.playerID = playerID;
         this.seed = seed;
@@ -22,6 +22,8 @@ public class SimpleEvoAgent extends Player {
     public int nEvals = 120;
     public boolean useShiftBuffer = true;
     public Double discountFactor = 0.99;
+    // Re-roll the current solution at every evaluation. Can be turned off if the opponent model is deterministic.
+    public boolean reevaluateIncumbent = true;
 
 
     public SimpleEvoAgent(long seed, int id) {
@@ -59,6 +61,10 @@ public class SimpleEvoAgent extends Player {
 
     int[] solution;
 
+    // States reached by the actions of the current solution when it was last rolled out, null if unknown.
+    // Used to carry its evaluation over to the next tick when the shift buffer is on.
+    private GameState[] trajectory;
+
     Player opponent = new DoNothingPlayer(0);
 
     public SimpleEvoAgent setUseShiftBuffer(boolean useShiftBuffer) {
@@ -82,15 +88,22 @@ public class SimpleEvoAgent extends Player {
         } else {
            // System.out.println("New random solution with nActions = " + gameState.nActions());
             solution = randomPoint(gameState.nActions());
+            trajectory = null;
         }
 
+        // evaluate the current one, reusing the states predicted last tick if they match what happened
+        double curScore = evalShifted(gameState, solution, playerId);
+
         for (int i = 0; i < nEvals; i++) {
-            // evaluate the current one
             int[] mut = mutate(solution, mutProb, gameState.nActions());
-            double curScore = evalSeq(gameState.copy(), solution, playerId);
+            if (reevaluateIncumbent && i > 0) {
+                curScore = evalSeq(gameState.copy(), solution, playerId);
+            }
             double mutScore = evalSeq(gameState.copy(), mut, playerId);
             if (mutScore >= curScore) {
                 solution = mut;
+                curScore = mutScore;
+                trajectory = null;
                 // System.out.println(mutScore + " : " + Arrays.toString(solution));
             }
         }
@@ -101,6 +114,52 @@ public class SimpleEvoAgent extends Player {
         return tmp;
     }
 
+    /**
+     * Evaluates the solution at the start of a tick and records the states it passes through. If the first state
+     * predicted last tick is the state observed now, the rest of that trajectory is still valid for the shifted
+     * solution and only its new last action has to be rolled. Without a shift buffer there is nothing to reuse the
+     * states for, so the solution is evaluated as any other.
+     */
+    private double evalShifted(GameState gameState, int[] seq, int playerId) {
+        if (!useShiftBuffer) {
+            return evalSeq(gameState.copy(), seq, playerId);
+        }
+        GameState[] states = new GameState[seq.length];
+        if (trajectory != null && seq.length > 1 && trajectory[0].equals(gameState)) {
+            System.arraycopy(trajectory, 1, states, 0, seq.length - 1);
+            GameState last = states[seq.length - 2].copy();
+            last.next(actAllPlayers(last, seq[seq.length - 1], playerId));
+            states[seq.length - 1] = last;
+        } else {
+            GameState state = gameState.copy();
+            for (int i = 0; i < seq.length; i++) {
+                state.next(actAllPlayers(state, seq[i], playerId));
+                states[i] = state.copy();
+            }
+        }
+        trajectory = states;
+        return scoreTrajectory(gameState, states);
+    }
+
+    /**
+     * Scores a sequence from the states it passes through, as evalSeq does while rolling.
+     */
+    private double scoreTrajectory(GameState gameState, GameState[] states) {
+        double currentScore = rootStateHeuristic.evaluateState(gameState);
+        if (discountFactor == null) {
+            return rootStateHeuristic.evaluateState(states[states.length - 1]) - currentScore;
+        }
+        double delta = 0;
+        double discount = 1;
+        for (GameState state : states) {
+            double nextScore = rootStateHeuristic.evaluateState(state);
+            delta += (nextScore - currentScore) * discount;
+            currentScore = nextScore;
+            discount *= discountFactor;
+        }
+        return delta;
+    }
+
 
     private int[] mutate(int[] v, double mutProb, int nActions) {
 
@@ -1,7 +1,6 @@
 package players.heuristics;
 
 import core.GameState;
-import objects.Bomb;
 import objects.GameObject;
 import utils.Types;
 import utils.Vector2d;
@@ -13,15 +12,24 @@ import static java.lang.Math.min;
 import static utils.Utils.*;
 import static utils.Utils.positionIsPassable;
 
+/**
+ * Scores a state relative to the root of the search. The features of the root are extracted once, when the heuristic
+ * is created for a decision; the features of the states evaluated are extracted into one BoardStats reused for all of
+ * them, and only those with a non-zero factor are computed. States won or lost are scored without any feature.
+ */
 public class AdvancedHeuristic extends StateHeuristic {
 
     private BoardStats rootBoardStats;
-    private Random random;
+    private BoardStats leafBoardStats;
 
+    /**
+     * @param root - state at the root of the search.
+     * @param random - not used, the features of a state don't depend on random numbers.
+     */
     public AdvancedHeuristic(GameState root, Random random) {
-        this.random = random;
-        rootBoardStats = new BoardStats(root, this.random);
-
+        rootBoardStats = new BoardStats();
+        rootBoardStats.extract(root);
+        leafBoardStats = new BoardStats();
     }
 
     @Override
@@ -29,20 +37,20 @@ public class AdvancedHeuristic extends StateHeuristic {
         boolean gameOver = gs.isTerminal();
         Types.RESULT win = gs.winner();
 
+        if(gameOver && win == Types.RESULT.LOSS)
+            return -1;
+
+        if(gameOver && win == Types.RESULT.WIN)
+            return 1;
+
         // Compute a score relative to the root's state.
-        BoardStats lastBoardState = new BoardStats(gs, this.random);
-        double rawScore = rootBoardStats.score(lastBoardState);
+        leafBoardStats.extract(gs);
+        double rawScore = rootBoardStats.score(leafBoardStats);
 
         // TODO: Should we reserve -1 and 1 to LOSS and WIN, and shrink rawScore to be in [-0.5, 0.5]?
         // rawScore is in [-1, 1], move it to [-0.5, 0.5]
         rawScore /= 2.0;
 
-        if(gameOver && win == Types.RESULT.LOSS)
-            rawScore = -1;
-
-        if(gameOver && win == Types.RESULT.WIN)
-            rawScore = 1;
-
         return rawScore;
     }
 
@@ -55,6 +63,12 @@ public class AdvancedHeuristic extends StateHeuristic {
         static double maxWoods = -1;
         static double maxBlastStrength = 10;
 
+        // Depth of the search for distances
+        private static final int DEPTH = 10;
+        // Distances of the positions out of the search, and of those not reached
+        private static final int NOT_SEARCHED = -1;
+        private static final int NOT_REACHED = 100000;  // TODO: Inf
+
         // 0.4
         double FACTOR_SAFE_DIRECTIONS = 0.2;
         double FACTOR_BOMB_DIRECTIONS = 0.2;
@@ -74,41 +88,46 @@ public class AdvancedHeuristic extends StateHeuristic {
         double FACTOR_WOODS = 0.05;
 
         // State information
-        private Random random;
-
         private Vector2d myPosition;
         private Types.TILETYPE[][] board;
-        private ArrayList<Bomb> bombs;
+
+        // Bombs on the board: position and blast strength
+        private int nBombs;
+        private int[] bombX = new int[16], bombY = new int[16], bombBlastStrength = new int[16];
+
+        // Agent types of the enemies on the board (by ordinal), those are not passable
+        private boolean[] isEnemy = new boolean[Types.TILETYPE.values().length];
         private ArrayList<GameObject> enemies;
 
-        private HashMap<Types.TILETYPE, ArrayList<Vector2d>> items;
-        private HashMap<Vector2d, Integer> dist;
-        private HashMap<Vector2d, Vector2d> prev;
+        // Distances from the agent, by position x * size + y, and the queue of the search
+        private int[] dist = new int[0];
+        private int[] queue = new int[0];
+        private boolean distComputed;
 
-        // Extra state information (to be used as heuristics):
+        // Extra state information (to be used as heuristics), -1 until computed:
 
-        // Directions in range of a bomb
-        private HashMap<Types.DIRECTIONS, Integer> directionsInRangeOfBomb = null;
-        private Integer n_directionsInRangeOfBomb = null;
+        // Largest blast strength of the bombs in range, by direction (ordinal), -1 if none in range
+        private int[] directionsInRangeOfBomb = new int[Types.DIRECTIONS.values().length];
+        private int n_directionsInRangeOfBomb;
 
         // Safe directions
-        private ArrayList<Types.DIRECTIONS> safeDirections = null;
-        private Integer n_safeDirections = null;
-
-        // Adjacency to an enemy
-        private Integer isAdjacentEnemy = null;
+        private int n_safeDirections;
 
         // Distance to nearest enemy
-        private Integer distanceToNearestEnemy = null;
+        private int distanceToNearestEnemy;
 
         // Distance to nearest power-up, up to 10 (default: 1000 as max distance)
-        private Integer distanceToNearestPowerUp = null;
+        private int distanceToNearestPowerUp;
 
-        BoardStats(GameState gs, Random random) {
-
-            this.random = random;
+        /**
+         * Extracts the features of a state, replacing those of the state extracted before. Only the counts are
+         * computed here, the features that need the distances from the agent are computed when first asked for.
+         * @param gs - state to extract the features from.
+         */
+        void extract(GameState gs) {
 
-            nEnemies = gs.getAliveEnemyIDs().size();
+            ArrayList<Types.TILETYPE> enemyIDs = gs.getAliveEnemyIDs();
+            nEnemies = enemyIDs.size();
 
             // Init weights based on game mode
             if (gs.getGameMode() == Types.GAME_MODE.FFA) {
@@ -125,241 +144,200 @@ public class AdvancedHeuristic extends StateHeuristic {
             this.tick = gs.getTick();
             this.blastStrength = gs.getBlastStrength();
             this.canKick = gs.canKick();
+            this.myPosition = gs.getPosition();
+            this.board = gs.getBoard();
+            int[][] bombBlastStrength = gs.getBombBlastStrength();
+            int playerId = gs.getPlayerId();
 
-            // Count the number of wood walls
+            // Count the number of wood walls, find bombs and enemies
             this.nWoods = 1;
-            for (Types.TILETYPE[] gameObjectsTypes : gs.getBoard()) {
-                for (Types.TILETYPE gameObjectType : gameObjectsTypes) {
-                    if (gameObjectType == Types.TILETYPE.WOOD)
+            this.nBombs = 0;
+            Arrays.fill(isEnemy, false);
+            this.enemies = null;
+            for (int y = 0; y < board.length; y++) {
+                for (int x = 0; x < board[y].length; x++) {
+                    Types.TILETYPE tile = board[y][x];
+                    if (tile == Types.TILETYPE.WOOD) {
                         nWoods++;
+                    }
+                    else if (tile == Types.TILETYPE.BOMB) {
+                        addBomb(x, y, bombBlastStrength[y][x]);
+                    }
+                    else if (isAgent(tile) && tile.getKey() != playerId && enemyIDs.contains(tile)) {
+                        isEnemy[tile.ordinal()] = true;
+                    }
                 }
             }
             if (maxWoods == -1) {
                 maxWoods = nWoods;
             }
 
-            this.myPosition = gs.getPosition();
-            this.board = gs.getBoard();
-            int[][] bombBlastStrength = gs.getBombBlastStrength();
-            int[][] bombLife = gs.getBombLife();
-            int ammo = gs.getAmmo();
-            int blastStrength = gs.getBlastStrength();
-            ArrayList<Types.TILETYPE> enemyIDs = gs.getAliveEnemyIDs();
-            int boardSizeX = board.length;
-            int boardSizeY = board[0].length;
-
-            this.bombs = new ArrayList<>();
-            this.enemies = new ArrayList<>();
-
-            for (int x = 0; x < boardSizeX; x++) {
-                for (int y = 0; y < boardSizeY; y++) {
-
-                    if(board[y][x] == Types.TILETYPE.BOMB){
-                        // Create a bomb object
-                        Bomb bomb = new Bomb();
-                        bomb.setPosition(new Vector2d(x, y));
-                        bomb.setBlastStrength(bombBlastStrength[y][x]);
-                        bomb.setLife(bombLife[y][x]);
-                        bombs.add(bomb);
-                    }
-                    else if(Types.TILETYPE.getAgentTypes().contains(board[y][x]) &&
-                            board[y][x].getKey() != gs.getPlayerId()){ // May be an enemy
-                        if(enemyIDs.contains(board[y][x])) { // Is enemy
-                            // Create enemy object
-                            GameObject enemy = new GameObject(board[y][x]);
-                            enemy.setPosition(new Vector2d(x, y));
-                            enemies.add(enemy); // no copy needed
-                        }
-                    }
-                }
-            }
+            distComputed = false;
+            n_directionsInRangeOfBomb = -1;
+            n_safeDirections = -1;
+            distanceToNearestEnemy = -1;
+            distanceToNearestPowerUp = -1;
+        }
 
-            Container from_dijkstra = dijkstra(board, myPosition, bombs, enemies, 10);
-            this.items = from_dijkstra.items;
-            this.dist = from_dijkstra.dist;
-            this.prev = from_dijkstra.prev;
+        private void addBomb(int x, int y, int blastStrength) {
+            if (nBombs == bombX.length) {
+                bombX = Arrays.copyOf(bombX, 2 * nBombs);
+                bombY = Arrays.copyOf(bombY, 2 * nBombs);
+                bombBlastStrength = Arrays.copyOf(bombBlastStrength, 2 * nBombs);
+            }
+            bombX[nBombs] = x;
+            bombY[nBombs] = y;
+            bombBlastStrength[nBombs] = blastStrength;
+            nBombs++;
         }
 
         /**
          * Computes score for a game, in relation to the initial state at the root.
          * Minimizes number of opponents in the game and number of wood walls. Maximizes blast strength and
-         * number of teammates, wants to kick.
+         * number of teammates, wants to kick. Features with a factor of 0 are not computed.
          * @param futureState the stats of the board at the end of the rollout.
          * @return a score [0, 1]
          */
         double score(BoardStats futureState)
         {
-            int diffSafeDirections = futureState.getNumberOfSafeDirections() - this.getNumberOfSafeDirections();
-            int diffDirectionsInRangeOfBomb = -(futureState.getNumberOfDirectionsInRangeOfBomb() - this.getNumberOfDirectionsInRangeOfBomb());
-
-            int diffTeammates = futureState.nTeammates - this.nTeammates;
-            int diffEnemies = -(futureState.nEnemies - this.nEnemies);
-
-            int diffDistanceToNearestEnemy = -(futureState.getDistanceToNearestEnemy() - this.getDistanceToNearestEnemy());
-
-            int diffWoods = -(futureState.nWoods - this.nWoods);
-            int diffCanKick = futureState.canKick && !this.canKick ? 1 : 0;
-            int diffBlastStrength = futureState.blastStrength - this.blastStrength;
-            //int diffAdjacentEnemy = futureState.getIsAdjacentEnemy() - this.getIsAdjacentEnemy();
-            int diffDistanceToNearestPowerUp = -(futureState.getDistanceToNearestPowerUp() - this.getDistanceToNearestPowerUp());
-
-            return (diffSafeDirections / 4.0) * FACTOR_SAFE_DIRECTIONS
-                    + (diffDirectionsInRangeOfBomb / 4.0) * FACTOR_BOMB_DIRECTIONS
-                    + (diffEnemies / 3.0) * FACTOR_ENEMY
-                    + diffTeammates * FACTOR_TEAM
-                    + (diffDistanceToNearestEnemy / 10.0) * FACTOR_ENEMY_DIST
-                    + (diffWoods / maxWoods) * FACTOR_WOODS
-                    + diffCanKick * FACTOR_CANKICK
-                    + (diffBlastStrength / maxBlastStrength) * FACTOR_BLAST
-                    //+ diffAdjacentEnemy * FACTOR_ADJ_ENEMY
-                    + (diffDistanceToNearestPowerUp / 10.0) * FACTOR_NEAREST_POWERUP;
-        }
-
-        private HashMap<Types.DIRECTIONS, Integer> getDirectionsInRangeOfBomb(){
-            if(this.directionsInRangeOfBomb == null){
-                this.directionsInRangeOfBomb = computeDirectionsInRangeOfBomb(this.myPosition, this.bombs, this.dist);
+            double score = 0;
+            if (FACTOR_SAFE_DIRECTIONS != 0) {
+                int diffSafeDirections = futureState.getNumberOfSafeDirections() - this.getNumberOfSafeDirections();
+                score += (diffSafeDirections / 4.0) * FACTOR_SAFE_DIRECTIONS;
+            }
+            if (FACTOR_BOMB_DIRECTIONS != 0) {
+                int diffDirectionsInRangeOfBomb = -(futureState.getNumberOfDirectionsInRangeOfBomb() - this.getNumberOfDirectionsInRangeOfBomb());
+                score += (diffDirectionsInRangeOfBomb / 4.0) * FACTOR_BOMB_DIRECTIONS;
+            }
+            if (FACTOR_ENEMY != 0) {
+                int diffEnemies = -(futureState.nEnemies - this.nEnemies);
+                score += (diffEnemies / 3.0) * FACTOR_ENEMY;
+            }
+            if (FACTOR_TEAM != 0) {
+                int diffTeammates = futureState.nTeammates - this.nTeammates;
+                score += diffTeammates * FACTOR_TEAM;
+            }
+            if (FACTOR_ENEMY_DIST != 0) {
+                int diffDistanceToNearestEnemy = -(futureState.getDistanceToNearestEnemy() - this.getDistanceToNearestEnemy());
+                score += (diffDistanceToNearestEnemy / 10.0) * FACTOR_ENEMY_DIST;
+            }
+            if (FACTOR_WOODS != 0) {
+                int diffWoods = -(futureState.nWoods - this.nWoods);
+                score += (diffWoods / maxWoods) * FACTOR_WOODS;
+            }
+            if (FACTOR_CANKICK != 0) {
+                int diffCanKick = futureState.canKick && !this.canKick ? 1 : 0;
+                score += diffCanKick * FACTOR_CANKICK;
             }
-            return this.directionsInRangeOfBomb;
+            if (FACTOR_BLAST != 0) {
+                int diffBlastStrength = futureState.blastStrength - this.blastStrength;
+                score += (diffBlastStrength / maxBlastStrength) * FACTOR_BLAST;
+            }
+            if (FACTOR_NEAREST_POWERUP != 0) {
+                int diffDistanceToNearestPowerUp = -(futureState.getDistanceToNearestPowerUp() - this.getDistanceToNearestPowerUp());
+                score += (diffDistanceToNearestPowerUp / 10.0) * FACTOR_NEAREST_POWERUP;
+            }
+            return score;
         }
 
-        private Integer getNumberOfDirectionsInRangeOfBomb(){
-            if(this.n_directionsInRangeOfBomb == null){
-                this.n_directionsInRangeOfBomb = getDirectionsInRangeOfBomb().size();
+        private int getNumberOfDirectionsInRangeOfBomb(){
+            if(this.n_directionsInRangeOfBomb == -1){
+                computeDirectionsInRangeOfBomb();
             }
             return this.n_directionsInRangeOfBomb;
         }
 
-        private HashMap<Types.DIRECTIONS, Integer> computeDirectionsInRangeOfBomb(Vector2d myPosition, ArrayList<Bomb> bombs,
-                                                                                  HashMap<Vector2d, Integer> dist) {
-            HashMap<Types.DIRECTIONS, Integer> ret = new HashMap<>();
+        private void computeDirectionsInRangeOfBomb() {
+            computeDistances();
+            Arrays.fill(directionsInRangeOfBomb, -1);
+            int n = board.length;
 
-            for(Bomb bomb : bombs){
-                Vector2d position = bomb.getPosition();
-
-                if(!dist.containsKey(position))
+            for(int b = 0; b < nBombs; b++){
+                int distance = dist[bombX[b] * n + bombY[b]];
+                if(distance == NOT_SEARCHED || distance > bombBlastStrength[b])
                     continue;
 
-                int distance = dist.get(position);
-                int bombBlastStrength = bomb.getBlastStrength();
-
-                if(distance > bombBlastStrength)
-                    continue;
-
-                if(myPosition == position){ // We are on a bomb. All directions are in range of bomb.
-                    Types.DIRECTIONS[] directions = Types.DIRECTIONS.values();
-
-                    for (Types.DIRECTIONS direction : directions) {
-                        ret.put(direction, max(ret.getOrDefault(direction, 0), bombBlastStrength));
-                    }
+                Types.DIRECTIONS direction;
+                if(myPosition.x == bombX[b]){
+                    direction = myPosition.y < bombY[b] ? Types.DIRECTIONS.DOWN : Types.DIRECTIONS.UP;
                 }
-                else if(myPosition.x == position.x){
-                    if(myPosition.y < position.y){ // Bomb is right.
-                        ret.put(Types.DIRECTIONS.DOWN, max(ret.getOrDefault(Types.DIRECTIONS.DOWN, 0), bombBlastStrength));
-                    }
-                    else{ // Bomb is left.
-                        ret.put(Types.DIRECTIONS.UP, max(ret.getOrDefault(Types.DIRECTIONS.UP, 0), bombBlastStrength));
-                    }
-                }
-                else if(myPosition.y == position.y){
-                    if(myPosition.x < position.x){ // Bomb is down.
-                        ret.put(Types.DIRECTIONS.RIGHT, max(ret.getOrDefault(Types.DIRECTIONS.RIGHT, 0), bombBlastStrength));
-                    }
-                    else{ // Bomb is up.
-                        ret.put(Types.DIRECTIONS.LEFT, max(ret.getOrDefault(Types.DIRECTIONS.LEFT, 0), bombBlastStrength));
-                    }
+                else if(myPosition.y == bombY[b]){
+                    direction = myPosition.x < bombX[b] ? Types.DIRECTIONS.RIGHT : Types.DIRECTIONS.LEFT;
                 }
+                else continue;
+
+                int d = direction.ordinal();
+                directionsInRangeOfBomb[d] = max(directionsInRangeOfBomb[d], max(0, bombBlastStrength[b]));
             }
-            return ret;
-        }
 
-        private ArrayList<Types.DIRECTIONS> getSafeDirections(){
-            if(this.safeDirections == null){
-                this.safeDirections = computeSafeDirections(this.board, this.myPosition, getDirectionsInRangeOfBomb(),
-                        this.bombs, this.enemies);
+            n_directionsInRangeOfBomb = 0;
+            for (int range : directionsInRangeOfBomb) {
+                if (range != -1)
+                    n_directionsInRangeOfBomb++;
             }
-            return this.safeDirections;
         }
 
-        private Integer getNumberOfSafeDirections(){
-            if(this.n_safeDirections == null){
-                this.n_safeDirections = getSafeDirections().size();
+        private int getNumberOfSafeDirections(){
+            if(this.n_safeDirections == -1){
+                getNumberOfDirectionsInRangeOfBomb();
+                this.n_safeDirections = computeNumberOfSafeDirections();
             }
             return this.n_safeDirections;
         }
 
-        private ArrayList<Types.DIRECTIONS> computeSafeDirections(Types.TILETYPE[][] board, Vector2d myPosition,
-                                                                  HashMap<Types.DIRECTIONS, Integer> unsafeDirections,
-                                                                  ArrayList<Bomb> bombs, ArrayList<GameObject> enemies) {
-            // All directions are unsafe. Return a position that won't leave us locked.
-            ArrayList<Types.DIRECTIONS> safe = new ArrayList<>();
-
-            if(unsafeDirections.size() == 4){
+        private int computeNumberOfSafeDirections() {
+            // All directions are unsafe. There is a safe one if any won't leave us locked.
+            if(n_directionsInRangeOfBomb == 4){
 
                 Types.TILETYPE[][] nextBoard = new Types.TILETYPE[board.length][];
                 for (int i = 0; i < board.length; i++) {
-                    nextBoard[i] = new Types.TILETYPE[board[i].length];
-                    for (int i1 = 0; i1 < board[i].length; i1++) {
-                        if (board[i][i1] != null) {
-                            // Power-ups array contains null elements, don't attempt to copy those.
-                            nextBoard[i][i1] = board[i][i1];
-                        }
-                    }
+                    nextBoard[i] = board[i].clone();
                 }
 
                 nextBoard[myPosition.x][myPosition.y] = Types.TILETYPE.BOMB;
 
-                for (Map.Entry<Types.DIRECTIONS, Integer> entry : unsafeDirections.entrySet()){
-
-                    Types.DIRECTIONS direction = entry.getKey();
-                    int bomb_range = entry.getValue();
+                for (Types.DIRECTIONS direction : Types.DIRECTIONS.values()){
+                    int bomb_range = directionsInRangeOfBomb[direction.ordinal()];
+                    if(bomb_range == -1)
+                        continue;
 
-                    Vector2d nextPosition = myPosition.copy();
-                    nextPosition = nextPosition.add(direction.toVec());
+                    Vector2d nextPosition = myPosition.add(direction.toVec());
 
                     if(!positionOnBoard(nextBoard, nextPosition) ||
-                            !positionIsPassable(nextBoard, nextPosition, enemies))
+                            !positionIsPassable(nextBoard, nextPosition, getEnemies()))
                         continue;
 
-                    if(!isStuckDirection(nextPosition, bomb_range, nextBoard, enemies)){
-                        return new ArrayList<>(Arrays.asList(direction));
+                    if(!isStuckDirection(nextPosition, bomb_range, nextBoard, getEnemies())){
+                        return 1;
                     }
                 }
-                return safe;
+                return 0;
             }
 
-            // The directions that will go off the board.
-            Set<Types.DIRECTIONS> disallowed = new HashSet<>();
-
-            Types.DIRECTIONS[] directions = Types.DIRECTIONS.values();
-
-            for (Types.DIRECTIONS current_direction : directions) {
+            int safe = 0;
+            int allowedUnsafe = 0;
 
-                Vector2d position = myPosition.copy();
-                position = position.add(current_direction.toVec());
+            for (Types.DIRECTIONS direction : Types.DIRECTIONS.values()) {
+                int x = myPosition.x + direction.x();
+                int y = myPosition.y + direction.y();
+                boolean unsafe = directionsInRangeOfBomb[direction.ordinal()] != -1;
 
-                Types.DIRECTIONS direction = getDirection(myPosition, position);
+                // The directions that will go off the board are not allowed.
+                if(x < 0 || y < 0 || y >= board.length || x >= board[0].length)
+                    continue;
 
-                if(!positionOnBoard(board, position)){
-                    disallowed.add(direction);
+                if(unsafe) {
+                    allowedUnsafe++;
                     continue;
                 }
 
-                if(unsafeDirections.containsKey(direction)) continue;
-
-                if(positionIsPassable(board, position, enemies) || positionIsFog(board, position)){
-                    safe.add(direction);
+                if(isPassable(board[y][x]) || board[y][x] == Types.TILETYPE.FOG){
+                    safe++;
                 }
             }
 
-            if(safe.isEmpty()){
-                // We don't have any safe directions, so return something that is allowed.
-                for(Types.DIRECTIONS k : unsafeDirections.keySet()) {
-                    if(!disallowed.contains(k))
-                        safe.add(k);
-                }
-            }
-
-            return safe;
+            // We don't have any safe directions, so count those that are allowed.
+            return safe > 0 ? safe : allowedUnsafe;
         }
 
         private boolean isStuckDirection(Vector2d nextPosition, int bombRange, Types.TILETYPE[][] nextBoard,
@@ -425,193 +403,137 @@ public class AdvancedHeuristic extends StateHeuristic {
             return is_stuck;
         }
 
-        private int getIsAdjacentEnemy(){
-            if(this.isAdjacentEnemy == null){
-                this.isAdjacentEnemy = computeIsAdjacentEnemy(this.items, this.dist, this.enemies) ? 1 : 0;
-            }
-            return this.isAdjacentEnemy;
-        }
-
-        private boolean computeIsAdjacentEnemy(
-                HashMap<Types.TILETYPE, ArrayList<Vector2d> > items,
-                HashMap<Vector2d, Integer> dist,
-                ArrayList<GameObject> enemies)
-        {
-            for(GameObject enemy : enemies){
-                if(items.containsKey(enemy.getType())) {
-                    ArrayList<Vector2d> items_list = items.get(enemy.getType());
-                    for (Vector2d position : items_list) {
-                        if (dist.get(position) == 1)
-                            return true;
-                    }
-                }
-            }
-            return false;
-        }
-
         private int getDistanceToNearestEnemy(){
-            if(this.distanceToNearestEnemy == null){
-                this.distanceToNearestEnemy = computeDistanceToNearestEnemy(this.items, this.dist, this.enemies);
+            if(this.distanceToNearestEnemy == -1){
+                computeNearestDistances();
             }
             return this.distanceToNearestEnemy;
         }
 
-        private int computeDistanceToNearestEnemy(
-                HashMap<Types.TILETYPE, ArrayList<Vector2d> > items,
-                HashMap<Vector2d, Integer> dist,
-                ArrayList<GameObject> enemies)
-        {
-            int distance = 1000; // TODO: Max distance/Infinity
-            for(GameObject enemy : enemies){
-                if(items.containsKey(enemy.getType())) {
-                    ArrayList<Vector2d> items_list = items.get(enemy.getType());
-                    for (Vector2d position : items_list) {
-                        if(dist.get(position) < distance)
-                            distance = dist.get(position);
-                    }
-                }
-            }
-            if(distance > 10)
-                distance = 10;
-            return distance;
-        }
-
         private int getDistanceToNearestPowerUp(){
-            if(this.distanceToNearestPowerUp == null){
-                this.distanceToNearestPowerUp = computeDistanceToNearestPowerUp(this.items);
+            if(this.distanceToNearestPowerUp == -1){
+                computeNearestDistances();
             }
             return this.distanceToNearestPowerUp;
         }
 
-        private int computeDistanceToNearestPowerUp(HashMap<Types.TILETYPE, ArrayList<Vector2d> > items)
-        {
-            Vector2d previousNode = new Vector2d(-1, -1); // placeholder, these values are not actually used
-            int distance = 1000; // TODO: Max distance/Infinity
-            for (Map.Entry<Types.TILETYPE, ArrayList<Vector2d>> entry : items.entrySet()) {
-                // check pickup entries on the board
-                if (entry.getKey().equals(Types.TILETYPE.EXTRABOMB) ||
-                        entry.getKey().equals(Types.TILETYPE.KICK) ||
-                        entry.getKey().equals(Types.TILETYPE.INCRRANGE)){
-                    // no need to store just get closest
-                    for (Vector2d coords: entry.getValue()){
-                        if (dist.get(coords) < distance){
-                            distance = dist.get(coords);
-                            previousNode = coords;
-                        }
+        /**
+         * Finds the distances to the nearest enemy and power-up searched, up to 10.
+         */
+        private void computeNearestDistances() {
+            computeDistances();
+            int n = board.length;
+            int enemyDistance = 1000;  // TODO: Max distance/Infinity
+            int powerUpDistance = 1000;
+
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    int d = dist[r * n + c];
+                    if (d == NOT_SEARCHED)
+                        continue;
+                    Types.TILETYPE itemType = board[r][c];
+                    if (itemType == Types.TILETYPE.EXTRABOMB || itemType == Types.TILETYPE.KICK ||
+                            itemType == Types.TILETYPE.INCRRANGE) {
+                        powerUpDistance = min(powerUpDistance, d);
+                    }
+                    else if (isAgent(itemType) && isEnemy[itemType.ordinal()]) {
+                        enemyDistance = min(enemyDistance, d);
                     }
                 }
             }
-            if(distance > 10)
-                distance = 10;
-            return distance;
+            distanceToNearestEnemy = min(enemyDistance, 10);
+            distanceToNearestPowerUp = min(powerUpDistance, 10);
         }
 
         /**
-         * Dijkstra's pathfinding
-         * @param board - game board
-         * @param myPosition - the position of agent
-         * @param bombs - array of bombs in the game
-         * @param enemies - array of enemies in the game
-         * @param depth - depth of search (default: 10)
-         * @return TODO
+         * Distances from the agent, searched breadth first up to DEPTH steps away through passable positions. The
+         * positions searched are those in range that are not fog, rigid walls or flames; those not reached are at
+         * NOT_REACHED, the rest at NOT_SEARCHED. Positions are indexed as board[x][y], as this search always has.
          */
-        private Container dijkstra(Types.TILETYPE[][] board, Vector2d myPosition, ArrayList<Bomb> bombs,
-                                   ArrayList<GameObject> enemies, int depth){
-
-            HashMap<Types.TILETYPE, ArrayList<Vector2d> > items = new HashMap<>();
-            HashMap<Vector2d, Integer> dist = new HashMap<>();
-            HashMap<Vector2d, Vector2d> prev = new HashMap<>();
-
-            Queue<Vector2d> Q = new LinkedList<>();
-
-            for(int r = max(0, myPosition.x - depth); r < min(board.length, myPosition.x + depth); r++){
-                for(int c = max(0, myPosition.y - depth); c < min(board.length, myPosition.y + depth); c++){
+        private void computeDistances(){
+            if (distComputed)
+                return;
+            distComputed = true;
+
+            int n = board.length;
+            if (dist.length != n * n) {
+                dist = new int[n * n];
+                queue = new int[n * n];
+            }
+            Arrays.fill(dist, NOT_SEARCHED);
 
-                    Vector2d position = new Vector2d(r, c);
+            for(int r = max(0, myPosition.x - DEPTH); r < min(n, myPosition.x + DEPTH); r++){
+                for(int c = max(0, myPosition.y - DEPTH); c < min(n, myPosition.y + DEPTH); c++){
 
                     // Determines if two points are out of range of each other.
-                    boolean out_of_range = (abs(c - myPosition.y) + abs(r - myPosition.x)) > depth;
+                    boolean out_of_range = (abs(c - myPosition.y) + abs(r - myPosition.x)) > DEPTH;
                     if(out_of_range)
                         continue;
 
                     Types.TILETYPE itemType = board[r][c];
-                    boolean positionInItems = (itemType == Types.TILETYPE.FOG ||
-                            itemType == Types.TILETYPE.RIGID || itemType == Types.TILETYPE.FLAMES);
-                    if(positionInItems)
+                    if(itemType == Types.TILETYPE.FOG || itemType == Types.TILETYPE.RIGID ||
+                            itemType == Types.TILETYPE.FLAMES)
                         continue;
 
-                    ArrayList<Vector2d> itemsTempList = items.get(itemType);
-                    if(itemsTempList == null) {
-                        itemsTempList = new ArrayList<>();
-                    }
-                    itemsTempList.add(position);
-                    items.put(itemType, itemsTempList);
-
-                    if(position.equals(myPosition)){
-                        Q.add(position);
-                        dist.put(position, 0);
-                    }
-                    else{
-                        dist.put(position, 100000); // TODO: Inf
-                    }
+                    dist[r * n + c] = NOT_REACHED;
                 }
             }
 
-            for(Bomb bomb : bombs){
-                if(bomb.getPosition().equals(myPosition)){
-                    ArrayList<Vector2d> itemsTempList = items.get(Types.TILETYPE.BOMB);
-                    if(itemsTempList == null) {
-                        itemsTempList = new ArrayList<>();
-                    }
-                    itemsTempList.add(myPosition);
-                    items.put(Types.TILETYPE.BOMB, itemsTempList);
-                }
+            int head = 0, tail = 0;
+            int start = myPosition.x * n + myPosition.y;
+            if (dist[start] != NOT_SEARCHED) {
+                dist[start] = 0;
+                queue[tail++] = start;
             }
 
-            while(!Q.isEmpty()){
-                Vector2d position = Q.remove();
-
-                if(positionIsPassable(board, position, enemies)){
-                    int val = dist.get(position) + 1;
+            while(head < tail){
+                int position = queue[head++];
+                int r = position / n, c = position % n;
 
-                    Types.DIRECTIONS[] directionsToBeChecked = Types.DIRECTIONS.values();
+                // Passable as in Utils.positionIsPassable, which reads board[y][x]
+                if(!isPassable(board[c][r]))
+                    continue;
 
-                    for (Types.DIRECTIONS directionToBeChecked : directionsToBeChecked) {
+                int val = dist[position] + 1;
+                if (r > 0) tail = relax(position - n, val, tail);
+                if (r < n - 1) tail = relax(position + n, val, tail);
+                if (c > 0) tail = relax(position - 1, val, tail);
+                if (c < n - 1) tail = relax(position + 1, val, tail);
+            }
+        }
 
-                        Vector2d direction = directionToBeChecked.toVec();
-                        Vector2d new_position = new Vector2d(position.x + direction.x, position.y + direction.y);
+        private int relax(int position, int val, int tail) {
+            int dist_val = dist[position];
+            if(dist_val != NOT_SEARCHED && val < dist_val){
+                dist[position] = val;
+                queue[tail++] = position;
+            }
+            return tail;
+        }
 
-                        if(!dist.containsKey(new_position))
-                            continue;
+        // Same as Utils.positionIsPassable, without building the sets of types for every position
+        private boolean isPassable(Types.TILETYPE tileType) {
+            if(isAgent(tileType))
+                return !isEnemy[tileType.ordinal()];
+            return tileType == Types.TILETYPE.PASSAGE || tileType == Types.TILETYPE.EXTRABOMB ||
+                    tileType == Types.TILETYPE.INCRRANGE || tileType == Types.TILETYPE.KICK;
+        }
 
-                        int dist_val = dist.get(new_position);
+        private static boolean isAgent(Types.TILETYPE tileType) {
+            return tileType == Types.TILETYPE.AGENT0 || tileType == Types.TILETYPE.AGENT1 ||
+                    tileType == Types.TILETYPE.AGENT2 || tileType == Types.TILETYPE.AGENT3;
+        }
 
-                        if(val < dist_val){
-                            dist.put(new_position, val);
-                            prev.put(new_position, position);
-                            Q.add(new_position);
-                        }
-                        else if(val == dist_val && random.nextFloat() < 0.5){
-                            dist.put(new_position, val);
-                            prev.put(new_position, position);
-                        }
-                    }
+        // Enemies on the board, for Utils.positionIsPassable; only their types are used
+        private ArrayList<GameObject> getEnemies() {
+            if (enemies == null) {
+                enemies = new ArrayList<>();
+                for (Types.TILETYPE type : Types.TILETYPE.values()) {
+                    if (isEnemy[type.ordinal()])
+                        enemies.add(new GameObject(type));
                 }
             }
-            Container container = new Container();
-            container.dist = dist;
-            container.items = items;
-            container.prev = prev;
-            return container;
+            return enemies;
         }
-
-        // Container for return values of Dijkstra's pathfinding algorithm.
-        private class Container {
-            HashMap<Types.TILETYPE, ArrayList<Vector2d> > items;
-            HashMap<Vector2d, Integer> dist;
-            HashMap<Vector2d, Vector2d> prev;
-            Container() { }
-        }
-
     }
 }
@@ -0,0 +1,166 @@
+package players.heuristics;
+
+import core.Game;
+import core.GameState;
+import org.junit.jupiter.api.Test;
+import players.Player;
+import players.SimplePlayer;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdvancedHeuristicTest {
+
+    // Scores of the states of rollouts(), as computed by the heuristic before features were extracted lazily (one
+    // FNV-1a hash of all scores per configuration): the default factors, then each factor set to 0, then each factor
+    // alone (all others set to 0). Factors in the order of factors(BoardStats).
+    private static final long DEFAULT_HASH = 0xfe72369ad4abc7a3L;
+    private static final long[] ZERO_FACTOR_HASHES = {
+            0xcda3415d897cc759L, 0x8ff62a67c670acf1L, 0x151bf7f4d60fdaccL, 0xb8e49f6a3190383bL, 0xac5d114a91125c75L,
+            0xe8c4c3d5f1d6533fL, 0xa4a47a030edb9449L, 0xd575b53b4220465eL, 0x3c8b856ad2ce6b6aL
+    };
+    private static final long[] SINGLE_FACTOR_HASHES = {
+            0xcc02a119f977de58L, 0xf68be6c67051751bL, 0x9760404327b805d7L, 0x72444178745d9b35L, 0xe18dedfe1f35bdbfL,
+            0x0d080072d03fc8f8L, 0x08b6ac026a02a1f0L, 0xaaa73ae110001575L, 0xb02a6e31e8ec7cccL
+    };
+
+    // Observations of agents playing games in each mode, with full and partial observability. Each list is a root
+    // followed by the states to score from it: those of a random rollout from the root, or the later observations of
+    // the same agent (in which it may have picked up power-ups, killed or died).
+    static List<List<GameState>> rollouts() {
+        int visionRange = Types.DEFAULT_VISION_RANGE;
+        List<List<GameState>> rollouts = new ArrayList<>();
+        Random random = new Random(42);
+        try {
+            for (int vision : new int[]{-1, 4}) {
+                Types.DEFAULT_VISION_RANGE = vision;
+                for (Types.GAME_MODE mode : new Types.GAME_MODE[]{Types.GAME_MODE.FFA, Types.GAME_MODE.TEAM}) {
+                    Game game = new Game(1234, Types.BOARD_SIZE, mode, "");
+                    ArrayList<Player> players = new ArrayList<>();
+                    for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                        players.add(new RecordingPlayer(1234 + i, Types.TILETYPE.AGENT0.getKey() + i));
+                    }
+                    game.setPlayers(players);
+                    game.run(false);
+
+                    for (Player player : players) {
+                        List<GameState> observations = ((RecordingPlayer) player).observations;
+                        for (int i = 0; i < observations.size(); i += 10) {
+                            GameState state = observations.get(i).copy();
+                            List<GameState> rollout = new ArrayList<>();
+                            rollout.add(state.copy());
+                            for (int d = 0; d < 10 && !state.isTerminal(); d++) {
+                                Types.ACTIONS[] actions = new Types.ACTIONS[Types.NUM_PLAYERS];
+                                for (int p = 0; p < actions.length; p++) {
+                                    actions[p] = Types.ACTIONS.all().get(random.nextInt(Types.ACTIONS.all().size()));
+                                }
+                                state.next(actions);
+                                rollout.add(state.copy());
+                            }
+                            rollouts.add(rollout);
+                        }
+                        for (int i = 0; i < observations.size(); i += 40) {
+                            List<GameState> trajectory = new ArrayList<>();
+                            for (int j = i; j < observations.size() && j <= i + 80; j += 8) {
+                                trajectory.add(observations.get(j));
+                            }
+                            rollouts.add(trajectory);
+                        }
+                    }
+                }
+            }
+        } finally {
+            Types.DEFAULT_VISION_RANGE = visionRange;
+        }
+        return rollouts;
+    }
+
+    private static class RecordingPlayer extends SimplePlayer {
+        private final List<GameState> observations = new ArrayList<>();
+
+        RecordingPlayer(long seed, int id) {
+            super(seed, id);
+        }
+
+        @Override
+        public Types.ACTIONS act(GameState gs) {
+            observations.add(gs.copy());
+            return super.act(gs);
+        }
+    }
+
+    static double[] factors(AdvancedHeuristic.BoardStats stats) {
+        return new double[]{stats.FACTOR_SAFE_DIRECTIONS, stats.FACTOR_BOMB_DIRECTIONS, stats.FACTOR_ENEMY,
+                stats.FACTOR_TEAM, stats.FACTOR_ENEMY_DIST, stats.FACTOR_CANKICK, stats.FACTOR_BLAST,
+                stats.FACTOR_NEAREST_POWERUP, stats.FACTOR_WOODS};
+    }
+
+    private static void setFactors(AdvancedHeuristic.BoardStats stats, double[] factors) {
+        stats.FACTOR_SAFE_DIRECTIONS = factors[0];
+        stats.FACTOR_BOMB_DIRECTIONS = factors[1];
+        stats.FACTOR_ENEMY = factors[2];
+        stats.FACTOR_TEAM = factors[3];
+        stats.FACTOR_ENEMY_DIST = factors[4];
+        stats.FACTOR_CANKICK = factors[5];
+        stats.FACTOR_BLAST = factors[6];
+        stats.FACTOR_NEAREST_POWERUP = factors[7];
+        stats.FACTOR_WOODS = factors[8];
+    }
+
+    // -0.0 and 0.0 are the same score, whichever order the terms were added in
+    static long hash(long hash, double score) {
+        long bits = Double.doubleToLongBits(score + 0.0);
+        for (int i = 0; i < 8; i++) {
+            hash ^= (bits >>> (8 * i)) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    @Test
+    void scoresDontChange() {
+        // Set by the first state extracted, as when a game starts
+        AdvancedHeuristic.BoardStats.maxWoods = -1;
+        List<List<GameState>> rollouts = rollouts();
+
+        long hash = 0xcbf29ce484222325L;
+        for (List<GameState> rollout : rollouts) {
+            AdvancedHeuristic heuristic = new AdvancedHeuristic(rollout.get(0), new Random(1));
+            for (GameState state : rollout.subList(1, rollout.size())) {
+                hash = hash(hash, heuristic.evaluateState(state));
+            }
+        }
+        assertEquals(DEFAULT_HASH, hash);
+
+        int nFactors = ZERO_FACTOR_HASHES.length;
+        for (int f = 0; f < 2 * nFactors; f++) {
+            hash = 0xcbf29ce484222325L;
+            AdvancedHeuristic.BoardStats root = new AdvancedHeuristic.BoardStats();
+            AdvancedHeuristic.BoardStats leaf = new AdvancedHeuristic.BoardStats();
+            for (List<GameState> rollout : rollouts) {
+                root.extract(rollout.get(0));
+                double[] factors = factors(root);
+                for (int i = 0; i < nFactors; i++) {
+                    // Zero factor f, or all but factor f - nFactors
+                    if (f < nFactors ? i == f : i != f - nFactors) {
+                        factors[i] = 0;
+                    }
+                }
+                setFactors(root, factors);
+                for (GameState state : rollout.subList(1, rollout.size())) {
+                    leaf.extract(state);
+                    hash = hash(hash, root.score(leaf));
+                }
+            }
+            if (f < nFactors) {
+                assertEquals(ZERO_FACTOR_HASHES[f], hash, "Factor " + f + " set to 0");
+            } else {
+                assertEquals(SINGLE_FACTOR_HASHES[f - nFactors], hash, "Only factor " + (f - nFactors));
+            }
+        }
+    }
+}
@@ -26,6 +26,11 @@ public class MCTSPlayer extends ParameterizedPlayer {
      */
     public MCTSParams params;
 
+    /**
+     * Iterations of the last search, -1 before the first.
+     */
+    private int lastIterations = -1;
+
     public MCTSPlayer(long seed, int id) {
         this(seed, id, new MCTSParams());
     }
@@ -73,7 +78,7 @@ public class MCTSPlayer extends ParameterizedPlayer {
         m_root.setRootGameState(gs);
 
         //Determine the action using MCTS...
-        m_root.mctsSearch(ect);
+        lastIterations = m_root.mctsSearch(ect);
 
         //Determine the best action to take and return it.
         int action = m_root.mostVisitedAction();
@@ -84,6 +89,17 @@ public class MCTSPlayer extends ParameterizedPlayer {
         return actions[action];
     }
 
+    @Override
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    @Override
+    public int getLastRollouts() {
+        // One rollout per iteration
+        return lastIterations;
+    }
+
     @Override
     public int[] getMessage() {
         // default message
@@ -65,7 +65,11 @@ public class SingleTreeNode
     }
 
 
-    void mctsSearch(ElapsedCpuTimer elapsedTimer) {
+    /**
+     * Runs the search from this node, within the budget of the parameters.
+     * @return number of iterations (and rollouts) done.
+     */
+    int mctsSearch(ElapsedCpuTimer elapsedTimer) {
 
         double avgTimeTaken;
         double acumTimeTaken = 0;
@@ -82,16 +86,15 @@ public class SingleTreeNode
             SingleTreeNode selected = treePolicy(state);
             double delta = selected.rollOut(state);
             backUp(selected, delta);
+            numIters++;
 
             //Stopping condition
             if(params.stop_type == params.STOP_TIME) {
-                numIters++;
                 acumTimeTaken += (elapsedTimerIteration.elapsedMillis()) ;
                 avgTimeTaken  = acumTimeTaken/numIters;
                 remaining = elapsedTimer.remainingTimeMillis();
                 stop = remaining <= 2 * avgTimeTaken || remaining <= remainingLimit;
             }else if(params.stop_type == params.STOP_ITERATIONS) {
-                numIters++;
                 stop = numIters >= params.num_iterations;
             }else if(params.stop_type == params.STOP_FMCALLS)
             {
@@ -100,6 +103,7 @@ public class SingleTreeNode
             }
         }
         //System.out.println(" ITERS " + numIters);
+        return numIters;
     }
 
     private SingleTreeNode treePolicy(GameState state) {
@@ -0,0 +1,113 @@
+package players.optimisers.evodef;
+
+import core.GameState;
+import gnu.trove.map.hash.TLongIntHashMap;
+import players.Player;
+import utils.Types;
+
+/**
+ * Opponent for evaluations with common random numbers (see EvaluatePommerman.setCommonRandomNumbers): wraps a player
+ * that decides the same given the same state and random seed (e.g. MCTS with an iteration budget), and reseeds it at
+ * every tick from the seed of the condition and the tick. Its decisions then depend on the state alone, not on the
+ * states seen before, so games of different solutions in the same condition face the same opponent wherever they
+ * reach the same state.
+ *
+ * That also makes its decisions reusable: with a Cache, a decision already taken in a state is looked up by the
+ * state's fingerprint instead of searched again.
+ */
+class CommonRandomOpponent extends Player {
+
+    private final Player player;
+    private final Cache cache;
+
+    /**
+     * @param player - player wrapped, deterministic given its seed.
+     * @param seed - seed of the condition, the player is reseeded from it at every tick.
+     * @param cache - decisions already taken, null for none.
+     */
+    CommonRandomOpponent(Player player, long seed, Cache cache) {
+        super(seed, player.getPlayerID());
+        this.player = player;
+        this.cache = cache;
+    }
+
+    @Override
+    public Types.ACTIONS act(GameState gs) {
+        long key = 0;
+        if (cache != null) {
+            key = mix(mix(seed, playerID), gs.fingerprint());
+            int action = cache.get(key);
+            if (action >= 0) {
+                return Types.ACTIONS.values()[action];
+            }
+        }
+        player.reset(mix(seed, gs.getTick()), playerID);
+        Types.ACTIONS action = player.act(gs);
+        if (cache != null) {
+            cache.put(key, action.ordinal());
+        }
+        return action;
+    }
+
+    @Override
+    public int[] getMessage() {
+        return player.getMessage();
+    }
+
+    @Override
+    public Player copy() {
+        return new CommonRandomOpponent(player.copy(), seed, cache);
+    }
+
+    // Mixing step of SplitMix64
+    private static long mix(long a, long b) {
+        long z = a + b * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Decisions of opponents by condition, position and state, shared by all the games of an evaluator. Holds up to
+     * a fixed number of decisions, the first ones taken; later ones are not kept.
+     */
+    static class Cache {
+        private final TLongIntHashMap actions = new TLongIntHashMap(1024, 0.5f, 0, -1);
+        private final int capacity;
+        private long hits, misses;
+
+        /**
+         * @param capacity - maximum number of decisions kept.
+         */
+        Cache(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized int get(long key) {
+            int action = actions.get(key);
+            if (action < 0) {
+                misses++;
+            } else {
+                hits++;
+            }
+            return action;
+        }
+
+        synchronized void put(long key, int action) {
+            if (actions.size() < capacity) {
+                actions.put(key, action);
+            }
+        }
+
+        synchronized int size() {
+            return actions.size();
+        }
+
+        /**
+         * @return fraction of the decisions looked up that were found, 0 if none was looked up.
+         */
+        synchronized double hitRate() {
+            return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package players.optimisers.evodef;
+
+import core.Game;
+import core.GameState;
+import org.junit.jupiter.api.Test;
+import players.Player;
+import players.SimplePlayer;
+import players.mcts.MCTSParams;
+import players.mcts.MCTSPlayer;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonRandomOpponentTest {
+
+    private static class RecordingPlayer extends Player {
+        private final Player player;
+        private final List<Types.ACTIONS> actions;
+
+        RecordingPlayer(Player player, List<Types.ACTIONS> actions) {
+            super(player.getSeed(), player.getPlayerID());
+            this.player = player;
+            this.actions = actions;
+        }
+
+        @Override
+        public Types.ACTIONS act(GameState gs) {
+            Types.ACTIONS action = player.act(gs);
+            actions.add(action);
+            return action;
+        }
+
+        @Override
+        public int[] getMessage() {
+            return player.getMessage();
+        }
+
+        @Override
+        public Player copy() {
+            return new RecordingPlayer(player.copy(), actions);
+        }
+    }
+
+    /**
+     * @param playerSeed - seed of the first player, the others are opponents with common random numbers.
+     * @param cache - decisions of the opponents, null for none.
+     * @return actions of all players, tick by tick.
+     */
+    private static List<Types.ACTIONS> play(long playerSeed, CommonRandomOpponent.Cache cache) {
+        long seed = 1234;
+        Game game = new Game(seed, Types.BOARD_SIZE, Types.GAME_MODE.FFA, "");
+        List<Types.ACTIONS> actions = new ArrayList<>();
+        ArrayList<Player> players = new ArrayList<>();
+        int id = Types.TILETYPE.AGENT0.getKey();
+        players.add(new RecordingPlayer(new SimplePlayer(playerSeed, id), actions));
+        for (int j = 1; j < Types.NUM_PLAYERS; j++) {
+            MCTSParams params = new MCTSParams();
+            params.stop_type = params.STOP_ITERATIONS;
+            params.num_iterations = 50;
+            Player opponent = new CommonRandomOpponent(new MCTSPlayer(seed, id + j, params), seed, cache);
+            players.add(new RecordingPlayer(opponent, actions));
+        }
+        game.setPlayers(players);
+        game.run(false);
+        return actions;
+    }
+
+    @Test
+    void warmCacheReplaysGame() {
+        int maxTicks = Types.MAX_GAME_TICKS;
+        Types.MAX_GAME_TICKS = 100;
+        try {
+            List<Types.ACTIONS> uncached = play(1, null);
+
+            // Warmed by a game against another player: the opening is found in the cache, the rest is searched
+            CommonRandomOpponent.Cache cache = new CommonRandomOpponent.Cache(100000);
+            assertNotEquals(uncached, play(2, cache));
+            int size = cache.size();
+            assertEquals(0, cache.hitRate());
+            assertIterableEquals(uncached, play(1, cache));
+            assertTrue(cache.hitRate() > 0);
+            assertTrue(cache.size() > size);
+
+            // Fully warm: every decision comes from the cache
+            size = cache.size();
+            assertIterableEquals(uncached, play(1, cache));
+            assertEquals(size, cache.size());
+        } finally {
+            Types.MAX_GAME_TICKS = maxTicks;
+        }
+    }
+}
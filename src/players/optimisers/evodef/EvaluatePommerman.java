@@ -1,17 +1,39 @@
 package players.optimisers.evodef;
 
 import core.Game;
+import farm.GameResult;
+import farm.GameSpec;
+import farm.PlayerSpec;
+import farm.WorkerFarm;
+import players.mcts.MCTSParams;
 import players.mcts.MCTSPlayer;
 import players.optimisers.ParameterizedPlayer;
 import players.Player;
+import utils.StatSummary;
 import utils.Types;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import static utils.Types.NUM_PLAYERS;
 
+/**
+ * Fitness of a parameterized player: the average result of one game in each of the starting positions, against MCTS
+ * opponents. Evaluators created with a player factory play all the games of a batch of solutions concurrently, each
+ * with a player of its own; those created with a worker farm play them in its worker processes.
+ *
+ * By default every evaluation is played on new levels with new player seeds, so comparisons between solutions carry
+ * the noise of the levels and of the opponents' rollouts. With common random numbers (see setCommonRandomNumbers) the
+ * games are played in conditions (level and player seeds) drawn in turn from a fixed pool, the same for all solutions,
+ * so solutions are compared in the same conditions; pairedDifference measures the difference between two of them
+ * condition by condition.
+ */
 public class EvaluatePommerman implements NoisySolutionEvaluator, SearchSpace, FitnessSpace {
 
     private int nDims;
@@ -21,24 +43,110 @@ public class EvaluatePommerman implements NoisySolutionEvaluator, SearchSpace, F
     private static Random random = new Random();
 
     private EvolutionLogger logger;
-    private ParameterizedPlayer player;
+    private ParameterizedPlayer player;                     // Shared by all games, when they are played in sequence
+    private Supplier<ParameterizedPlayer> playerFactory;    // Creates a player for each game, when played concurrently
+    private ExecutorService pool;
+    private WorkerFarm farm;                                // Plays the games in worker processes, if not null
+    private int playerType;                                 // Type of the player tuned in the farm, see PlayerSpec
     private boolean topLevel;
 
+    // Common random numbers: seeds of the levels and players of each condition, null to use new ones every time
+    private long[] levelSeeds, playerSeeds;
+    private int nextCondition;
+    private CommonRandomOpponent.Cache opponentCache;      // Decisions of the opponents, null for none
+
+    /**
+     * Evaluator playing its games one after another, all with the same player.
+     * @param possibleValues - number of values of each parameter.
+     * @param player - player tuned.
+     * @param topLevel - true if only top level parameters are tuned.
+     */
     public EvaluatePommerman(ArrayList<Integer> possibleValues, ParameterizedPlayer player, boolean topLevel) {
-        this(possibleValues, player, 0, topLevel);
+        this(possibleValues, 0, topLevel);
+        this.player = player;
+    }
+
+    /**
+     * Evaluator playing its games concurrently.
+     * @param possibleValues - number of values of each parameter.
+     * @param playerFactory - creates the player tuned, with parameters of its own; called once per game.
+     * @param topLevel - true if only top level parameters are tuned.
+     * @param nThreads - number of games played at the same time.
+     */
+    public EvaluatePommerman(ArrayList<Integer> possibleValues, Supplier<ParameterizedPlayer> playerFactory,
+                             boolean topLevel, int nThreads) {
+        this(possibleValues, 0, topLevel);
+        this.playerFactory = playerFactory;
+        this.pool = Executors.newFixedThreadPool(nThreads, r -> {
+            Thread t = new Thread(r, "fitness-evaluation");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Evaluator playing its games in worker processes, as many at a time as there are workers.
+     * @param possibleValues - number of values of each parameter.
+     * @param farm - workers playing the games.
+     * @param playerType - type of the player tuned, see PlayerSpec.
+     * @param topLevel - true if only top level parameters are tuned.
+     */
+    public EvaluatePommerman(ArrayList<Integer> possibleValues, WorkerFarm farm, int playerType, boolean topLevel) {
+        this(possibleValues, 0, topLevel);
+        this.farm = farm;
+        this.playerType = playerType;
     }
 
-    private EvaluatePommerman(ArrayList<Integer> possibleValues, ParameterizedPlayer player, double noise,
-                              boolean topLevel) {
+    private EvaluatePommerman(ArrayList<Integer> possibleValues, double noise, boolean topLevel) {
         this.nDims = possibleValues.size();
         this.m = possibleValues;
         this.noise = noise;
-        this.player = player;
         this.topLevel = topLevel;
         logger = new EvolutionLogger();
 //        player.getParameters().printParameterSearchSpace();
     }
 
+    /**
+     * Plays all games in conditions from a fixed pool instead of new ones: each batch of solutions evaluated is played
+     * in the next condition of the pool, in turn, and test() plays in the first ones. Opponents search for a fixed
+     * number of iterations (instead of time) and are reseeded at every tick from the condition, so they play the same
+     * in the same state and condition.
+     *
+     * Games played by a worker farm share the seeds, but their opponents search for a fixed time and are not cached.
+     * @param nConditions - number of conditions in the pool.
+     * @param seed - seed from which the conditions are drawn.
+     * @param cacheSize - maximum number of opponent decisions kept for reuse by later games, 0 for none.
+     * @return this evaluator.
+     */
+    public EvaluatePommerman setCommonRandomNumbers(int nConditions, long seed, int cacheSize) {
+        Random conditions = new Random(seed);
+        levelSeeds = new long[nConditions];
+        playerSeeds = new long[nConditions];
+        for (int c = 0; c < nConditions; c++) {
+            levelSeeds[c] = conditions.nextLong();
+            playerSeeds[c] = conditions.nextLong();
+        }
+        nextCondition = 0;
+        opponentCache = cacheSize > 0 ? new CommonRandomOpponent.Cache(cacheSize) : null;
+        return this;
+    }
+
+    /**
+     * @return fraction of the opponent decisions found in the cache, 0 if there is none.
+     */
+    public double getOpponentCacheHitRate() {
+        return opponentCache == null ? 0 : opponentCache.hitRate();
+    }
+
+    /**
+     * Stops the threads playing games, if any. The evaluator can't be used afterwards.
+     */
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
     @Override
     public void reset() {
         logger.reset();
@@ -51,66 +159,214 @@ public class EvaluatePommerman implements NoisySolutionEvaluator, SearchSpace, F
 
     @Override
     public double test(int[] solution) {
-        double tot = 0;
         int nReps = 5;
+        int[][] reps = new int[nReps][];
+        Arrays.fill(reps, solution);
 
-        for (int i = 0; i < nReps; i++) {
-            tot += trueFitness(solution);
+        double tot = 0;
+        for (double fit : trueFitness(reps, firstConditions(nReps))) {
+            tot += fit;
         }
-
         return tot/nReps;
     }
 
 
     @Override
     public double evaluate(int[] a) {
+        return evaluate(new int[][]{a})[0];
+    }
+
+    @Override
+    public double[] evaluate(int[][] solutions) {
         // keep track of whether it is truly optimal
-        double tot = trueFitness(a);
-        boolean isOptimal = isOptimal(a);
-        tot += noise * random.nextGaussian();
-        logger.log(tot, a, isOptimal);
+        double[] tot = trueFitness(solutions);
+        for (int i = 0; i < solutions.length; i++) {
+            boolean isOptimal = isOptimal(solutions[i]);
+            tot[i] += noise * random.nextGaussian();
+            logger.log(tot[i], solutions[i], isOptimal);
+        }
         return tot;
     }
 
     @Override
     public Double trueFitness(int[] a) {
-        double fit = 0;
+        return trueFitness(new int[][]{a})[0];
+    }
+
+    /**
+     * Compares two solutions condition by condition: plays both in the same n conditions (the first ones of the pool
+     * with common random numbers, new ones otherwise) and summarises the differences of their fitness.
+     * @param a - first solution.
+     * @param b - second solution.
+     * @param n - number of conditions.
+     * @return summary of fitness(a) - fitness(b) in each condition; its mean and standard error measure how much
+     * better a is.
+     */
+    public StatSummary pairedDifference(int[] a, int[] b, int n) {
+        int[][] solutions = new int[2 * n][];
+        int[] conditions = firstConditions(n);
+        int[] paired = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            solutions[i] = a;
+            solutions[n + i] = b;
+            paired[i] = paired[n + i] = conditions[i];
+        }
+        double[] fit = trueFitness(solutions, paired);
+        StatSummary diff = new StatSummary("fitness difference");
+        for (int i = 0; i < n; i++) {
+            diff.add(fit[i] - fit[n + i]);
+        }
+        return diff;
+    }
+
+    /**
+     * Evaluates a batch of solutions, all in the next condition of the pool with common random numbers, each in new
+     * conditions otherwise.
+     */
+    private double[] trueFitness(int[][] solutions) {
+        int[] conditions = new int[solutions.length];
+        if (levelSeeds != null) {
+            Arrays.fill(conditions, nextCondition);
+            nextCondition = (nextCondition + 1) % levelSeeds.length;
+        } else {
+            for (int s = 0; s < solutions.length; s++) {
+                conditions[s] = s;
+            }
+        }
+        return trueFitness(solutions, conditions);
+    }
+
+    /**
+     * @return the first n conditions of the pool with common random numbers (repeating it if smaller), n different
+     * new conditions otherwise.
+     */
+    private int[] firstConditions(int n) {
+        int[] conditions = new int[n];
+        for (int i = 0; i < n; i++) {
+            conditions[i] = levelSeeds != null ? i % levelSeeds.length : i;
+        }
+        return conditions;
+    }
+
+    /**
+     * Plays 1 game with the tuned player in each of the starting positions, for each solution. All the games of a
+     * solution are played in the same condition (board and player seeds).
+     * @param solutions - solutions to evaluate, may be repeated.
+     * @param conditions - condition of each solution: index in the pool with common random numbers; otherwise
+     *                   solutions with the same index get the same new seeds in this call.
+     * @return the fitness of each solution: its average result (win 1, tie 0.5, loss 0).
+     */
+    private double[] trueFitness(int[][] solutions, int[] conditions) {
+        double[] fit = new double[solutions.length];
+        long[] levelSeed = new long[solutions.length];
+        long[] playerSeed = new long[solutions.length];
         long seed = System.currentTimeMillis();
+        for (int s = 0; s < solutions.length; s++) {
+            levelSeed[s] = levelSeeds != null ? levelSeeds[conditions[s]] : seed + conditions[s];
+            playerSeed[s] = levelSeeds != null ? playerSeeds[conditions[s]] : seed + conditions[s];
+        }
 
+        if (farm != null) {
+            ArrayList<Future<GameResult>> games = new ArrayList<>();
+            for (int s = 0; s < solutions.length; s++) {
+                for (int i = 0; i < NUM_PLAYERS; i++) {
+                    PlayerSpec[] players = new PlayerSpec[NUM_PLAYERS];
+                    for (int j = 0; j < NUM_PLAYERS; j++) {
+                        players[j] = j == i ? new PlayerSpec(playerType, solutions[s], topLevel)
+                                : new PlayerSpec(PlayerSpec.MCTS_DEFAULT);
+                    }
+                    games.add(farm.submit(new GameSpec(levelSeed[s], playerSeed[s], Types.BOARD_SIZE,
+                            Types.GAME_MODE.FFA, players)));
+                }
+            }
+            for (int g = 0; g < games.size(); g++) {
+                Types.RESULT result = WorkerFarm.get(games.get(g)).results[g % NUM_PLAYERS];
+                fit[g / NUM_PLAYERS] += result == Types.RESULT.WIN ? 1.0 : (result == Types.RESULT.LOSS ? 0.0 : 0.5);
+            }
+        } else if (pool == null) {
+            for (int s = 0; s < solutions.length; s++) {
+                for (int i = 0; i < NUM_PLAYERS; i++) {
+                    fit[s] += playGame(player, solutions[s], i, levelSeed[s], playerSeed[s]);
+                }
+            }
+        } else {
+            ArrayList<Future<Double>> games = new ArrayList<>();
+            for (int s = 0; s < solutions.length; s++) {
+                int[] a = solutions[s];
+                long gameSeed = levelSeed[s];
+                long playersSeed = playerSeed[s];
+                for (int i = 0; i < NUM_PLAYERS; i++) {
+                    int position = i;
+                    games.add(pool.submit(() -> playGame(playerFactory.get(), a, position, gameSeed, playersSeed)));
+                }
+            }
+            try {
+                for (int g = 0; g < games.size(); g++) {
+                    fit[g / NUM_PLAYERS] += games.get(g).get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while evaluating solutions", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Evaluation game failed", e.getCause());
+            }
+        }
+
+        // Return result of this player. Use win or loss as fitness
+        for (int s = 0; s < solutions.length; s++) {
+            fit[s] /= NUM_PLAYERS;
+        }
+        return fit;
+    }
+
+    /**
+     * Plays a game with the tuned player in the given starting position.
+     * @param player - player tuned, not used by any other game at the same time.
+     * @param a - solution, the parameters of the player.
+     * @param position - starting position of the player, from 0.
+     * @param seed - seed of the game.
+     * @param playerSeed - seed of the players.
+     * @return the result of the player: 1 for a win, 0.5 for a tie, 0 for a loss.
+     */
+    private double playGame(ParameterizedPlayer player, int[] a, int position, long seed, long playerSeed) {
         // Translate the given parameters, assign them to the player and call the reset() method to make sure all
         // is initialized properly.
         player.translateParameters(a, topLevel);
+        player.reset(playerSeed, Types.TILETYPE.AGENT0.getKey() + position);
 
         // Create the game
         int boardSize = Types.BOARD_SIZE;
         Game game = new Game(seed, boardSize, Types.GAME_MODE.FFA, "");
 
-        // Run 1 game with our tuned player in each of the 4 starting positions
-        for (int i = 0; i < NUM_PLAYERS; i++) {
-            // Reset game and player
-            game.reset(true);
-            player.reset(seed, Types.TILETYPE.AGENT0.getKey() + i);
+        // Create player array and put our tuned player in the right position
+        Player[] players = new Player[NUM_PLAYERS];
+        players[position] = player;
 
-            // Create player array and put our tuned player in the right position
-            Player[] players = new Player[NUM_PLAYERS];
-            players[i] = player;
-
-            // Create opponents
-            for (int j = 0; j < NUM_PLAYERS; j++) {
-                if (j != i) {
-                    players[j] = new MCTSPlayer(seed, Types.TILETYPE.AGENT0.getKey() + j);
-                }
+        // Create opponents
+        for (int j = 0; j < NUM_PLAYERS; j++) {
+            if (j != position) {
+                players[j] = createOpponent(playerSeed, Types.TILETYPE.AGENT0.getKey() + j);
             }
-
-            // Start the game.
-            game.setPlayers(new ArrayList<>(Arrays.asList(players)));
-            Types.RESULT[] results = game.run(false);
-            double thisResult = (results[i] == Types.RESULT.WIN ? 1.0 : (results[i] == Types.RESULT.LOSS ? 0.0 : 0.5));
-            fit += thisResult;
         }
 
-        // Return result of this player. Use win or loss as fitness
-        return fit / NUM_PLAYERS;
+        // Start the game.
+        game.setPlayers(new ArrayList<>(Arrays.asList(players)));
+        Types.RESULT[] results = game.run(false);
+        return results[position] == Types.RESULT.WIN ? 1.0 : (results[position] == Types.RESULT.LOSS ? 0.0 : 0.5);
+    }
+
+    /**
+     * @param seed - seed of the players.
+     * @param id - id of the opponent.
+     * @return an MCTS opponent; with common random numbers, one that plays the same in the same state.
+     */
+    private Player createOpponent(long seed, int id) {
+        if (levelSeeds == null) {
+            return new MCTSPlayer(seed, id);
+        }
+        MCTSParams params = new MCTSParams();
+        params.stop_type = params.STOP_ITERATIONS;
+        return new CommonRandomOpponent(new MCTSPlayer(seed, id, params), seed, opponentCache);
     }
 
     @Override
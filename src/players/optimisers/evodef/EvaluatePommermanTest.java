@@ -0,0 +1,46 @@
+package players.optimisers.evodef;
+
+import org.junit.jupiter.api.Test;
+import players.rhea.RHEAPlayer;
+import players.rhea.utils.RHEAParams;
+import utils.StatSummary;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluatePommermanTest {
+
+    // Games short enough for a test, long enough for the tuned player to lose some
+    @Test
+    void pairedDifferenceWithItselfIsZero() {
+        int maxTicks = Types.MAX_GAME_TICKS;
+        Types.MAX_GAME_TICKS = 30;
+        try {
+            RHEAParams parameterSet = new RHEAParams();
+            Map<String, Object[]> params = parameterSet.getParameterValues();
+            ArrayList<Integer> possibleValues = new ArrayList<>();
+            for (String p : parameterSet.getParameters()) {
+                if (parameterSet.getParameterParent(p) == null) {
+                    possibleValues.add(params.get(p).length);
+                }
+            }
+            EvaluatePommerman problem = new EvaluatePommerman(possibleValues, new RHEAPlayer(0, 0, parameterSet),
+                    true).setCommonRandomNumbers(2, 42, 100000);
+
+            int[] solution = new int[possibleValues.size()];
+            StatSummary diff = problem.pairedDifference(solution, solution, 2);
+            assertEquals(2, diff.n());
+            assertEquals(0, diff.min());
+            assertEquals(0, diff.max());
+
+            // Not all games are tied, the first condition decides some
+            double fitness = problem.evaluate(solution);
+            assertNotEquals(0.5, fitness);
+        } finally {
+            Types.MAX_GAME_TICKS = maxTicks;
+        }
+    }
+}
@@ -2,6 +2,9 @@ package players.optimisers.evodef;
 
 import utils.StatSummary;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -119,6 +122,48 @@ public class EvolutionLogger {
         firstHit = null;
     }
 
+    /**
+     * Writes everything logged, in binary, to be read back with read().
+     * @param out - where to write.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(fa.size());
+        for (int i = 0; i < fa.size(); i++) {
+            out.writeDouble(fa.get(i));
+            SearchSpaceUtil.writePoint(out, solutions.get(i));
+        }
+        out.writeInt(bestYetSolutions.size());
+        for (int[] solution : bestYetSolutions) {
+            SearchSpaceUtil.writePoint(out, solution);
+        }
+        SearchSpaceUtil.writePoint(out, finalSolution);
+        out.writeDouble(finalFitness);
+        out.writeInt(nOptimal);
+        out.writeInt(firstHit == null ? -1 : firstHit);
+    }
+
+    /**
+     * Replaces the contents of this logger with those written by write().
+     * @param in - where to read from.
+     */
+    public void read(DataInput in) throws IOException {
+        reset();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            double fitness = in.readDouble();
+            log(fitness, SearchSpaceUtil.readPoint(in), false);
+        }
+        int nBestYet = in.readInt();
+        for (int i = 0; i < nBestYet; i++) {
+            bestYetSolutions.add(SearchSpaceUtil.readPoint(in));
+        }
+        finalSolution = SearchSpaceUtil.readPoint(in);
+        finalFitness = in.readDouble();
+        nOptimal = in.readInt();
+        int hit = in.readInt();
+        firstHit = hit < 0 ? null : hit;
+    }
+
     int[] copy (int[] x) {
         int[] y = new int[x.length];
         for (int i=0; i<x.length; i++) y[i] = x[i];
@@ -1,5 +1,8 @@
 package players.optimisers.evodef;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Random;
 
 /**
@@ -74,5 +77,27 @@ public class SearchSpaceUtil {
 
     }
 
+    // writes a point (or null) in binary, to be read back with readPoint
+    public static void writePoint(DataOutput out, int[] p) throws IOException {
+        if (p == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(p.length);
+        for (int v : p) {
+            out.writeInt(v);
+        }
+    }
 
+    public static int[] readPoint(DataInput in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) {
+            return null;
+        }
+        int[] p = new int[n];
+        for (int i = 0; i < n; i++) {
+            p[i] = in.readInt();
+        }
+        return p;
+    }
 }
@@ -12,6 +12,16 @@ public interface SolutionEvaluator {
     public void reset();
     double evaluate(int[] solution);
 
+    // evaluates several solutions (possibly repeated), returning their fitness in the same order
+    // evaluators able to evaluate them concurrently should override this
+    default double[] evaluate(int[][] solutions) {
+        double[] fitness = new double[solutions.length];
+        for (int i = 0; i < solutions.length; i++) {
+            fitness[i] = evaluate(solutions[i]);
+        }
+        return fitness;
+    }
+
     // has the algorithm found the optimal solution?
     boolean optimalFound();
     SearchSpace searchSpace();
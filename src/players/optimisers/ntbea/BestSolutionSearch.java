@@ -0,0 +1,320 @@
+package players.optimisers.ntbea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Finds the point of the search space with the highest mean estimate in an NTupleSystem, without enumerating the
+ * space: a depth first branch and bound that assigns the dimensions in order, trying first the values with the
+ * highest bound.
+ *
+ * The estimate of a point is the average, over the tuples that have observed its pattern, of the mean of that
+ * pattern. The bound of a partial point relaxes it by letting each tuple take the highest mean among its observed
+ * patterns that agree with the values assigned so far, and leave the average if some agreeing pattern has not been
+ * observed. Subtrees near the root are searched concurrently, as fork/join tasks sharing the best estimate found.
+ *
+ * Ties are broken as enumerating the space in SearchSpaceUtil.nthPoint order does: the first point wins.
+ */
+class BestSolutionSearch {
+
+    // Subtrees rooted above this depth are searched as separate tasks
+    static int PARALLEL_DEPTH = 2;
+    // Allowance for the rounding differences between bounds and estimates, so no subtree is pruned by mistake
+    private static final double TOLERANCE = 1e-9;
+
+    private final NTupleSystem model;
+    private final int nDims;
+    private final int[] nValues;
+
+    // For each tuple in the estimate: the tuple, its dimensions in increasing order (indices in the tuple), the
+    // lowest and highest of them, the values and means of the patterns it has observed, and the highest mean
+    private final NTuple[] tuples;
+    private final int[][] order;
+    private final int[] firstDim, lastDim;
+    private final int[][][] patterns;
+    private final double[][] means;
+    private final double[] highestMean;
+
+    // Highest estimate found by any task, as the bits of a double
+    private final AtomicLong bestEstimate = new AtomicLong(Double.doubleToLongBits(Double.NEGATIVE_INFINITY));
+
+    /**
+     * @param model - model to search. It must not change during the search.
+     * @param minTupleSize - size of the smallest tuples counted in the estimate.
+     */
+    BestSolutionSearch(NTupleSystem model, int minTupleSize) {
+        this.model = model;
+        nDims = model.getSearchSpace().nDims();
+        nValues = new int[nDims];
+        for (int i = 0; i < nDims; i++) {
+            nValues[i] = model.getSearchSpace().nValues(i);
+        }
+
+        ArrayList<NTuple> counted = new ArrayList<>();
+        for (NTuple tuple : model.tuples) {
+            if (tuple.tuple.length >= minTupleSize) {
+                counted.add(tuple);
+            }
+        }
+        tuples = counted.toArray(new NTuple[0]);
+        order = new int[tuples.length][];
+        firstDim = new int[tuples.length];
+        lastDim = new int[tuples.length];
+        patterns = new int[tuples.length][][];
+        means = new double[tuples.length][];
+        highestMean = new double[tuples.length];
+        for (int t = 0; t < tuples.length; t++) {
+            int[] dims = tuples[t].tuple;
+            order[t] = sortedIndices(dims);
+            firstDim[t] = dims.length == 0 ? -1 : dims[order[t][0]];
+            lastDim[t] = dims.length == 0 ? -1 : dims[order[t][dims.length - 1]];
+            int n = tuples[t].nEntries();
+            patterns[t] = new int[n][];
+            means[t] = new double[n];
+            highestMean[t] = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < n; k++) {
+                patterns[t][k] = tuples[t].getPattern(tuples[t].getObservedKey(k));
+                means[t][k] = tuples[t].getObservedMean(k);
+                highestMean[t] = Math.max(highestMean[t], means[t][k]);
+            }
+        }
+    }
+
+    /**
+     * @return the point with the highest mean estimate.
+     */
+    int[] search() {
+        return ForkJoinPool.commonPool().invoke(new Subtree(new int[nDims], 0)).point;
+    }
+
+    /**
+     * Upper bound of the mean estimate of any point starting with the given values.
+     * @param p - point whose first d dimensions are assigned.
+     * @param d - number of dimensions assigned.
+     * @return the bound.
+     */
+    double bound(int[] p, int d) {
+        // Tuples that are in the average for sure (at their highest mean), and those that may be left out
+        double sum = 0;
+        int n = 0;
+        double[] optional = new double[tuples.length];
+        int nOptional = 0;
+
+        for (int t = 0; t < tuples.length; t++) {
+            if (lastDim[t] < d) {
+                double mean = tuples[t].mean(p);
+                if (!Double.isNaN(mean)) {
+                    sum += mean;
+                    n++;
+                }
+                continue;
+            }
+            int[] dims = tuples[t].tuple;
+            double highest = Double.NEGATIVE_INFINITY;
+            int nAgreeing = 0;
+            if (firstDim[t] >= d) {
+                // nothing assigned yet, all patterns agree
+                highest = highestMean[t];
+                nAgreeing = patterns[t].length;
+            } else {
+                for (int k = 0; k < patterns[t].length; k++) {
+                    if (agrees(patterns[t][k], dims, order[t], p, d)) {
+                        highest = Math.max(highest, means[t][k]);
+                        nAgreeing++;
+                    }
+                }
+            }
+            if (nAgreeing == 0) {
+                continue;
+            }
+            if (nAgreeing == completions(dims, d)) {
+                sum += highest;
+                n++;
+            } else {
+                optional[nOptional++] = highest;
+            }
+        }
+
+        // The best average takes the optional tuples in decreasing order, while they raise it
+        boolean canBeEmpty = n == 0;
+        Arrays.sort(optional, 0, nOptional);
+        for (int i = nOptional - 1; i >= 0 && (n == 0 || optional[i] > sum / n); i--) {
+            sum += optional[i];
+            n++;
+        }
+        // A point in no observed pattern has estimate 0
+        double bound = n == 0 ? 0 : sum / n;
+        return canBeEmpty ? Math.max(bound, 0) : bound;
+    }
+
+    /**
+     * @return true if the pattern has the values of p in the dimensions assigned.
+     */
+    private static boolean agrees(int[] pattern, int[] dims, int[] order, int[] p, int d) {
+        for (int j : order) {
+            if (dims[j] >= d) {
+                return true;
+            }
+            if (pattern[j] != p[dims[j]]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of patterns of a tuple that agree with any assignment of the first d dimensions.
+     */
+    private double completions(int[] dims, int d) {
+        double n = 1;
+        for (int dim : dims) {
+            if (dim >= d) {
+                n *= nValues[dim];
+            }
+        }
+        return n;
+    }
+
+    private static int[] sortedIndices(int[] dims) {
+        Integer[] indices = new Integer[dims.length];
+        for (int j = 0; j < dims.length; j++) {
+            indices[j] = j;
+        }
+        Arrays.sort(indices, (a, b) -> Integer.compare(dims[a], dims[b]));
+        int[] order = new int[dims.length];
+        for (int j = 0; j < dims.length; j++) {
+            order[j] = indices[j];
+        }
+        return order;
+    }
+
+    private double getBestEstimate() {
+        return Double.longBitsToDouble(bestEstimate.get());
+    }
+
+    private void offerBestEstimate(double estimate) {
+        long bits;
+        while (estimate > Double.longBitsToDouble(bits = bestEstimate.get())
+                && !bestEstimate.compareAndSet(bits, Double.doubleToLongBits(estimate))) {
+            // Retry, another task found a better point
+        }
+    }
+
+    /**
+     * Best point found in a subtree: highest estimate, then first in enumeration order. Point is null if none was.
+     */
+    private static class Result {
+        double estimate = Double.NEGATIVE_INFINITY;
+        int[] point;
+
+        boolean offer(double estimate, int[] point) {
+            if (this.point == null || estimate > this.estimate
+                    || (estimate == this.estimate && compare(point, this.point) < 0)) {
+                this.estimate = estimate;
+                this.point = point;
+                return true;
+            }
+            return false;
+        }
+
+        private static int compare(int[] a, int[] b) {
+            for (int i = 0; i < a.length; i++) {
+                if (a[i] != b[i]) {
+                    return Integer.compare(a[i], b[i]);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Searches the points starting with the first d values of p.
+     */
+    private class Subtree extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] p;
+        private final int d;
+
+        Subtree(int[] p, int d) {
+            this.p = p;
+            this.d = d;
+        }
+
+        @Override
+        protected Result compute() {
+            Result best = new Result();
+            if (d < PARALLEL_DEPTH && d < nDims) {
+                ArrayList<Subtree> children = new ArrayList<>();
+                double[] bounds = new double[nValues[d]];
+                for (int v : valuesByBound(p, d, bounds)) {
+                    if (!worthSearching(bounds[v])) {
+                        break;
+                    }
+                    int[] child = p.clone();
+                    child[d] = v;
+                    children.add(new Subtree(child, d + 1));
+                }
+                invokeAll(children);
+                for (Subtree child : children) {
+                    Result r = child.join();
+                    if (r.point != null) {
+                        best.offer(r.estimate, r.point);
+                    }
+                }
+            } else {
+                search(p.clone(), d, best);
+            }
+            return best;
+        }
+
+        private void search(int[] p, int d, Result best) {
+            if (d == nDims) {
+                double estimate = model.getMeanEstimate(p);
+                if (best.offer(estimate, p.clone())) {
+                    offerBestEstimate(estimate);
+                }
+                return;
+            }
+            double[] bounds = new double[nValues[d]];
+            for (int v : valuesByBound(p, d, bounds)) {
+                if (!worthSearching(bounds[v])) {
+                    // nor are the values after it
+                    break;
+                }
+                p[d] = v;
+                search(p, d + 1, best);
+            }
+        }
+
+        /**
+         * @param bounds - filled with the bound of each value.
+         * @return the values of dimension d after the first d values of p, highest bound first.
+         */
+        private int[] valuesByBound(int[] p, int d, double[] bounds) {
+            int[] point = p.clone();
+            Integer[] values = new Integer[nValues[d]];
+            for (int v = 0; v < nValues[d]; v++) {
+                point[d] = v;
+                bounds[v] = bound(point, d + 1);
+                values[v] = v;
+            }
+            Arrays.sort(values, (a, b) -> Double.compare(bounds[b], bounds[a]));
+            int[] sorted = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                sorted[i] = values[i];
+            }
+            return sorted;
+        }
+
+        /**
+         * @return false if no point under the bound can reach (or tie with) the best estimate found.
+         */
+        private boolean worthSearching(double bound) {
+            return bound >= getBestEstimate() - TOLERANCE;
+        }
+    }
+}
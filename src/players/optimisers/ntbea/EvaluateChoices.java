@@ -5,6 +5,8 @@ import players.optimisers.evodef.SearchSpaceUtil;
 import utils.Picker;
 import utils.StatSummary;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
@@ -22,6 +24,9 @@ public class EvaluateChoices {
     private StatSummary exploreStats, exploitStats, combined;
 
     Picker<int[]> picker = new Picker<>(Picker.MAX_FIRST);
+    // every point added and its combined value, to pick more than the best one
+    private ArrayList<int[]> points = new ArrayList<>();
+    private ArrayList<Double> values = new ArrayList<>();
     private Set<Integer> indices = new HashSet<>();
 
     private int nAttempts = 0;
@@ -71,6 +76,33 @@ public class EvaluateChoices {
         // System.out.println(exploit + " : " + explore);
         nNeighbours++;
         picker.add(combinedValue, p);
+        points.add(p);
+        values.add(combinedValue);
+    }
+
+    /**
+     * @param k - number of points wanted.
+     * @return the k different points with the highest combined value, best first; fewer if fewer were added.
+     */
+    public int[][] getBest(int k) {
+        Integer[] order = new Integer[points.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values.get(b), values.get(a)));
+
+        ArrayList<int[]> best = new ArrayList<>();
+        for (int i = 0; i < order.length && best.size() < k; i++) {
+            int[] p = points.get(order[i]);
+            boolean repeated = false;
+            for (int[] q : best) {
+                repeated |= Arrays.equals(p, q);
+            }
+            if (!repeated) {
+                best.add(p);
+            }
+        }
+        return best.toArray(new int[0][]);
     }
     public void report() {
         System.out.println(exploitStats);
@@ -0,0 +1,106 @@
+package players.optimisers.ntbea;
+
+import players.optimisers.evodef.EvolutionLogger;
+import players.optimisers.evodef.SearchSpace;
+import players.optimisers.evodef.SearchSpaceUtil;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Snapshots of NTBEA runs, so a run that is stopped can be resumed where it was (see NTupleBanditEA.setCheckpoint).
+ * A snapshot holds everything the run has learnt: the points evaluated with their fitness, both as added to the
+ * landscape model and as logged by the evaluator, and the points the run was going to evaluate next. The random
+ * number generators are not saved, so a resumed run doesn't make the same choices an uninterrupted one would.
+ *
+ * Snapshots replace the previous one atomically: they are written to a temporary file, synced to disk and then moved
+ * over it, so the file always holds a complete snapshot even if the process dies while writing.
+ *
+ * Format (big-endian):
+ *   int magic ("NTBC"), short version, int number of dimensions, int number of values of each dimension,
+ *   the model (NTupleSystem.write), the evaluator's log (EvolutionLogger.write),
+ *   int number of points to evaluate next, and the points (SearchSpaceUtil.writePoint).
+ */
+public class NTBEACheckpoint {
+    static final int MAGIC = 0x4E544243;  // "NTBC"
+    static final short VERSION = 1;
+
+    /**
+     * Writes a snapshot, replacing the file atomically.
+     * @param file - file to write to. Its folder is created if needed.
+     * @param space - search space of the run.
+     * @param model - landscape model.
+     * @param logger - log of the evaluator.
+     * @param next - points to evaluate next.
+     */
+    public static void write(File file, SearchSpace space, NTupleSystem model, EvolutionLogger logger, int[][] next)
+            throws IOException {
+        File folder = file.getAbsoluteFile().getParentFile();
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Folder " + folder + " does not exist nor could be created.");
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(space.nDims());
+            for (int i = 0; i < space.nDims(); i++) {
+                out.writeInt(space.nValues(i));
+            }
+            model.write(out);
+            logger.write(out);
+            out.writeInt(next.length);
+            for (int[] p : next) {
+                SearchSpaceUtil.writePoint(out, p);
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Restores a snapshot, replacing the contents of the model and the log.
+     * @param file - file to read from.
+     * @param space - search space of the run, which must be that of the snapshot.
+     * @param model - landscape model, with the search space already set.
+     * @param logger - log of the evaluator.
+     * @return the points to evaluate next.
+     */
+    public static int[][] read(File file, SearchSpace space, NTupleSystem model, EvolutionLogger logger)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an NTBEA checkpoint");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported NTBEA checkpoint version " + version);
+            }
+            int nDims = in.readInt();
+            boolean sameSpace = nDims == space.nDims();
+            for (int i = 0; i < nDims; i++) {
+                int nValues = in.readInt();
+                sameSpace &= i >= space.nDims() || nValues == space.nValues(i);
+            }
+            if (!sameSpace) {
+                throw new IOException("The checkpoint is of a different search space");
+            }
+            model.read(in);
+            logger.read(in);
+            int[][] next = new int[in.readInt()][];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = SearchSpaceUtil.readPoint(in);
+            }
+            return next;
+        }
+    }
+}
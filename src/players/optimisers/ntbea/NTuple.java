@@ -1,11 +1,10 @@
 package players.optimisers.ntbea;
 
+import gnu.trove.map.hash.TLongIntHashMap;
 import players.optimisers.evodef.SearchSpace;
 import utils.StatSummary;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.TreeSet;
 
 /**
  * Created by simonmarklucas on 13/11/2016.
@@ -15,18 +14,30 @@ import java.util.TreeSet;
  * Each N-Tuple records the particular dimensions it samples.
  * <p>
  *     Then when a pattern is added, the N-Tuple looks up the values for
- *     its own dimensions and uses an IntArrayPattern as a hashkey
- *     using the particular values found in those dimensions
+ *     its own dimensions and reads them as a number in mixed radix (the
+ *     number of values of each dimension), which is the key of the pattern.
  *
- *     Each key is used to index to a StatSummary object in a HashMap.
- *     StatSummaries are created on demand
+ *     The statistics of each pattern (number of samples, sum and sum of squares) are kept in primitive arrays:
+ *     indexed by key when the tuple has at most DENSE_LIMIT patterns, otherwise in slots created on demand
+ *     and found through an open addressing map from key to slot. Neither adding nor looking up patterns allocates.
  */
 
 public class NTuple {
 
+    // Largest number of patterns for which statistics are kept for every pattern, observed or not
+    static long DENSE_LIMIT = 1 << 16;
+
     SearchSpace searchSpace;
     public int[] tuple;
-    public HashMap<IntArrayPattern, StatSummary> ntMap;
+    private long[] placeValues;     // Of each dimension of the tuple in the key, the first dimension is most significant
+    private long nPatterns;
+
+    // Statistics by key (dense) or slot (sparse)
+    private int[] count;
+    private double[] sum;
+    private double[] sumsq;
+    private long[] keys;            // Keys of the patterns observed, in order of observation (also the slots if sparse)
+    private TLongIntHashMap slots;  // Slot of each key observed, null when dense
 
     public int nSamples;
     int nEntries;
@@ -35,54 +46,119 @@ public class NTuple {
     public NTuple(SearchSpace searchSpace, int[] tuple) {
         this.searchSpace = searchSpace;
         this.tuple = tuple;
+
+        placeValues = new long[tuple.length];
+        nPatterns = 1;
+        for (int i = tuple.length - 1; i >= 0; i--) {
+            placeValues[i] = nPatterns;
+            try {
+                nPatterns = Math.multiplyExact(nPatterns, searchSpace.nValues(tuple[i]));
+            } catch (ArithmeticException e) {
+                throw new RuntimeException("Too many patterns for the tuple " + Arrays.toString(tuple), e);
+            }
+        }
         reset();
     }
 
     public void reset() {
         nSamples = 0;
         nEntries = 0;
-        ntMap = new HashMap<>();
+        int capacity = nPatterns <= DENSE_LIMIT ? (int) nPatterns : 16;
+        count = new int[capacity];
+        sum = new double[capacity];
+        sumsq = new double[capacity];
+        keys = new long[capacity];
+        if (nPatterns <= DENSE_LIMIT) {
+            slots = null;
+        } else {
+            slots = new TLongIntHashMap(capacity, 0.5f, -1, -1);
+        }
     }
 
     public void add(int[] x, double v) {
         // for each address that occurs, we're going to store something
-        StatSummary ss = getStatsForceCreate(x);
-        ss.add(v);
+        int i = getIndexForceCreate(x);
+        count[i]++;
+        sum[i] += v;
+        sumsq[i] += v * v;
         nSamples++;
     }
 
     public void add(int[] x, StatSummary ssIncoming) {
-        // for each address that occurs, we're going to store something
-        StatSummary ss = getStatsForceCreate(x);
-        ss.add(ssIncoming);
         nSamples++;
+        if (ssIncoming.n() == 0) {
+            // nothing to store
+            return;
+        }
+        // for each address that occurs, we're going to store something
+        int i = getIndexForceCreate(x);
+        count[i] += ssIncoming.n();
+        sum[i] += ssIncoming.sum();
+        sumsq[i] += ssIncoming.sumsq();
     }
 
     public void printNonEmpty() {
-        TreeSet<IntArrayPattern> orderedKeys = new TreeSet<>();
-        orderedKeys.addAll(ntMap.keySet());
-        for (IntArrayPattern key : orderedKeys) {
-            StatSummary ss = ntMap.get(key);
-            System.out.println(key + "\t " + ss.n() + "\t " + ss.mean() + "\t " + ss.sd());
+        long[] observed = Arrays.copyOf(keys, nEntries);
+        Arrays.sort(observed);
+        for (long key : observed) {
+            int i = slots == null ? (int) key : slots.get(key);
+            System.out.println(Arrays.toString(getPattern(key)) + "\t " + count[i] + "\t " + mean(i) + "\t " + sd(i));
             // System.out.println();
         }
     }
 
     /**
-     * Get stats but force creation if it does not already exists
+     * @param x - point of the search space.
+     * @return key of the pattern of x in this tuple.
+     */
+    long getKey(int[] x) {
+        long key = 0;
+        for (int i = 0; i < tuple.length; i++) {
+            key += x[tuple[i]] * placeValues[i];
+        }
+        return key;
+    }
+
+    /**
+     * @param key - key of a pattern.
+     * @return the values of the pattern, in the dimensions of this tuple.
+     */
+    int[] getPattern(long key) {
+        int[] v = new int[tuple.length];
+        for (int i = 0; i < tuple.length; i++) {
+            v[i] = (int) (key / placeValues[i]);
+            key %= placeValues[i];
+        }
+        return v;
+    }
+
+    /**
+     * Get the index of the stats but force creation if it does not already exists
      *
      * @param x
      * @return
      */
-    public StatSummary getStatsForceCreate(int[] x) {
-        IntArrayPattern key = new IntArrayPattern().setPattern(x, tuple);
-        StatSummary ss = ntMap.get(key);
-        if (ss == null) {
-            ss = new StatSummary();
-            nEntries++;
-            ntMap.put(key, ss);
+    private int getIndexForceCreate(int[] x) {
+        long key = getKey(x);
+        if (slots == null) {
+            if (count[(int) key] == 0) {
+                keys[nEntries++] = key;
+            }
+            return (int) key;
         }
-        return ss;
+        int i = slots.get(key);
+        if (i < 0) {
+            i = nEntries++;
+            if (i == count.length) {
+                count = Arrays.copyOf(count, 2 * i);
+                sum = Arrays.copyOf(sum, 2 * i);
+                sumsq = Arrays.copyOf(sumsq, 2 * i);
+                keys = Arrays.copyOf(keys, 2 * i);
+            }
+            keys[i] = key;
+            slots.put(key, i);
+        }
+        return i;
     }
 
     /**
@@ -91,17 +167,72 @@ public class NTuple {
      * So this version provides that.
      *
      * @param x
-     * @return
+     * @return the index of the stats of x, -1 if the pattern has not been observed
      */
-    public StatSummary getStats(int[] x) {
-        IntArrayPattern key = new IntArrayPattern().setPattern(x, tuple);
-        return ntMap.get(key);
+    private int getIndex(int[] x) {
+        long key = getKey(x);
+        if (slots == null) {
+            return count[(int) key] > 0 ? (int) key : -1;
+        }
+        return slots.get(key);
+    }
+
+    /**
+     * @param x - point of the search space.
+     * @return number of samples of the pattern of x, 0 if not observed.
+     */
+    public int n(int[] x) {
+        int i = getIndex(x);
+        return i < 0 ? 0 : count[i];
+    }
+
+    /**
+     * @param x - point of the search space.
+     * @return mean of the samples of the pattern of x, NaN if not observed.
+     */
+    public double mean(int[] x) {
+        int i = getIndex(x);
+        return i < 0 ? Double.NaN : mean(i);
+    }
+
+    private double mean(int i) {
+        return sum[i] / count[i];
+    }
+
+    // As in StatSummary
+    private double sd(int i) {
+        double mean = mean(i);
+        double num = sumsq[i] - (count[i] * mean * mean);
+        return Math.sqrt(Math.max(0, num) / (count[i] - 1));
+    }
+
+    /**
+     * @param i - index of a pattern observed, less than nEntries(), in order of observation.
+     * @return key of the pattern.
+     */
+    long getObservedKey(int i) {
+        return keys[i];
+    }
+
+    /**
+     * @param i - index of a pattern observed, less than nEntries(), in order of observation.
+     * @return mean of the samples of the pattern.
+     */
+    double getObservedMean(int i) {
+        return mean(slots == null ? (int) keys[i] : i);
     }
 
     public int nSamples() {
         return nSamples;
     }
 
+    /**
+     * @return number of different patterns observed.
+     */
+    public int nEntries() {
+        return nEntries;
+    }
+
     public String toString() {
         return tuple.length + "\t " + Arrays.toString(tuple) + "\t " + nSamples  + "\t " + nEntries;
     }
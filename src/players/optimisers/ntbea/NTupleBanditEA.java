@@ -3,6 +3,8 @@ package players.optimisers.ntbea;
 import players.optimisers.evodef.*;
 import utils.StatSummary;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -30,6 +32,9 @@ public class NTupleBanditEA implements EvoAlg {
     private double epsilon = defaultEpsilon;
 
     private int nSamples = 1;
+    // the number of points evaluated together each time around the loop: the best ones of the neighbourhood
+    // the evaluator gets them all (and their repeated samples) at once, so it can evaluate them concurrently
+    private int batchSize = 1;
     private int[] seed;
     private SolutionEvaluator evaluator;
     private int reportFrequency = 10000;
@@ -39,6 +44,12 @@ public class NTupleBanditEA implements EvoAlg {
     private boolean resetModelEachRun = true;
     private boolean logBestYet = false;
 
+    // snapshots of the run are written to this file (if not null) every checkpointInterval evaluations, and the run
+    // continues from it if resumeFromCheckpoint and it exists - see NTBEACheckpoint
+    private File checkpointFile;
+    private int checkpointInterval = 1;
+    private boolean resumeFromCheckpoint = false;
+
     public NTupleBanditEA(double kExplore, int nNeighbours) {
         this.kExplore = kExplore;
         this.nNeighbours = nNeighbours;
@@ -46,12 +57,10 @@ public class NTupleBanditEA implements EvoAlg {
 
     NTupleBanditEA() {}
 
-    private StatSummary fitness(SolutionEvaluator evaluator, int[] sol) {
+    private StatSummary fitness(double[] samples, int from) {
         StatSummary ss = new StatSummary();
-        for (int i = 0; i < nSamples; i++) {
-            double fitness = evaluator.evaluate(sol);
-            ss.add(fitness);
-
+        for (int i = from; i < from + nSamples; i++) {
+            ss.add(samples[i]);
         }
         return ss;
     }
@@ -92,17 +101,40 @@ public class NTupleBanditEA implements EvoAlg {
 
         // banditLandscapeModel.printDetailedReport();
 
+        int[][] batch = {p};
+        if (resumeFromCheckpoint && checkpointFile != null && checkpointFile.exists()) {
+            try {
+                int[][] next = NTBEACheckpoint.read(checkpointFile, searchSpace, checkpointModel(), logger);
+                if (next.length > 0) {
+                    batch = next;
+                    p = batch[0];
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Could not resume from checkpoint " + checkpointFile, e);
+            }
+            System.out.println("Resuming from " + checkpointFile + " after " + evaluator.nEvals() + " evaluations");
+        }
+        int lastCheckpoint = evaluator.nEvals();
+
         while (evaluator.nEvals() < nEvals) {
 
-            // each time around the loop we make one fitness evaluation of p and add this NEW information to the memory
+            // each time around the loop we make nSamples fitness evaluations of each point of the batch (the first
+            // of which is p) and add this NEW information to the memory
             int prevEvals = evaluator.nEvals();
             System.out.println(prevEvals + " / " + nEvals);
 
-            double fitness;
-            if (nSamples == 1) {
-                fitness = evaluator.evaluate(p);
-            } else {
-                fitness = fitness(evaluator, p).mean();
+            // don't go (much) over budget with the last batch
+            int nPoints = Math.max(1, Math.min(batch.length, (nEvals - prevEvals) / nSamples));
+            int[][] sampled = new int[nPoints * nSamples][];
+            for (int i = 0; i < sampled.length; i++) {
+                sampled[i] = batch[i / nSamples];
+            }
+            double[] samples = evaluator.evaluate(sampled);
+
+            for (int i = 0; i < nPoints; i++) {
+                double fitness = fitness(samples, i * nSamples).mean();
+                System.out.println(fitness);
+                banditLandscapeModel.addPoint(batch[i], fitness);
             }
             // System.out.println();
 
@@ -114,9 +146,6 @@ public class NTupleBanditEA implements EvoAlg {
                 // System.out.println(p);
 //            }
 
-            System.out.println(fitness);
-            banditLandscapeModel.addPoint(p, fitness);
-
 //            System.out.println("N Neighbours: " + nNeighbours);
             EvaluateChoices evc = new EvaluateChoices(banditLandscapeModel, kExplore);
 
@@ -130,8 +159,9 @@ public class NTupleBanditEA implements EvoAlg {
             }
             // evc.report();
 
-            // now set the next point to explore
-            p = evc.picker.getBest();
+            // now set the next point to explore, and the rest of the batch
+            batch = batchSize == 1 ? new int[][]{evc.picker.getBest()} : evc.getBest(batchSize);
+            p = batch[0];
 //            logger.keepBest(picker.getBest(), picker.getBestScore());
 
             int diffEvals = evaluator.nEvals() - prevEvals;
@@ -143,6 +173,14 @@ public class NTupleBanditEA implements EvoAlg {
             }
 
              System.out.println("Best solution: " + Arrays.toString(evc.picker.getBest()) + "\t: " + evc.picker.getBestScore());
+
+            if (checkpointFile != null && evaluator.nEvals() - lastCheckpoint >= checkpointInterval) {
+                checkpoint(searchSpace, logger, batch);
+                lastCheckpoint = evaluator.nEvals();
+            }
+        }
+        if (checkpointFile != null && evaluator.nEvals() > lastCheckpoint) {
+            checkpoint(searchSpace, logger, batch);
         }
 
         // int[] solution = banditLandscapeModel.getBestSolution();
@@ -152,6 +190,22 @@ public class NTupleBanditEA implements EvoAlg {
         return solution;
     }
 
+    private NTupleSystem checkpointModel() {
+        if (!(banditLandscapeModel instanceof NTupleSystem)) {
+            throw new IllegalStateException("Checkpoints need an NTupleSystem model");
+        }
+        return (NTupleSystem) banditLandscapeModel;
+    }
+
+    private void checkpoint(SearchSpace searchSpace, EvolutionLogger logger, int[][] next) {
+        try {
+            NTBEACheckpoint.write(checkpointFile, searchSpace, checkpointModel(), logger, next);
+        } catch (IOException e) {
+            // the run goes on, the previous snapshot is still there
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public void setModel(BanditLandscapeModel banditLandscapeModel) {
         this.banditLandscapeModel = banditLandscapeModel;
@@ -197,6 +251,24 @@ public class NTupleBanditEA implements EvoAlg {
         return this;
     }
 
+    public NTupleBanditEA setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Makes runs save snapshots, see NTBEACheckpoint. Needs an NTupleSystem model.
+     * @param file - file the snapshots are written to, replacing the previous one.
+     * @param interval - evaluations between snapshots; they are taken once the points of a batch are evaluated.
+     * @param resume - true to continue the run from the snapshot in the file, if there is one.
+     */
+    public NTupleBanditEA setCheckpoint(File file, int interval, boolean resume) {
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+        this.resumeFromCheckpoint = resume;
+        return this;
+    }
+
     public NTupleBanditEA setResetModelEachRun(boolean resetModelEachRun) {
         this.resetModelEachRun = resetModelEachRun;
         return this;
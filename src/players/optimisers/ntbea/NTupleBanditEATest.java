@@ -0,0 +1,130 @@
+package players.optimisers.ntbea;
+
+import org.junit.jupiter.api.Test;
+import players.optimisers.evodef.EvolutionLogger;
+import players.optimisers.evodef.SearchSpace;
+import players.optimisers.evodef.SolutionEvaluator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NTupleBanditEATest {
+
+    // Fitness of each point is its index in the search space, so a fitness credited to the wrong point shows
+    private static class IndexEvaluator implements SolutionEvaluator, SearchSpace {
+        final int nDims = 6, nValues = 3;
+        final EvolutionLogger logger = new EvolutionLogger();
+        final ArrayList<int[][]> batches = new ArrayList<>();
+
+        static double index(int[] p) {
+            double index = 0;
+            for (int i = p.length - 1; i >= 0; i--) {
+                index = index * 3 + p[i];
+            }
+            return index;
+        }
+
+        @Override
+        public void reset() {
+            logger.reset();
+        }
+
+        @Override
+        public double evaluate(int[] solution) {
+            logger.log(index(solution), solution, false);
+            return index(solution);
+        }
+
+        @Override
+        public double[] evaluate(int[][] solutions) {
+            batches.add(solutions.clone());
+            // Evaluated last first, but returned in the order given, as concurrent evaluators must
+            double[] fitness = new double[solutions.length];
+            for (int i = solutions.length - 1; i >= 0; i--) {
+                fitness[i] = evaluate(solutions[i]);
+            }
+            return fitness;
+        }
+
+        @Override
+        public boolean optimalFound() {
+            return false;
+        }
+
+        @Override
+        public SearchSpace searchSpace() {
+            return this;
+        }
+
+        @Override
+        public int nEvals() {
+            return logger.nEvals();
+        }
+
+        @Override
+        public EvolutionLogger logger() {
+            return logger;
+        }
+
+        @Override
+        public Double optimalIfKnown() {
+            return null;
+        }
+
+        @Override
+        public double test(int[] solution) {
+            return index(solution);
+        }
+
+        @Override
+        public int nDims() {
+            return nDims;
+        }
+
+        @Override
+        public int nValues(int i) {
+            return nValues;
+        }
+    }
+
+    @Test
+    void batchesCreditEachPoint() {
+        for (int batchSize : new int[]{1, 4}) {
+            IndexEvaluator evaluator = new IndexEvaluator();
+            // Only the N-tuple: the estimate of a sampled point is the mean of its own samples
+            NTupleSystem model = new NTupleSystem().useTuples(new boolean[]{false, false, false, true});
+            NTupleBanditEA ntbea = new NTupleBanditEA().setKExplore(2).setBatchSize(batchSize);
+            ntbea.setModel(model);
+            ntbea.setSamplingRate(2);
+            int nEvals = 101;
+            ntbea.runTrial(evaluator, nEvals);
+
+            // Whole batches, each point sampled twice in a row, and no more evaluations than the budget allows
+            int evaluated = 0;
+            for (int[][] batch : evaluator.batches) {
+                assertEquals(0, batch.length % 2);
+                assertTrue(batch.length <= 2 * batchSize);
+                for (int i = 0; i < batch.length; i += 2) {
+                    assertArrayEquals(batch[i], batch[i + 1]);
+                    for (int j = 0; j < i; j += 2) {
+                        assertFalse(Arrays.equals(batch[i], batch[j]), "Point repeated in a batch");
+                    }
+                }
+                evaluated += batch.length;
+            }
+            assertTrue(evaluated >= nEvals - 1 && evaluated <= nEvals + 1, "Evaluated " + evaluated);
+            if (batchSize > 1) {
+                assertTrue(evaluator.batches.stream().anyMatch(batch -> batch.length > 2));
+            }
+
+            // Every point was credited with its own fitness
+            for (int[][] batch : evaluator.batches) {
+                for (int[] p : batch) {
+                    assertEquals(IndexEvaluator.index(p), model.getMeanEstimate(p), 1e-9, Arrays.toString(p));
+                }
+            }
+        }
+    }
+}
@@ -7,6 +7,9 @@ import players.optimisers.evodef.BanditLandscapeModel;
 import utils.Picker;
 import utils.StatSummary;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -20,10 +23,6 @@ import java.util.List;
  *
  */
 
-// todo need to make this more efficient
-    // todo there is something strange that happens when NTuples are created
-    // something like making the StatSummary objects seems really slow
-
 @SuppressWarnings({"FieldCanBeLocal", "UnusedReturnValue", "unused"})
 public class NTupleSystem implements BanditLandscapeModel {
 
@@ -33,6 +32,7 @@ public class NTupleSystem implements BanditLandscapeModel {
     private double epsilon = defaultEpsilon;
 
     private List<int[]> sampledPoints;
+    private List<Double> sampledValues;
 
     public SearchSpace searchSpace;
     ArrayList<NTuple> tuples;
@@ -46,6 +46,7 @@ public class NTupleSystem implements BanditLandscapeModel {
         // this.searchSpace = searchSpace;
         tuples = new ArrayList<>();
         sampledPoints = new ArrayList<>();
+        sampledValues = new ArrayList<>();
     }
 
     public NTupleSystem useTuples(boolean[] useTuples) {
@@ -75,6 +76,7 @@ public class NTupleSystem implements BanditLandscapeModel {
     public BanditLandscapeModel reset() {
 //        System.out.println("Resetting model");
         sampledPoints = new ArrayList<>();
+        sampledValues = new ArrayList<>();
         for (NTuple nTuple : tuples) {
             nTuple.reset();
         }
@@ -99,6 +101,34 @@ public class NTupleSystem implements BanditLandscapeModel {
             tuple.add(p, value);
         }
         sampledPoints.add(p);
+        sampledValues.add(value);
+    }
+
+    /**
+     * Writes the points added with addPoint and their values, in binary, to be read back with read(). Summaries added
+     * with addSummary are not written.
+     * @param out - where to write.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(sampledPoints.size());
+        for (int i = 0; i < sampledPoints.size(); i++) {
+            SearchSpaceUtil.writePoint(out, sampledPoints.get(i));
+            out.writeDouble(sampledValues.get(i));
+        }
+    }
+
+    /**
+     * Resets the model and adds the points written by write(), in the same order, so the statistics of every tuple
+     * are exactly as they were. The search space must be set first.
+     * @param in - where to read from.
+     */
+    public void read(DataInput in) throws IOException {
+        reset();
+        int n = in.readInt();
+        for (int i = 0; i < n; i++) {
+            int[] p = SearchSpaceUtil.readPoint(in);
+            addPoint(p, in.readDouble());
+        }
     }
 
     public void addSummary(int[] p, StatSummary ss) {
@@ -107,16 +137,11 @@ public class NTupleSystem implements BanditLandscapeModel {
         }
     }
 
-    // careful - this can be slow - it iterates over all points in the search space!
+    // the point with the highest mean estimate, found by branch and bound (see BestSolutionSearch) rather than
+    // by iterating over all points in the search space; ties go to the first point in SearchSpaceUtil order
     @Override
     public int[] getBestSolution() {
-        Picker<int[]> picker = new Picker<>(Picker.MAX_FIRST);
-        for (int i = 0; i < SearchSpaceUtil.size(searchSpace); i++) {
-            int[] p = SearchSpaceUtil.nthPoint(searchSpace, i);
-            picker.add(getMeanEstimate(p), p);
-        }
-        // System.out.println("Best solution: " + Arrays.toString(picker.getBest()) + "\t: " + picker.getBestScore());
-        return picker.getBest();
+        return new BestSolutionSearch(this, minTupleSize).search();
     }
 
     @Override
@@ -144,14 +169,15 @@ public class NTupleSystem implements BanditLandscapeModel {
     public Double getMeanEstimate(int[] x) {
         // we could get an average ...
 
-        StatSummary ssTot = new StatSummary();
+        // average of the means of the patterns observed, without allocating
+        double tot = 0;
+        int n = 0;
         for (NTuple tuple : tuples) {
-            StatSummary ss = tuple.getStats(x);
-            if (ss != null) {
-                if (tuple.tuple.length >= minTupleSize) {
-                    double mean = ss.mean();
-                    if (!Double.isNaN(mean))
-                        ssTot.add(mean);
+            if (tuple.tuple.length >= minTupleSize) {
+                double mean = tuple.mean(x);
+                if (!Double.isNaN(mean)) {
+                    tot += mean;
+                    n++;
                 }
             }
         }
@@ -160,40 +186,27 @@ public class NTupleSystem implements BanditLandscapeModel {
         // return rand.nextDouble();
         // System.out.println("Returning: " + ssTot.mean() + " : " + ssTot.n());
 
-        double ret = ssTot.mean();
-        if (Double.isNaN(ret)) {
+        if (n == 0) {
             return 0.0;
         } else {
-            return ret;
+            return tot / n;
         }
     }
 
     @Override
     public double getExplorationEstimate(int[] x) {
         // just takes the average of the exploration vector
-        double[] vec = getExplorationVector(x);
-        double tot = 0;
-        for (double e : vec) tot += e;
-        return tot / vec.length;
-    }
-
-    private double[] getExplorationVector(int[] x) {
         // idea is simple: we just provide a summary over all
         // the samples, comparing each to the maximum in that N-Tuple
 
         // todo check whether we need the 1+
 
-        double[] vec = new double[tuples.size()];
-        for (int i = 0; i < tuples.size(); i++) {
-            NTuple tuple = tuples.get(i);
-            StatSummary ss = tuple.getStats(x);
-            if (ss != null) {
-                vec[i] = Math.sqrt(Math.log(1 + tuple.nSamples()) / (epsilon + ss.n()));
-            } else {
-                vec[i] = Math.sqrt(Math.log(1 + tuple.nSamples) / epsilon);
-            }
+        double tot = 0;
+        for (NTuple tuple : tuples) {
+            // patterns not observed have no samples
+            tot += Math.sqrt(Math.log(1 + tuple.nSamples()) / (epsilon + tuple.n(x)));
         }
-        return vec;
+        return tot / tuples.size();
     }
 
 
@@ -1,7 +1,6 @@
 package players.optimisers.ntbea;
 
 // import ntuple.params.Param;
-import utils.StatSummary;
 
 public class NTupleSystemReport {
 
@@ -22,9 +21,8 @@ public class NTupleSystemReport {
     
     public void report(int[] p) {
         for (NTuple nTuple : nTupleSystem.tuples) {
-            StatSummary ss = nTuple.getStats(p);
-            if (ss != null) {
-                System.out.format("\t n: %d,\t mean: %.3f\n", ss.n(), ss.mean());
+            if (nTuple.n(p) > 0) {
+                System.out.format("\t n: %d,\t mean: %.3f\n", nTuple.n(p), nTuple.mean(p));
             } else {
                 System.out.println("No data yet");
             }
@@ -43,7 +41,7 @@ public class NTupleSystemReport {
     public void printDetailedReport() {
         System.out.format("Search space has %d dimensions\n", nTupleSystem.searchSpace.nDims());
         for (NTuple nt : nTupleSystem.tuples) {
-            System.out.println("nPatterns observed: " + nt.ntMap.size());
+            System.out.println("nPatterns observed: " + nt.nEntries());
             nt.printNonEmpty();
             System.out.println();
         }
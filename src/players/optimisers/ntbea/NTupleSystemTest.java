@@ -0,0 +1,140 @@
+package players.optimisers.ntbea;
+
+import org.junit.jupiter.api.Test;
+import players.optimisers.evodef.EvolutionLogger;
+import players.optimisers.evodef.SearchSpace;
+import players.optimisers.evodef.SearchSpaceUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NTupleSystemTest {
+
+    private static SearchSpace space(int... nValues) {
+        return new SearchSpace() {
+            @Override
+            public int nDims() {
+                return nValues.length;
+            }
+
+            @Override
+            public int nValues(int i) {
+                return nValues[i];
+            }
+        };
+    }
+
+    private static NTupleSystem model(SearchSpace space, boolean[] useTuples, int nPoints, Random random) {
+        NTupleSystem model = new NTupleSystem().useTuples(useTuples);
+        model.setSearchSpace(space);
+        for (int i = 0; i < nPoints; i++) {
+            int[] p = new int[space.nDims()];
+            for (int j = 0; j < p.length; j++) {
+                p[j] = random.nextInt(space.nValues(j));
+            }
+            // Few distinct fitness values, so there are ties
+            model.addPoint(p, random.nextInt(3) - 1);
+        }
+        return model;
+    }
+
+    // As getBestSolution used to: the first point with the highest estimate, in enumeration order
+    private static int[] exhaustiveBest(NTupleSystem model) {
+        int[] best = null;
+        double bestEstimate = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < SearchSpaceUtil.size(model.getSearchSpace()); i++) {
+            int[] p = SearchSpaceUtil.nthPoint(model.getSearchSpace(), i);
+            double estimate = model.getMeanEstimate(p);
+            if (estimate > bestEstimate) {
+                bestEstimate = estimate;
+                best = p;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void bestSolutionMatchesEnumeration() {
+        Random random = new Random(42);
+        SearchSpace[] spaces = {space(3), space(2, 3), space(4, 2, 3, 2), space(3, 5, 2, 4, 3), space(2, 2, 2, 2, 2, 2)};
+        boolean[][] tupleSets = {{true, false, false, false}, {true, true, false, true}, {true, true, true, true},
+                {false, true, false, false}, {false, false, false, true}};
+        long previousLimit = NTuple.DENSE_LIMIT;
+        try {
+            for (long denseLimit : new long[]{previousLimit, 0}) {
+                NTuple.DENSE_LIMIT = denseLimit;
+                for (SearchSpace space : spaces) {
+                    for (boolean[] useTuples : tupleSets) {
+                        for (int nPoints : new int[]{0, 1, 3, 10, 40}) {
+                            NTupleSystem model = model(space, useTuples, nPoints, random);
+                            int[] expected = exhaustiveBest(model);
+                            int[] found = model.getBestSolution();
+                            assertArrayEquals(expected, found, "space " + SearchSpaceUtil.size(space) + ", tuples "
+                                    + Arrays.toString(useTuples) + ", points " + nPoints);
+                        }
+                    }
+                }
+            }
+        } finally {
+            NTuple.DENSE_LIMIT = previousLimit;
+        }
+    }
+
+    @Test
+    void bestSolutionOfLargeSpace() {
+        // 4^16 > 10^9 points, far too many to enumerate
+        int[] nValues = new int[16];
+        Arrays.fill(nValues, 4);
+        SearchSpace space = space(nValues);
+        NTupleSystem model = model(space, new boolean[]{true, true, false, true}, 500, new Random(7));
+
+        int[] best = model.getBestSolution();
+        assertEquals(space.nDims(), best.length);
+        assertTrue(model.getMeanEstimate(best) >= model.getMeanEstimate(model.getBestOfSampled()));
+    }
+
+    @Test
+    void checkpointRoundTrip() throws IOException {
+        SearchSpace space = space(3, 5, 2, 4, 3);
+        Random random = new Random(5);
+        NTupleSystem model = model(space, new boolean[]{true, true, false, true}, 30, random);
+        EvolutionLogger logger = new EvolutionLogger();
+        for (int i = 0; i < 30; i++) {
+            logger.log(random.nextDouble(), SearchSpaceUtil.nthPoint(space, i), i == 7);
+        }
+        logger.keepBest(new int[]{1, 2, 0, 3, 1}, 0.5);
+        int[][] next = {{0, 1, 0, 1, 0}, {2, 4, 1, 3, 2}};
+
+        File file = File.createTempFile("ntbea", ".bin");
+        try {
+            NTBEACheckpoint.write(file, space, model, logger, next);
+            NTupleSystem restoredModel = new NTupleSystem().useTuples(new boolean[]{true, true, false, true});
+            restoredModel.setSearchSpace(space);
+            EvolutionLogger restoredLogger = new EvolutionLogger();
+            int[][] restoredNext = NTBEACheckpoint.read(file, space, restoredModel, restoredLogger);
+
+            assertArrayEquals(next, restoredNext);
+            for (int i = 0; i < SearchSpaceUtil.size(space); i++) {
+                int[] p = SearchSpaceUtil.nthPoint(space, i);
+                assertEquals(model.getMeanEstimate(p), restoredModel.getMeanEstimate(p));
+                assertEquals(model.getExplorationEstimate(p), restoredModel.getExplorationEstimate(p));
+            }
+            assertArrayEquals(model.getBestOfSampled(), restoredModel.getBestOfSampled());
+            assertEquals(logger.getFitnessArray(), restoredLogger.getFitnessArray());
+            assertArrayEquals(logger.finalSolution(), restoredLogger.finalSolution());
+            assertEquals(logger.finalFitness(), restoredLogger.finalFitness());
+            assertEquals(1, restoredLogger.nOptimal());
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+
+            // Other search spaces are refused
+            assertThrows(IOException.class, () -> NTBEACheckpoint.read(file, space(3, 5, 2, 4, 2), restoredModel,
+                    restoredLogger));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -1,22 +1,47 @@
 package players.optimisers.ntbea;
 
+import farm.PlayerSpec;
+import farm.WorkerFarm;
 import players.optimisers.ParameterizedPlayer;
 import players.optimisers.evodef.EvaluatePommerman;
 import players.rhea.RHEAPlayer;
 import players.rhea.utils.RHEAParams;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
 
 /**
  * Run a simple test
+ *
+ * Usage: java players.optimisers.ntbea.RunNTBEA [evaluations] [top level parameters only]
+ *                                               [threads = 1] [solutions evaluated together = 1]
+ *                                               [checkpoint file = none] [resume = false]
+ *                                               [worker processes = 0] [common conditions = 0]
+ *                                               [cached opponent decisions = 0]
+ *                                               [evaluations between checkpoints = 50]
+ * With more than 1 thread, games are played concurrently, each with its own player. With worker processes, games are
+ * played in them instead (see WorkerFarm), as many at a time as there are workers.
+ * With a checkpoint file, a snapshot of the run is saved to it periodically, once the batch that completes the given
+ * number of evaluations since the last one is evaluated; with resume, the run continues from the snapshot in the file
+ * (if any) up to the given number of evaluations, see NTBEACheckpoint.
+ * With common conditions, all solutions are evaluated in the conditions of a fixed pool of that size, see
+ * EvaluatePommerman.setCommonRandomNumbers.
  */
 
 public class RunNTBEA {
     public static void main(String[] args) {
         int nEvals = Integer.parseInt(args[0]);
         boolean topLevel = Boolean.parseBoolean(args[1]);
+        int nThreads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        File checkpoint = args.length > 4 ? new File(args[4]) : null;
+        boolean resume = args.length > 5 && Boolean.parseBoolean(args[5]);
+        int nWorkers = args.length > 6 ? Integer.parseInt(args[6]) : 0;
+        int nConditions = args.length > 7 ? Integer.parseInt(args[7]) : 0;
+        int cacheSize = args.length > 8 ? Integer.parseInt(args[8]) : 0;
+        int checkpointInterval = args.length > 9 ? Integer.parseInt(args[9]) : 50;
 
         RHEAParams parameterSet = new RHEAParams();
         ParameterizedPlayer player = new RHEAPlayer(0, 0, parameterSet);
@@ -40,10 +65,23 @@ public class RunNTBEA {
             }
         }
 
-        EvaluatePommerman problem = new EvaluatePommerman(possibleValues, player, topLevel);
+        EvaluatePommerman problem;
+        WorkerFarm farm = null;
+        if (nWorkers > 0) {
+            farm = new WorkerFarm(nWorkers);
+            problem = new EvaluatePommerman(possibleValues, farm, PlayerSpec.RHEA_DEFAULT, topLevel);
+        } else if (nThreads > 1) {
+            problem = new EvaluatePommerman(possibleValues, () -> new RHEAPlayer(0, 0, new RHEAParams()), topLevel,
+                    nThreads);
+        } else {
+            problem = new EvaluatePommerman(possibleValues, player, topLevel);
+        }
+        if (nConditions > 0) {
+            problem.setCommonRandomNumbers(nConditions, 0, cacheSize);
+        }
         double kExplore = 2;
         double epsilon = 0.5;
-        NTupleBanditEA ntbea = new NTupleBanditEA().setKExplore(kExplore).setEpsilon(epsilon);
+        NTupleBanditEA ntbea = new NTupleBanditEA().setKExplore(kExplore).setEpsilon(epsilon).setBatchSize(batchSize);
 
         // set a particlar NTuple System as the model
         // if this is not set, then it will use a default model
@@ -55,6 +93,9 @@ public class RunNTBEA {
         model.use3Tuple = false;
         model.useNTuple = true;
         ntbea.setModel(model);
+        if (checkpoint != null) {
+            ntbea.setCheckpoint(checkpoint, checkpointInterval, resume);
+        }
 
         int[] solution = ntbea.runTrial(problem, nEvals);
 
@@ -71,6 +112,13 @@ public class RunNTBEA {
         System.out.println("Solution returned: " + Arrays.toString(solution));
 //        System.out.println("Solution fitness:  " + problem.trueFitness(solution));
         System.out.println("Solution fitness:  " + problem.test(solution));
+        if (cacheSize > 0) {
+            System.out.println("Opponent cache hit rate: " + problem.getOpponentCacheHitRate());
+        }
+        problem.shutdown();
+        if (farm != null) {
+            farm.close();
+        }
 //        System.out.println("k Explore: " + ntbea.kExplore);
 //        System.out.println(timer);
 
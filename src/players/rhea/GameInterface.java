@@ -5,7 +5,7 @@ import gnu.trove.set.hash.TIntHashSet;
 import players.heuristics.*;
 import players.rhea.evo.Individual;
 import players.rhea.evo.Mutation;
-import players.rhea.hybrids.MCTSNode;
+import players.rhea.hybrids.MCTSSeeder;
 import players.rhea.utils.FMBudget;
 import players.rhea.utils.RHEAParams;
 import players.rhea.utils.Utilities;
@@ -33,13 +33,42 @@ public class GameInterface {
     private ElapsedCpuTimer elapsedTimer;
     private HashMap<Integer, Types.ACTIONS> action_mapping;
 
+    // Evaluates groups of individuals concurrently, null if params.evaluation_threads <= 1
+    private ParallelEvaluator evaluator;
+
+    // Seeding search, created on first use. Its extra interfaces are only used by its search threads.
+    private MCTSSeeder mctsSeeder;
+    private GameInterface[] mctsInterfaces;
+
+    // States reached by prefixes of evaluated individuals, null if params.rollout_cache_size <= 0
+    private RolloutCache rolloutCache;
+
+    // Action played after the last decision, -1 if unknown. Used to carry the rollout cache over to the next one.
+    private int playedAction = -1;
+
+    // Individuals evaluated by this interface so far, each one rollout
+    private int nRollouts;
+
     private static double[] bounds = new double[]{-1, 1};
 
     GameInterface(RHEAParams params, Random random, int playerID) {
+        this(params, random, playerID, new FMBudget(params.fm_budget));
+        if (params.evaluation_threads > 1) {
+            evaluator = new ParallelEvaluator(params, random, playerID, fmBudget, params.evaluation_threads);
+        }
+    }
+
+    /**
+     * Creates an interface using the given FM budget, which may be shared with other interfaces.
+     */
+    GameInterface(RHEAParams params, Random random, int playerID, FMBudget fmBudget) {
         this.params = params;
         this.random = random;
-        fmBudget = new FMBudget(params.fm_budget);
+        this.fmBudget = fmBudget;
         this.playerID = playerID;
+        if (params.rollout_cache_size > 0) {
+            rolloutCache = new RolloutCache(params.rollout_cache_size);
+        }
     }
 
     void initTick(GameState stateObs, ElapsedCpuTimer elapsedTimer) {
@@ -47,14 +76,82 @@ public class GameInterface {
         this.elapsedTimer = elapsedTimer;
         fmBudget.reset();
         initStateInfo();
+        stateHeuristic = createHeuristic(stateObs);
+        initRolloutCache(stateObs);
+        if (evaluator != null) {
+            evaluator.initTick(stateObs);
+        }
+    }
+
+    /**
+     * Sets up an evaluation worker for a new tick. Unlike initTick, this leaves the shared FM budget untouched.
+     * @param stateObs - root state for this worker, not shared with other threads.
+     */
+    void initWorkerTick(GameState stateObs) {
+        rootState = stateObs;
+        initStateInfo();
+        stateHeuristic = createHeuristic(stateObs);
+        initRolloutCache(stateObs);
+    }
+
+    /**
+     * Carries the rollout cache over from the last decision if the shift buffer is used and the state predicted for
+     * the action played is the one observed, empties it otherwise.
+     */
+    private void initRolloutCache(GameState stateObs) {
+        if (rolloutCache == null) return;
+        boolean carried = params.shift_buffer && playedAction >= 0 && rolloutCache.advance(playedAction, stateObs);
+        if (!carried) {
+            rolloutCache.reset(stateObs, action_mapping.size());
+        }
+        playedAction = -1;
+    }
+
+    /**
+     * Records the action played after this decision, so states predicted for it can be reused at the next one.
+     * @param action - action played, as evolved by the EA.
+     */
+    void setPlayedAction(int action) {
+        playedAction = action;
+        if (evaluator != null) {
+            evaluator.setPlayedAction(action);
+        }
+    }
+
+    /**
+     * @return number of rollouts (individuals evaluated) so far, including those of the evaluation workers.
+     */
+    int getRollouts() {
+        return evaluator != null ? nRollouts + evaluator.getRollouts() : nRollouts;
+    }
+
+    /**
+     * @return the rollout cache of this interface, null if not in use.
+     */
+    RolloutCache getRolloutCache() {
+        return rolloutCache;
+    }
+
+    private StateHeuristic createHeuristic(GameState stateObs) {
         switch (params.heurisic_type) {
-            case PLAYER_COUNT_HEURISTIC: stateHeuristic = new PlayerCountHeuristic(); break;
-            case CUSTOM_HEURISTIC: stateHeuristic = new CustomHeuristic(stateObs); break;
-            case ADVANCED_HEURISTIC: stateHeuristic = new AdvancedHeuristic(stateObs, random); break;
+            case PLAYER_COUNT_HEURISTIC: return new PlayerCountHeuristic();
+            case CUSTOM_HEURISTIC: return new CustomHeuristic(stateObs);
+            case ADVANCED_HEURISTIC: return new AdvancedHeuristic(stateObs, random);
             default:
-            case WIN_SCORE_HEURISTIC: stateHeuristic = new WinScoreHeuristic(); break;
+            case WIN_SCORE_HEURISTIC: return new WinScoreHeuristic();
         }
+    }
 
+    /**
+     * Stops any evaluation threads owned by this interface.
+     */
+    void shutdown() {
+        if (evaluator != null) {
+            evaluator.shutdown();
+        }
+        if (mctsSeeder != null) {
+            mctsSeeder.shutdown();
+        }
     }
 
     /**
@@ -126,17 +223,23 @@ public class GameInterface {
      * @return action distribution.
      */
     private double[][] seed_mcts() {
-        int nActions = rootState.nActions();
-
-        Types.ACTIONS[] actions = Types.ACTIONS.all().toArray(new Types.ACTIONS[0]);
-        MCTSNode m_root = new MCTSNode(random, nActions, actions, stateHeuristic, this);
-        MCTSNode.rootState = rootState;
-
-        // Do the search within the available budget.
-        m_root.mctsSearch(elapsedTimer, params.mcts_fm_budget, params.mcts_iteration_budget, params.mcts_depth);
+        if (mctsSeeder == null) {
+            int nThreads = Math.max(1, params.mcts_threads);
+            mctsInterfaces = new GameInterface[nThreads];
+            mctsInterfaces[0] = this;
+            for (int i = 1; i < nThreads; i++) {
+                mctsInterfaces[i] = new GameInterface(params, new Random(random.nextLong()), playerID, fmBudget);
+            }
+            Types.ACTIONS[] actions = Types.ACTIONS.all().toArray(new Types.ACTIONS[0]);
+            mctsSeeder = new MCTSSeeder(mctsInterfaces, random, actions);
+        }
+        for (int i = 1; i < mctsInterfaces.length; i++) {
+            mctsInterfaces[i].initWorkerTick(rootState.copy());
+        }
 
-        // Compress the tree into action probabilities at each level
-        double[][] distribution = m_root.compressTree(params.individual_length, nActions);
+        // Do the search within the available budget and compress the trees into action probabilities at each level
+        double[][] distribution = mctsSeeder.search(rootState, elapsedTimer, params.mcts_fm_budget,
+                params.mcts_iteration_budget, params.mcts_depth, params.individual_length);
 
         // Inform budget of usage
         fmBudget.use(params.mcts_fm_budget);
@@ -151,16 +254,66 @@ public class GameInterface {
      */
     @SuppressWarnings("UnusedReturnValue")
     public double evaluate(Individual individual, Mutation mutation, int evaluation_update) {
-        double[] values = new double[individual.get_length() + 1];
-        GameState stateObsCopy = rootState.copy();
+        return evaluate(individual, mutation, evaluation_update, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Evaluate given individual with given mutation class, racing it against a target value. The rollout is cut off
+     * as soon as the best value it could still reach, with all remaining states at the top of the heuristic range,
+     * is no better than the target. The individual then gets that optimistic value, and the FM calls not made are
+     * left in the budget for further generations.
+     * Only evaluation methods using intermediate state values (average, min, max, discount) can be cut off early.
+     * @param individual - individual to evaluate.
+     * @param mutation - mutation class to perform gene mutation.
+     * @param target - value the individual has to beat to be fully evaluated. Negative infinity disables racing.
+     * @return value of individual.
+     */
+    @SuppressWarnings("UnusedReturnValue")
+    public double evaluate(Individual individual, Mutation mutation, int evaluation_update, double target) {
+        nRollouts++;
+        int length = individual.get_length();
+        double[] values = new double[length + 1];
+        GameState stateObsCopy;
+        int start = 0;
+        RolloutCache.Node node = null;
+
+        if (rolloutCache != null) {
+            // The whole action sequence is needed to look up the cache, so mutate all genes now
+            if (mutation != null) {
+                mutation.mutate(individual);
+                mutation = null;
+            }
+            // Resume from the deepest state cached for a prefix of this individual. Its values are filled in.
+            node = findCachedPrefix(values, individual);
+            start = node.depth;
+            boolean resume = start < length && !node.state.isTerminal();
+            stateObsCopy = resume ? node.state.copy() : node.state;  // Cached state is not modified if not resumed
+            if (!resume) {
+                // Fully cached evaluations are charged 1 FM call, so FM budgets still run out
+                fmBudget.use();
+            }
+        } else {
+            stateObsCopy = rootState.copy();
+        }
+
         if (params.evaluate_act == EVALUATE_ACT_LAST) {  // This doesn't need first state value
             values[0] = 0;
+        } else if (rolloutCache != null) {
+            values[0] = cachedValue(rolloutCache.getRoot());
         } else {
             values[0] = evaluateState(stateObsCopy);  // Evaluate current state
         }
 
         // Evaluate subsequent states obtained by rolling through the actions
-        int lastIdx = evaluateRollout(values, stateObsCopy, individual.get_length(), individual, mutation);
+        double raceTarget = raceTarget(individual, evaluation_update, target);
+        int lastIdx = evaluateRollout(values, stateObsCopy, start, length, individual, mutation, node, raceTarget);
+
+        // A rollout ending early in a non-terminal state was cut off by racing
+        if (lastIdx < length && !stateObsCopy.isTerminal()) {
+            double update_value = updateValue(individual, optimisticValue(values, lastIdx, length), evaluation_update);
+            individual.set_value(update_value);
+            return update_value;
+        }
 
         if (lastIdx < values.length - 1) {
             // We stopped early, trim the values array to remove trailing 0s
@@ -175,7 +328,20 @@ public class GameInterface {
             state_value = MCrollouts(stateObsCopy, values);
         }
 
-        // Update value according to update rule
+        // Set the individual's value and return it
+        double update_value = updateValue(individual, state_value, evaluation_update);
+        individual.set_value(update_value);
+        return update_value;
+    }
+
+    /**
+     * Applies the update rule to a new rollout value of an individual.
+     * @param individual - individual evaluated, holding its previous value.
+     * @param state_value - value of the new rollout.
+     * @param evaluation_update - update rule.
+     * @return new value of the individual.
+     */
+    private double updateValue(Individual individual, double state_value, int evaluation_update) {
         double update_value;
 
         switch(evaluation_update) {
@@ -186,27 +352,149 @@ public class GameInterface {
             default:
             case EVALUATE_UPDATE_RAW: update_value = state_value;
         }
-
-        // Set the individual's value and return it
-        individual.set_value(update_value);
         return update_value;
     }
 
+    /**
+     * Translates the value an individual has to beat into the rollout value it has to beat, given the update rule.
+     * @param individual - individual evaluated, holding its previous value.
+     * @param evaluation_update - update rule.
+     * @param target - value the individual has to beat, negative infinity if not racing.
+     * @return rollout value the individual has to beat, negative infinity if it can't be cut off.
+     */
+    private double raceTarget(Individual individual, int evaluation_update, double target) {
+        if (target == Double.NEGATIVE_INFINITY || params.evaluate_act == EVALUATE_ACT_LAST
+                || params.evaluate_act == EVALUATE_ACT_DELTA) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        switch(evaluation_update) {
+            case EVALUATE_UPDATE_AVERAGE: return 2 * target - individual.get_value();
+            case EVALUATE_UPDATE_MIN: return individual.get_value() > target ? target : Double.POSITIVE_INFINITY;
+            case EVALUATE_UPDATE_MAX: return individual.get_value() > target ? Double.NEGATIVE_INFINITY : target;
+            case EVALUATE_UPDATE_RAW: return target;
+            default:
+            case EVALUATE_UPDATE_DELTA: return Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Upper bound of the value of a rollout from the values of the states reached so far. Assumes all states not yet
+     * reached, including those of MC rollouts, get the highest heuristic value. With MC rollouts, the rollout may
+     * still end in a terminal state and get no MC rollout (nor normalisation), so the bound covers both outcomes.
+     * @param values - values of the states reached, up to index lastIdx.
+     * @param lastIdx - index of the last state reached.
+     * @param length - length of the rollout.
+     * @return best value the rollout could still get.
+     */
+    private double optimisticValue(double[] values, int lastIdx, int length) {
+        double value = bestRolloutValue(values, lastIdx, length + 1);
+        if (params.mc_rollouts) {
+            // MC rollout values start with the state the individual ended in again
+            double mcValue = bestRolloutValue(values, lastIdx, length + 2 + params.mc_rollouts_length);
+            value = Math.max(value, Utils.normalise(mcValue, bounds[0], bounds[1]));
+        }
+        return value;
+    }
+
+    /**
+     * @return value of a rollout through nValues states, of which those after lastIdx get the highest heuristic value.
+     */
+    private double bestRolloutValue(double[] values, int lastIdx, int nValues) {
+        double[] bestValues = new double[nValues];
+        System.arraycopy(values, 0, bestValues, 0, lastIdx + 1);
+        Arrays.fill(bestValues, lastIdx + 1, nValues, bounds[1]);
+        return getRolloutValue(bestValues);
+    }
+
+    /**
+     * Evaluate given individuals, without mutation. Individuals are evaluated concurrently if a parallel evaluator
+     * was set up (params.evaluation_threads > 1), one after the other otherwise.
+     * @param individuals - individuals to evaluate.
+     * @param evaluation_update - update rule for the values of the individuals.
+     */
+    public void evaluate(Individual[] individuals, int evaluation_update) {
+        evaluate(individuals, evaluation_update, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Evaluate given individuals, without mutation, racing each of them against the given target value.
+     * @param individuals - individuals to evaluate.
+     * @param evaluation_update - update rule for the values of the individuals.
+     * @param target - value the individuals have to beat to be fully evaluated. Negative infinity disables racing.
+     */
+    public void evaluate(Individual[] individuals, int evaluation_update, double target) {
+        if (evaluator != null) {
+            evaluator.evaluate(individuals, evaluation_update, target);
+        } else {
+            for (Individual individual : individuals) {
+                evaluate(individual, null, evaluation_update, target);
+            }
+        }
+    }
+
+    /**
+     * Walks down the rollout cache following the actions of the given individual, for as long as the states reached
+     * are cached and not terminal.
+     * @param values - array in which we'll save state values for every action we pass through
+     * @param individual - individual to look up
+     * @return deepest node reached. Its depth is the number of actions whose resulting states were found in the cache.
+     */
+    private RolloutCache.Node findCachedPrefix(double[] values, Individual individual) {
+        int length = individual.get_length();
+        RolloutCache.Node node = rolloutCache.getRoot();
+        while (node.depth < length && !node.state.isTerminal()) {
+            RolloutCache.Node child = rolloutCache.getChild(node, individual.get_action(node.depth));
+            if (child == null) {
+                break;
+            }
+            values[child.depth] = needsStateValue(node.depth, length) ? cachedValue(child) : 0;
+            rolloutCache.hit();
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * @return heuristic value of the state in the given cache node, computing it if not done before.
+     */
+    private double cachedValue(RolloutCache.Node node) {
+        if (Double.isNaN(node.value)) {
+            node.value = evaluateState(node.state);
+        }
+        return node.value;
+    }
+
+    /**
+     * @param i - index of the action that was just applied.
+     * @param length - length of the rollout.
+     * @return true if the value of the state reached after action i is used by the evaluation method.
+     */
+    private boolean needsStateValue(int i, int length) {
+        // Delta and last evaluations only need the last state evaluated, speed up execution
+        return !((params.evaluate_act == EVALUATE_ACT_DELTA || params.evaluate_act == EVALUATE_ACT_LAST)
+                && (i != length - 1));
+    }
+
     /**
      * Evaluates an individual by rolling the state forward through the actions
      * @param values - array in which we'll save state values for every action we pass through
-     * @param copy - copy of root game state
+     * @param copy - copy of the game state reached after the first 'start' actions
+     * @param start - index of the first action to apply, 0 when rolling from the root state
      * @param length - length of this rollout
      * @param individual - individual that should be used for the rollout. If null, we're doing random rollout.
      * @param mutation - mutation class containing information about genes which should be mutated for this individual,
      *                 used during rollout to modify genes if needed.
+     * @param node - rollout cache node of the state in copy, to which the states rolled through are added. May be null.
+     * @param raceTarget - the rollout stops once its optimistic value is no better than this. Negative infinity
+     *                   to always complete the rollout.
      * @return index of last action reached. may terminate early if a terminal state is reached before the end
-     * of the rollout length.
+     * of the rollout length, or if the rollout was cut off.
      */
-    private int evaluateRollout(double[] values, GameState copy, int length, Individual individual,
-                                Mutation mutation) {
+    private int evaluateRollout(double[] values, GameState copy, int start, int length, Individual individual,
+                                Mutation mutation, RolloutCache.Node node, double raceTarget) {
         // Keep track of where the rollout stopped (in case of early terminal state).
-        int lastIdx = 0;
+        int lastIdx = Math.max(0, start - 1);
+        boolean caching = node != null && individual != null;
 
         // Retrieve the list of genes to mutate.
         TIntHashSet genesToMutate = null;
@@ -215,7 +503,7 @@ public class GameInterface {
         }
 
         // Roll through the actions
-        for (int i = 0; i < length; i++) {
+        for (int i = start; i < length; i++) {
             // Stop if the state reached is terminal
             if (!copy.isTerminal()) {
                 if (individual != null) {
@@ -240,13 +528,36 @@ public class GameInterface {
                 fmBudget.use();
 
                 // Save the value of this state in the values array and update lastIdx reached.
-                if ((params.evaluate_act == EVALUATE_ACT_DELTA || params.evaluate_act == EVALUATE_ACT_LAST)
-                        && (i != length - 1)) {  // This only needs last state evaluated, speed up execution
+                boolean valueNeeded = needsStateValue(i, length);
+                if (!valueNeeded) {  // This only needs last state evaluated, speed up execution
                     values[i + 1] = 0;
                 } else {  // In all other cases we need all intermediate state values.
                     values[i + 1] = evaluateState(copy);
                 }
                 lastIdx = i;
+
+                // Remember the state reached for later evaluations sharing this prefix, while there's room
+                if (caching) {
+                    rolloutCache.miss();
+                    if (node != null) {
+                        node = rolloutCache.addChild(node, individual.get_action(i), copy,
+                                valueNeeded ? values[i + 1] : Double.NaN);
+                    }
+                }
+
+                // Stop if this individual can't beat the race target anymore
+                if (raceTarget != Double.NEGATIVE_INFINITY && i < length - 1 && !copy.isTerminal()
+                        && optimisticValue(values, i + 1, length) <= raceTarget) {
+                    // Apply the remaining mutations so the individual matches the value given
+                    if (genesToMutate != null) {
+                        for (int j = i + 1; j < length; j++) {
+                            if (genesToMutate.contains(j)) {
+                                mutation.mutateGeneToNewValue(individual, j);
+                            }
+                        }
+                    }
+                    return i + 1;
+                }
             } else {
                 break;
             }
@@ -317,7 +628,8 @@ public class GameInterface {
             }
 
             // Passing null as individual and mutation to perform random rollout
-            int lastIdx = evaluateRollout(values, first, params.mc_rollouts_length, null, null);
+            int lastIdx = evaluateRollout(values, first, 0, params.mc_rollouts_length, null, null, null,
+                    Double.NEGATIVE_INFINITY);
 
             if (lastIdx < values.length - 1) {
                 // We may have terminated the rollout earlier due to reaching terminal state
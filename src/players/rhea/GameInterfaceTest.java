@@ -0,0 +1,93 @@
+package players.rhea;
+
+import core.GameState;
+import org.junit.jupiter.api.Test;
+import players.rhea.evo.Individual;
+import players.rhea.utils.FMBudget;
+import players.rhea.utils.RHEAParams;
+import utils.ElapsedCpuTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static players.rhea.utils.Constants.*;
+
+class GameInterfaceTest {
+
+    // Interfaces created with the same seed roll out with the same opponent actions (and MC rollouts)
+    private static GameInterface newInterface(RHEAParams params, long seed, FMBudget budget, GameState root) {
+        GameInterface gameInterface = new GameInterface(params, new Random(seed), 0, budget);
+        gameInterface.initTick(root, new ElapsedCpuTimer());
+        return gameInterface;
+    }
+
+    /**
+     * Evaluates random individuals fully, then racing them against the values of the individuals before them (as the
+     * best of a population would be) and against values just below and above their own.
+     * @return number of rollouts cut off.
+     */
+    private static int race(RHEAParams params, GameState root, int evaluationUpdate, Random random) {
+        int cutOff = 0;
+        List<Double> values = new ArrayList<>();
+        for (int k = 0; k < 20; k++) {
+            Individual individual = RolloutCacheTest.randomIndividual(params.individual_length, random);
+            individual.set_value(random.nextDouble() * 2 - 1);
+            long seed = random.nextLong();
+
+            FMBudget budget = new FMBudget(Integer.MAX_VALUE);
+            double value = newInterface(params, seed, budget, root).evaluate(individual.copy(), null, evaluationUpdate);
+
+            List<Double> targets = new ArrayList<>(values.subList(Math.max(0, k - 5), k));
+            targets.add(value - 1e-9);
+            targets.add(value + 1e-9);
+            for (double target : targets) {
+                FMBudget racingBudget = new FMBudget(Integer.MAX_VALUE);
+                double racingValue = newInterface(params, seed, racingBudget, root)
+                        .evaluate(individual.copy(), null, evaluationUpdate, target);
+
+                String message = individual + " target " + target + " evaluate_act " + params.evaluate_act
+                        + " mc_rollouts " + params.mc_rollouts + " update " + evaluationUpdate + ": " + value;
+                if (racingBudget.getUsed() < budget.getUsed()) {
+                    // Cut off: the value given is an upper bound, and not better than the target
+                    cutOff++;
+                    assertTrue(value <= target, message + " cut off at " + racingValue);
+                    assertTrue(value <= racingValue, message + " cut off at " + racingValue);
+                    assertTrue(racingValue <= target, message + " cut off at " + racingValue);
+                } else {
+                    assertEquals(value, racingValue, message);
+                }
+            }
+            values.add(value);
+        }
+        return cutOff;
+    }
+
+    @Test
+    void racingOnlyCutsOffLosers() {
+        List<GameState> observations = RolloutCacheTest.observations();
+        for (int evaluateAct : new int[]{EVALUATE_ACT_LAST, EVALUATE_ACT_DELTA, EVALUATE_ACT_AVG, EVALUATE_ACT_MIN,
+                EVALUATE_ACT_MAX, EVALUATE_ACT_DISCOUNT}) {
+            for (boolean mcRollouts : new boolean[]{false, true}) {
+                int cutOff = 0;
+                // Player count values reach the top of the heuristic range without the game ending
+                for (int heuristic : new int[]{CUSTOM_HEURISTIC, PLAYER_COUNT_HEURISTIC}) {
+                    for (int evaluationUpdate : new int[]{EVALUATE_UPDATE_RAW, EVALUATE_UPDATE_AVERAGE,
+                            EVALUATE_UPDATE_MIN, EVALUATE_UPDATE_MAX}) {
+                        RHEAParams params = new RHEAParams();
+                        params.heurisic_type = heuristic;
+                        params.evaluate_act = evaluateAct;
+                        params.mc_rollouts = mcRollouts;
+                        for (int r = 0; r < observations.size(); r += 40) {
+                            cutOff += race(params, observations.get(r), evaluationUpdate, new Random(r));
+                        }
+                    }
+                }
+                // Last and delta evaluations are never raced
+                boolean raced = evaluateAct != EVALUATE_ACT_LAST && evaluateAct != EVALUATE_ACT_DELTA;
+                assertEquals(raced, cutOff > 0, "evaluate_act " + evaluateAct + " mc_rollouts " + mcRollouts);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package players.rhea;
+
+import core.GameState;
+import players.rhea.evo.Individual;
+import players.rhea.utils.FMBudget;
+import players.rhea.utils.RHEAParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates groups of individuals concurrently. Each worker owns a GameInterface with its own random generator,
+ * copy of the root state, state heuristic and FM budget. Workers count their FM calls in their own budget during a
+ * group, and the calls of all of them are charged to the FM budget of the player once the group is evaluated, so the
+ * player's budget only changes between groups, in the calling thread.
+ * Individuals are statically assigned to workers (individual i goes to worker i % nWorkers) and each worker goes
+ * through its share in order, so results are reproducible for a fixed seed and number of workers with iteration and
+ * FM budgets. With a time budget they aren't, as how many generations fit in it depends on timing.
+ *
+ * The worker threads are started on the first evaluation, and stop after IDLE_SECONDS without evaluations, so players
+ * that are copied and dropped (e.g. with Game.copy) don't leave idle threads behind even if never shut down.
+ */
+class ParallelEvaluator {
+    private static final long IDLE_SECONDS = 10;
+
+    private GameInterface[] workers;
+    private FMBudget[] workerBudgets;
+    private FMBudget fmBudget;
+    private ThreadPoolExecutor executor;    // Created on first use
+    private boolean shutdown = false;
+
+    /**
+     * @param params - parameters of the player.
+     * @param random - random generator of the player, used to seed the generators of the workers.
+     * @param playerID - ID of the player, in range [0, 3].
+     * @param fmBudget - FM budget of the player, charged with the calls of all workers.
+     * @param nWorkers - number of workers. The calling thread acts as the first one.
+     */
+    ParallelEvaluator(RHEAParams params, Random random, int playerID, FMBudget fmBudget, int nWorkers) {
+        this.fmBudget = fmBudget;
+        workers = new GameInterface[nWorkers];
+        workerBudgets = new FMBudget[nWorkers];
+        for (int i = 0; i < nWorkers; i++) {
+            workerBudgets[i] = new FMBudget(params.fm_budget);
+            workers[i] = new GameInterface(params, new Random(random.nextLong()), playerID, workerBudgets[i]);
+        }
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        if (shutdown) {
+            throw new IllegalStateException("The evaluator is shut down");
+        }
+        if (executor == null) {
+            int nThreads = workers.length - 1;
+            executor = new ThreadPoolExecutor(nThreads, nThreads, IDLE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "rhea-evaluator");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Gives every worker its own copy of the new root state and a heuristic built from it.
+     * @param rootState - current game state observation.
+     */
+    void initTick(GameState rootState) {
+        for (GameInterface worker : workers) {
+            worker.initWorkerTick(rootState.copy());
+        }
+    }
+
+    /**
+     * Records the action played after this decision in all workers, see GameInterface.setPlayedAction.
+     */
+    void setPlayedAction(int action) {
+        for (GameInterface worker : workers) {
+            worker.setPlayedAction(action);
+        }
+    }
+
+    /**
+     * @return number of individuals evaluated by all workers so far.
+     */
+    int getRollouts() {
+        int rollouts = 0;
+        for (GameInterface worker : workers) {
+            rollouts += worker.getRollouts();
+        }
+        return rollouts;
+    }
+
+    /**
+     * Evaluates all given individuals, without mutation. Returns once all of them have their new value set.
+     * @param individuals - individuals to evaluate.
+     * @param evaluation_update - update rule for the values of the individuals.
+     * @param target - value the individuals have to beat to be fully evaluated, see GameInterface.evaluate.
+     */
+    void evaluate(Individual[] individuals, int evaluation_update, double target) {
+        int nWorkers = Math.min(workers.length, individuals.length);
+        for (FMBudget workerBudget : workerBudgets) {
+            workerBudget.reset();
+        }
+        List<Future<?>> futures = new ArrayList<>(nWorkers);
+        for (int w = 1; w < nWorkers; w++) {
+            final int workerIdx = w;
+            futures.add(getExecutor().submit(() -> evaluateShare(workerIdx, individuals, evaluation_update, target)));
+        }
+        evaluateShare(0, individuals, evaluation_update, target);
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while evaluating individuals", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Evaluation of individuals failed", e.getCause());
+            }
+        }
+
+        for (FMBudget workerBudget : workerBudgets) {
+            fmBudget.use(workerBudget.getUsed());
+        }
+    }
+
+    private void evaluateShare(int workerIdx, Individual[] individuals, int evaluation_update, double target) {
+        for (int i = workerIdx; i < individuals.length; i += workers.length) {
+            workers[workerIdx].evaluate(individuals[i], null, evaluation_update, target);
+        }
+    }
+
+    /**
+     * Stops the worker threads. This evaluator can't be used afterwards.
+     */
+    void shutdown() {
+        shutdown = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
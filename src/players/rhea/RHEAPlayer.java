@@ -8,12 +8,14 @@ import utils.ElapsedCpuTimer;
 import utils.Types;
 
 import java.util.Random;
+import static players.rhea.utils.Constants.INIT_MCTS;
 import static players.rhea.utils.Constants.TIME_BUDGET;
 
 public class RHEAPlayer extends ParameterizedPlayer {
     private RollingHorizonPlayer player;
     private GameInterface gInterface;
     private RHEAParams params;
+    private int lastRollouts = -1;      // Individuals evaluated in the last decision
 
     public RHEAPlayer(long seed, int playerID) {
         this(seed, playerID, new RHEAParams());
@@ -38,6 +40,11 @@ public class RHEAPlayer extends ParameterizedPlayer {
         // Set up random generator
         Random randomGenerator = new Random(seed);
 
+        // Stop evaluation threads of the previous interface, if any
+        if (gInterface != null) {
+            gInterface.shutdown();
+        }
+
         // Create interface with game
         gInterface = new GameInterface(this.params, randomGenerator, playerID - Types.TILETYPE.AGENT0.getKey());
 
@@ -49,11 +56,27 @@ public class RHEAPlayer extends ParameterizedPlayer {
     public Types.ACTIONS act(GameState gs) {
         ElapsedCpuTimer elapsedTimer = null;
         if (params.budget_type == TIME_BUDGET) {
-            elapsedTimer = new ElapsedCpuTimer();
+            // Worker threads do the evaluations while this one waits, so its CPU time can't be used as budget
+            boolean parallelSeeding = params.mcts_threads > 1 && params.init_type == INIT_MCTS;
+            elapsedTimer = new ElapsedCpuTimer(params.evaluation_threads > 1 || parallelSeeding);
             elapsedTimer.setMaxTimeMillis(params.time_budget);
         }
         setup(gs, elapsedTimer);
-        return gInterface.translate(player.getAction(elapsedTimer, gs.nActions()));
+        int rollouts = gInterface.getRollouts();
+        int action = player.getAction(elapsedTimer, gs.nActions());
+        lastRollouts = gInterface.getRollouts() - rollouts;
+        gInterface.setPlayedAction(action);
+        return gInterface.translate(action);
+    }
+
+    @Override
+    public int getLastIterations() {
+        return player.getLastIterations();
+    }
+
+    @Override
+    public int getLastRollouts() {
+        return lastRollouts;
     }
 
     @Override
@@ -17,6 +17,7 @@ class RollingHorizonPlayer {
     private boolean newBuffer;
 
     private Evolution ea;
+    private int lastIterations = -1;    // Iterations of the last call to getAction
 
 
     RollingHorizonPlayer(Random randomGenerator, RHEAParams params, GameInterface gInterface) {
@@ -38,12 +39,14 @@ class RollingHorizonPlayer {
 //        System.out.println();
         // Find best next action within the allowed budget
         int action = max_actions;
+        int iterations = ea.getNIterations();
         while (gameInterface.budget(elapsedTimer, params.iteration_budget - ea.getNIterations(),
                 null)) {
             action = ea.iteration();
             gameInterface.endIteration(elapsedTimer, null);
         }
 //        System.out.println(Arrays.toString(ea.population));
+        lastIterations = ea.getNIterations() - iterations;
 
         // Play next action in the action buffer
         for (int i = 0; i < params.frame_skip; i++) {
@@ -73,6 +76,10 @@ class RollingHorizonPlayer {
         return action;
     }
 
+    int getLastIterations() {
+        return lastIterations;
+    }
+
     private int getBestAction(int idx) {
         return ea.getBestAction(idx);
     }
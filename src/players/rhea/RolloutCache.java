@@ -0,0 +1,142 @@
+package players.rhea;
+
+import core.GameState;
+
+/**
+ * Trie of the game states reached by rolling the root state forward through prefixes of action sequences. Each node
+ * keeps the state reached after its prefix and, once computed, the heuristic value of that state. Evaluations of
+ * individuals that share a prefix with one seen before (e.g. offspring and their parents) can resume from the
+ * deepest cached state instead of the root.
+ * Opponent actions are sampled when a node is first created, so all individuals sharing a prefix also share the
+ * opponent behaviour along it.
+ * The cache is emptied at every decision (when the root changes), unless the state reached by the action played
+ * matches the new observation: the subtree under that action is then carried over as the new trie. The cache stops
+ * growing once maxNodes states are stored.
+ * Cached steps don't use the FM budget; an evaluation served entirely from the cache is charged 1 FM call.
+ */
+class RolloutCache {
+    private int maxNodes;
+    private int nNodes;
+    private int nActions;
+    private Node root;
+
+    // Forward model steps taken from the cache (hits) and simulated (misses) since the last reset
+    private int hits, misses;
+
+    RolloutCache(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Empties the cache and sets up a new root.
+     * @param rootState - state at the root of the trie. Not modified by the cache.
+     * @param nActions - number of distinct actions in the sequences.
+     */
+    void reset(GameState rootState, int nActions) {
+        this.nActions = nActions;
+        root = new Node(rootState, 0);
+        nNodes = 1;
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * Moves the root to its child reached through the action played, if the state cached there is the state observed
+     * now. Cached states below it are kept, as they follow from the new root. Their values are cleared, since the
+     * heuristic changes with the root.
+     * @param action - action played from the old root.
+     * @param observed - state observed after playing the action.
+     * @return true if the cache was carried over, false if the caller should reset it.
+     */
+    boolean advance(int action, GameState observed) {
+        Node child = root == null ? null : getChild(root, action);
+        if (child == null || !child.state.equals(observed)) {
+            return false;
+        }
+        root = child;
+        nNodes = reroot(child);
+        hits = 0;
+        misses = 0;
+        return true;
+    }
+
+    /**
+     * Moves the given subtree one level up and clears its values.
+     * @return number of nodes in the subtree.
+     */
+    private int reroot(Node node) {
+        node.depth--;
+        node.value = Double.NaN;
+        int count = 1;
+        if (node.children != null) {
+            for (Node child : node.children) {
+                if (child != null) {
+                    count += reroot(child);
+                }
+            }
+        }
+        return count;
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the child of the given node reached through the given action, or null if not in the cache.
+     */
+    Node getChild(Node node, int action) {
+        if (node.children == null) return null;
+        return node.children[action];
+    }
+
+    /**
+     * Adds a new child to the given node, if the cache still has room for it.
+     * @param parent - node the state was reached from.
+     * @param action - action that leads from the parent to the new node.
+     * @param state - state reached. A copy of it is stored.
+     * @param value - heuristic value of the state, NaN if not computed.
+     * @return the new node, or null if the cache is full.
+     */
+    Node addChild(Node parent, int action, GameState state, double value) {
+        if (nNodes >= maxNodes) return null;
+        if (parent.children == null) {
+            parent.children = new Node[nActions];
+        }
+        Node child = new Node(state.copy(), parent.depth + 1);
+        child.value = value;
+        parent.children[action] = child;
+        nNodes++;
+        return child;
+    }
+
+    void hit() { hits++; }
+
+    void miss() { misses++; }
+
+    int getHits() { return hits; }
+
+    int getMisses() { return misses; }
+
+    int size() { return nNodes; }
+
+    /**
+     * @return fraction of forward model steps served from the cache since the last reset.
+     */
+    double getHitRate() {
+        int total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    static class Node {
+        final GameState state;
+        int depth;
+        double value = Double.NaN;
+        private Node[] children;
+
+        private Node(GameState state, int depth) {
+            this.state = state;
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package players.rhea;
+
+import core.Game;
+import core.GameState;
+import org.junit.jupiter.api.Test;
+import players.Player;
+import players.SimplePlayer;
+import players.rhea.evo.Individual;
+import players.rhea.utils.FMBudget;
+import players.rhea.utils.RHEAParams;
+import utils.ElapsedCpuTimer;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static players.rhea.utils.Constants.*;
+
+class RolloutCacheTest {
+
+    // Opponents (and MC rollouts) always play the last action, so a state cached for a prefix is the state an
+    // uncached rollout reaches through it
+    static class LastActionRandom extends Random {
+        @Override
+        public int nextInt(int bound) {
+            return bound - 1;
+        }
+    }
+
+    private static class RecordingPlayer extends SimplePlayer {
+        private final List<GameState> observations = new ArrayList<>();
+
+        RecordingPlayer(long seed, int id) {
+            super(seed, id);
+        }
+
+        @Override
+        public Types.ACTIONS act(GameState gs) {
+            observations.add(gs.copy());
+            return super.act(gs);
+        }
+    }
+
+    // Observations of the first agent in a game
+    static List<GameState> observations() {
+        Game game = new Game(1234, Types.BOARD_SIZE, Types.GAME_MODE.FFA, "");
+        ArrayList<Player> players = new ArrayList<>();
+        for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+            players.add(new RecordingPlayer(1234 + i, Types.TILETYPE.AGENT0.getKey() + i));
+        }
+        game.setPlayers(players);
+        game.run(false);
+        return ((RecordingPlayer) players.get(0)).observations;
+    }
+
+    static Individual randomIndividual(int length, Random random) {
+        int nActions = Types.ACTIONS.all().size();
+        Individual individual = new Individual(length, random, nActions);
+        for (int i = 0; i < length; i++) {
+            individual.set_action(i, random.nextInt(nActions));
+        }
+        return individual;
+    }
+
+    // Random individuals, and individuals sharing a prefix with one before them or repeating it
+    private static List<Individual> individuals(RHEAParams params, Random random) {
+        int nActions = Types.ACTIONS.all().size();
+        List<Individual> individuals = new ArrayList<>();
+        // Bomb and wait: the agent dies halfway through, unless the bomb is kicked away
+        Individual bomb = new Individual(params.individual_length, random, nActions);
+        for (int i = 0; i < params.individual_length; i++) {
+            bomb.set_action(i, i == 0 ? Types.ACTIONS.ACTION_BOMB.getKey() : Types.ACTIONS.ACTION_STOP.getKey());
+        }
+        individuals.add(bomb);
+        for (int k = 0; k < 60; k++) {
+            if (k % 10 == 0) {
+                individuals.add(randomIndividual(params.individual_length, random));
+            } else {
+                Individual ind = individuals.get(random.nextInt(individuals.size())).copy();
+                if (k % 3 != 0) {
+                    ind.set_action(random.nextInt(params.individual_length), random.nextInt(nActions));
+                }
+                individuals.add(ind);
+            }
+        }
+        return individuals;
+    }
+
+    @Test
+    void cachedEvaluationsMatchUncached() {
+        List<GameState> observations = observations();
+        int evaluations = 0, terminalPrefixes = 0, evaluationsWhenFull = 0;
+        for (int evaluateAct : new int[]{EVALUATE_ACT_LAST, EVALUATE_ACT_DELTA, EVALUATE_ACT_AVG, EVALUATE_ACT_MIN,
+                EVALUATE_ACT_MAX, EVALUATE_ACT_DISCOUNT}) {
+            for (boolean mcRollouts : new boolean[]{false, true}) {
+                for (int cacheSize : new int[]{1000, 40}) {
+                    RHEAParams params = new RHEAParams();
+                    params.evaluate_act = evaluateAct;
+                    params.mc_rollouts = mcRollouts;
+                    params.rollout_cache_size = cacheSize;
+                    RHEAParams uncachedParams = new RHEAParams();
+                    uncachedParams.evaluate_act = evaluateAct;
+                    uncachedParams.mc_rollouts = mcRollouts;
+
+                    for (int r = 0; r < observations.size(); r += 25) {
+                        GameState root = observations.get(r);
+                        FMBudget budget = new FMBudget(Integer.MAX_VALUE);
+                        FMBudget uncachedBudget = new FMBudget(Integer.MAX_VALUE);
+                        GameInterface cached = new GameInterface(params, new LastActionRandom(), 0, budget);
+                        GameInterface uncached = new GameInterface(uncachedParams, new LastActionRandom(), 0,
+                                uncachedBudget);
+                        cached.initTick(root, new ElapsedCpuTimer());
+                        uncached.initTick(root, new ElapsedCpuTimer());
+                        RolloutCache cache = cached.getRolloutCache();
+
+                        for (Individual individual : individuals(params, new Random(r))) {
+                            int used = budget.getUsed(), uncachedUsed = uncachedBudget.getUsed();
+                            int hits = cache.getHits(), misses = cache.getMisses();
+                            boolean full = cache.size() == cacheSize;
+
+                            double value = cached.evaluate(individual.copy(), null, EVALUATE_UPDATE_RAW);
+                            double uncachedValue = uncached.evaluate(individual.copy(), null, EVALUATE_UPDATE_RAW);
+                            assertEquals(uncachedValue, value, individual.toString());
+
+                            // Cached steps are free, but an evaluation served entirely from the cache is charged 1
+                            hits = cache.getHits() - hits;
+                            misses = cache.getMisses() - misses;
+                            int fromCache = misses == 0 ? 1 : 0;
+                            assertEquals(uncachedBudget.getUsed() - uncachedUsed,
+                                    budget.getUsed() - used + hits - fromCache, individual.toString());
+
+                            evaluations++;
+                            if (misses == 0 && hits < params.individual_length) {
+                                terminalPrefixes++;
+                            }
+                            if (full && misses > 0) {
+                                evaluationsWhenFull++;
+                            }
+                        }
+                        if (cacheSize < 1000) {
+                            assertEquals(cacheSize, cache.size());
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(evaluations > 0);
+        assertTrue(terminalPrefixes > 0, "No evaluation stopped at a terminal state in the cache");
+        assertTrue(evaluationsWhenFull > 0, "No evaluation simulated steps once the cache was full");
+    }
+}
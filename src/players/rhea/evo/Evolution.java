@@ -21,6 +21,9 @@ public class Evolution {
 
     private GameInterface gInterface;
 
+    // If true, groups of individuals are handed to the game interface to be evaluated concurrently
+    private boolean parallelEvaluation;
+
     public Evolution(RHEAParams params, Random random, GameInterface gInterface) {
         this.params = params;
         this.random = random;
@@ -30,6 +33,7 @@ public class Evolution {
         nIterations = 0;
 
         this.gInterface = gInterface;
+        parallelEvaluation = params.evaluation_threads > 1;
     }
 
     public void init(int max_actions) {
@@ -88,9 +92,14 @@ public class Evolution {
             population[i] = new Individual(params.individual_length, random, max_actions);
             if (params.init_type == INIT_RANDOM) {
                 population[i].randomize();
-                gInterface.evaluate(population[i], null, params.evaluate_update);
+                if (!parallelEvaluation) {
+                    gInterface.evaluate(population[i], null, params.evaluate_update);
+                }
             }
         }
+        if (parallelEvaluation && params.init_type == INIT_RANDOM) {
+            gInterface.evaluate(population, params.evaluate_update);
+        }
     }
 
     private Individual select(Individual[] population) {
@@ -119,6 +128,7 @@ public class Evolution {
 
     private Individual[] generate_offspring() {
         Individual[] offspring = new Individual[params.offspring_count];
+        double target = raceTarget();
         for (int i = 0; i < params.offspring_count; i++) {
             if (params.genetic_operator == MUTATION_ONLY || params.population_size <= 2) {
                 offspring[i] = population[random.nextInt(population.length)].copy();
@@ -127,14 +137,36 @@ public class Evolution {
             }
             if (params.genetic_operator != CROSSOVER_ONLY) {
                 mutationClass.findGenesToMutate();
-                gInterface.evaluate(offspring[i], mutationClass, params.evaluate_update);
-            } else {
-                gInterface.evaluate(offspring[i], null, params.evaluate_update);
+                if (parallelEvaluation) {
+                    // Mutate now, all offspring are evaluated together below
+                    mutationClass.mutate(offspring[i]);
+                } else {
+                    gInterface.evaluate(offspring[i], mutationClass, params.evaluate_update, target);
+                }
+            } else if (!parallelEvaluation) {
+                gInterface.evaluate(offspring[i], null, params.evaluate_update, target);
             }
         }
+        if (parallelEvaluation) {
+            gInterface.evaluate(offspring, params.evaluate_update, target);
+        }
         return offspring;
     }
 
+    /**
+     * @return value offspring have to beat to be fully evaluated: the best value in the population if racing,
+     * negative infinity otherwise.
+     */
+    private double raceTarget() {
+        double target = Double.NEGATIVE_INFINITY;
+        if (params.racing) {
+            for (Individual individual : population) {
+                target = Math.max(target, individual.get_value());
+            }
+        }
+        return target;
+    }
+
     /**
      * Assumes population and offspring are already sorted in descending order by individual fitness
      * @param offspring - offspring created from parents population
@@ -154,9 +186,7 @@ public class Evolution {
         if (params.keep_parents_next_gen) {
             // Reevaluate current population
             if (params.reevaluate_pop) {
-                for (Individual i : population) {
-                    gInterface.evaluate(i, null, params.evaluate_update);
-                }
+                gInterface.evaluate(population, params.evaluate_update);
             }
             // If we should keep best individuals of parents + offspring, then combine array
             offspring = Utilities.add_array_to_array(population, offspring, startIdx);
@@ -184,8 +214,13 @@ public class Evolution {
                 population[i].set_action(j - 1, population[i].get_action(j));
             }
             population[i].set_action(params.individual_length - 1, random.nextInt(max_actions));
-            gInterface.evaluate(population[i], null, EVALUATE_UPDATE_AVERAGE);
+            if (!parallelEvaluation) {
+                gInterface.evaluate(population[i], null, EVALUATE_UPDATE_AVERAGE);
+            }
 //            population[i].discount_value(params.shift_discount);
         }
+        if (parallelEvaluation) {
+            gInterface.evaluate(population, EVALUATE_UPDATE_AVERAGE);
+        }
     }
 }
@@ -90,6 +90,20 @@ public class Mutation {
         return genesToMutate;
     }
 
+    /**
+     * Mutates the genes found by the last call to findGenesToMutate straight away, instead of during the evaluation
+     * rollout of the individual.
+     * @param ind - individual to mutate
+     */
+    public void mutate(Individual ind) {
+        int length = ind.get_length();
+        for (int i = 0; i < length; i++) {
+            if (genesToMutate.contains(i)) {
+                mutateGeneToNewValue(ind, i);
+            }
+        }
+    }
+
     /**
      * Changes given gene to new random value in range [0, max_value). New gene will NOT be the same as current.
      * @param idx - index of gene to mutate
@@ -1,87 +1,67 @@
 package players.rhea.hybrids;
 
 import core.GameState;
-import players.rhea.GameInterface;
-import players.rhea.utils.FMBudget;
-import players.heuristics.StateHeuristic;
-import utils.ElapsedCpuTimer;
-import utils.Types;
 import utils.Utils;
 
-import java.util.ArrayList;
-import java.util.Random;
+import java.util.Arrays;
 
-public class MCTSNode
+/**
+ * Node of a seeding MCTS tree. Nodes are owned by the pool of their MCTSTree and reused between searches, so all
+ * search state that is not specific to the node is read from the tree.
+ */
+class MCTSNode
 {
     private MCTSNode parent;
     private MCTSNode[] children;
     private double totValue;
     private int nVisits;
-    private Random m_rnd;
     private int m_depth;
     private double[] bounds = new double[]{-1, 1};
     private int childIdx;
 
-    private int num_actions;
-    private Types.ACTIONS[] actions;
-    private int ROLLOUT_DEPTH = 10;
-    private double K = Math.sqrt(2);
+    private MCTSTree tree;
 
-    public static GameState rootState;
-    private StateHeuristic stateHeuristic;
-    private static GameInterface gameInterface;
-    private static FMBudget fmBudget;
-
-    private static ArrayList<MCTSNode> allNodes;
-
-    public MCTSNode(Random rnd, int num_actions, Types.ACTIONS[] actions, StateHeuristic sh, GameInterface gInterface) {
-        this(null, -1, rnd, num_actions, actions, sh, gInterface);
+    MCTSNode(MCTSTree tree, int num_actions) {
+        this.tree = tree;
+        children = new MCTSNode[num_actions];
     }
 
-    private MCTSNode(MCTSNode parent, int childIdx, Random rnd, int num_actions, Types.ACTIONS[] actions,
-                     StateHeuristic sh, GameInterface gInterface) {
-        this.stateHeuristic = sh;
-        MCTSNode.gameInterface = gInterface;
+    /**
+     * Clears this node so it can be placed in a new position of the tree.
+     * @param parent - parent node, null for the root.
+     * @param childIdx - index of the action leading to this node from its parent, -1 for the root.
+     */
+    void reset(MCTSNode parent, int childIdx) {
         this.parent = parent;
-        this.m_rnd = rnd;
-        this.num_actions = num_actions;
-        this.actions = actions;
-        children = new MCTSNode[num_actions];
-        totValue = 0.0;
         this.childIdx = childIdx;
-        if(parent != null) {
+        Arrays.fill(children, null);
+        totValue = 0.0;
+        nVisits = 0;
+        bounds[0] = -1;
+        bounds[1] = 1;
+        if (parent != null)
             m_depth = parent.m_depth + 1;
-            allNodes.add(this);
-        }
         else
             m_depth = 0;
     }
 
-    public void mctsSearch(ElapsedCpuTimer elapsedTimer, int fm_budget, int iteration_budget, int depth) {
-        allNodes = new ArrayList<>();
-
-        fmBudget = new FMBudget(fm_budget);
-        int numIters = iteration_budget;
-
-        ROLLOUT_DEPTH = depth;
-
-        while(gameInterface.budget(elapsedTimer, numIters, fmBudget)){
-            GameState state = rootState.copy();
+    int getDepth() {
+        return m_depth;
+    }
 
-            MCTSNode selected = treePolicy(state);
-            double delta = selected.rollOut(state, fm_budget);
-            backUp(selected, delta);
+    int getChildIdx() {
+        return childIdx;
+    }
 
-            numIters--;
-            gameInterface.endIteration(elapsedTimer, fmBudget);
-        }
+    int getNVisits() {
+        return nVisits;
     }
 
-    private MCTSNode treePolicy(GameState state) {
+    MCTSNode treePolicy(GameState state) {
 
         MCTSNode cur = this;
 
-        while (!state.isTerminal() && cur.m_depth < ROLLOUT_DEPTH)
+        while (!state.isTerminal() && cur.m_depth < tree.rolloutDepth)
         {
             if (cur.notFullyExpanded()) {
                 return cur.expand(state);
@@ -101,7 +81,7 @@ public class MCTSNode
 
         int nChildren = children.length;
         for (int i = 0; i < nChildren; i++) {
-            double x = m_rnd.nextDouble();
+            double x = tree.random.nextDouble();
             if (x > bestValue && children[i] == null) {
                 bestAction = i;
                 bestValue = x;
@@ -109,11 +89,10 @@ public class MCTSNode
         }
 
         //Roll the state
-        gameInterface.advanceState(state, actions[bestAction]);
-        fmBudget.use();
+        tree.gameInterface.advanceState(state, tree.actions[bestAction]);
+        tree.fmBudget.use();
 
-        MCTSNode tn = new MCTSNode(this, bestAction, this.m_rnd, num_actions, actions, stateHeuristic,
-                gameInterface);
+        MCTSNode tn = tree.newNode(this, bestAction);
         children[bestAction] = tn;
         return tn;
     }
@@ -131,9 +110,9 @@ public class MCTSNode
             childValue = Utils.normalise(childValue, bounds[0], bounds[1]);
 
             double uctValue = childValue +
-                    K * Math.sqrt(Math.log(this.nVisits + 1) / (child.nVisits + epsilon));
+                    tree.K * Math.sqrt(Math.log(this.nVisits + 1) / (child.nVisits + epsilon));
 
-            uctValue = Utils.noise(uctValue, epsilon, this.m_rnd.nextDouble());     //break ties randomly
+            uctValue = Utils.noise(uctValue, epsilon, tree.random.nextDouble());     //break ties randomly
 
             // small sampleRandom numbers: break ties in unexpanded nodes
             if (uctValue > bestValue) {
@@ -148,22 +127,22 @@ public class MCTSNode
         }
 
         //Roll the state:
-        gameInterface.advanceState(state, actions[selected.childIdx]);
-        fmBudget.use();
+        tree.gameInterface.advanceState(state, tree.actions[selected.childIdx]);
+        tree.fmBudget.use();
 
         return selected;
     }
 
 
-    private double rollOut(GameState state, int numCalls)
+    double rollOut(GameState state, int numCalls)
     {
         int thisDepth = this.m_depth;
 
         while (!finishRollout(state, thisDepth, numCalls)) {
 
-            int action = m_rnd.nextInt(num_actions);
-            gameInterface.advanceState(state, actions[action]);
-            fmBudget.use();
+            int action = tree.random.nextInt(children.length);
+            tree.gameInterface.advanceState(state, tree.actions[action]);
+            tree.fmBudget.use();
             thisDepth++;
         }
 
@@ -179,16 +158,16 @@ public class MCTSNode
         return delta;
     }
 
-    public double value(GameState a_gameState) {
-        return gameInterface.evaluateState(a_gameState);
+    private double value(GameState a_gameState) {
+        return tree.gameInterface.evaluateState(a_gameState);
     }
 
     private boolean finishRollout(GameState rollerState, int depth, int numCalls)
     {
-        if (fmBudget.getUsed() >= numCalls)
+        if (tree.fmBudget.getUsed() >= numCalls)
             return true;
 
-        if (depth >= ROLLOUT_DEPTH)      //rollout end condition.
+        if (depth >= tree.rolloutDepth)      //rollout end condition.
             return true;
 
         //end of game
@@ -196,9 +175,9 @@ public class MCTSNode
 
     }
 
-    private void backUp(MCTSNode node, double result)
+    void backUp(double result)
     {
-        MCTSNode n = node;
+        MCTSNode n = this;
         while(n != null)
         {
             n.nVisits++;
@@ -207,30 +186,6 @@ public class MCTSNode
         }
     }
 
-    public double[][] compressTree(int max_depth, int max_actions) {
-        double[][] actions = new double[max_depth][max_actions];
-        double[] sum = new double[max_depth];
-
-        for (MCTSNode n: allNodes) {
-
-            if (actions[n.m_depth - 1] == null) {
-                actions[n.m_depth - 1] = new double[max_actions];
-            }
-
-            actions[n.m_depth - 1][n.childIdx] += n.nVisits;
-            sum[n.m_depth - 1] += n.nVisits;
-        }
-
-        // Break down to percentages
-        for (int i = 0; i < max_depth; i++) {
-            for (int j = 0; j < max_actions; j++) {
-                actions[i][j] /= sum[i];
-            }
-        }
-
-        return actions;
-    }
-
     private boolean notFullyExpanded() {
         for (MCTSNode tn : children) {
             if (tn == null) {
@@ -0,0 +1,146 @@
+package players.rhea.hybrids;
+
+import core.GameState;
+import players.rhea.GameInterface;
+import players.rhea.utils.FMBudget;
+import utils.ElapsedCpuTimer;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Monte Carlo Tree Search used to seed RHEA individuals. Each player owns its seeder, so several RHEA players can seed
+ * at the same time in one JVM.
+ * With more than one game interface, the search is root-parallel: every interface gets its own tree, searched in its
+ * own thread, and the visit counts of all trees are added up when they are compressed into action distributions.
+ * The search threads are started on the first search, and stop after IDLE_SECONDS without searches, so players that
+ * are copied and dropped don't leave idle threads behind.
+ */
+public class MCTSSeeder {
+    private static final long IDLE_SECONDS = 10;
+
+    private MCTSTree[] trees;
+    private ThreadPoolExecutor executor;    // Created on first use
+    private boolean shutdown = false;
+
+    /**
+     * @param gInterfaces - one game interface per search thread. The calling thread uses the first one.
+     * @param random - random generator of the player. Used by the first tree and to seed the generators of the rest.
+     * @param actions - actions available in the game.
+     */
+    public MCTSSeeder(GameInterface[] gInterfaces, Random random, Types.ACTIONS[] actions) {
+        int nThreads = gInterfaces.length;
+        trees = new MCTSTree[nThreads];
+        trees[0] = new MCTSTree(gInterfaces[0], random, actions);
+        for (int i = 1; i < nThreads; i++) {
+            trees[i] = new MCTSTree(gInterfaces[i], new Random(random.nextLong()), actions);
+        }
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        if (shutdown) {
+            throw new IllegalStateException("The seeder is shut down");
+        }
+        if (executor == null) {
+            int nThreads = trees.length - 1;
+            executor = new ThreadPoolExecutor(nThreads, nThreads, IDLE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "rhea-mcts-seeder");
+                t.setDaemon(true);
+                return t;
+            });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the search from the given state and compresses the resulting trees into action probabilities per depth.
+     * The FM and iteration budgets are split evenly between the trees, so the result doesn't depend on thread timing
+     * unless a time budget is used.
+     * @param rootState - current game state.
+     * @param elapsedTimer - timer, if time budget. Must measure wall-clock time if more than one thread is used.
+     * @param fm_budget - max FM calls, for all trees together.
+     * @param iteration_budget - max iterations, for all trees together.
+     * @param depth - max depth of the trees and rollouts.
+     * @param max_depth - number of depths in the returned distribution.
+     * @return array of shape (max_depth x number of actions) with the probability of each action at each depth.
+     */
+    public double[][] search(GameState rootState, ElapsedCpuTimer elapsedTimer, int fm_budget, int iteration_budget,
+                             int depth, int max_depth) {
+        int nThreads = trees.length;
+
+        List<Future<?>> futures = new ArrayList<>(nThreads - 1);
+        for (int t = 1; t < nThreads; t++) {
+            MCTSTree tree = trees[t];
+            GameState treeRoot = rootState.copy();
+            ElapsedCpuTimer treeTimer = elapsedTimer != null ? elapsedTimer.copy() : null;
+            int treeFMCalls = share(fm_budget, t);
+            int treeIterations = share(iteration_budget, t);
+            futures.add(getExecutor().submit(() -> tree.search(treeRoot, treeTimer, new FMBudget(treeFMCalls),
+                    treeFMCalls, treeIterations, depth)));
+        }
+        int treeFMCalls = share(fm_budget, 0);
+        trees[0].search(rootState, elapsedTimer, new FMBudget(treeFMCalls), treeFMCalls,
+                share(iteration_budget, 0), depth);
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted during MCTS seeding", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("MCTS seeding failed", e.getCause());
+            }
+        }
+
+        return compressTrees(max_depth);
+    }
+
+    private int share(int budget, int treeIdx) {
+        int share = budget / trees.length;
+        return treeIdx < budget % trees.length ? share + 1 : share;
+    }
+
+    private double[][] compressTrees(int max_depth) {
+        int max_actions = trees[0].actions.length;
+        double[][] actions = new double[max_depth][max_actions];
+        double[] sum = new double[max_depth];
+
+        for (MCTSTree tree : trees) {
+            tree.addVisitCounts(actions);
+        }
+        for (int i = 0; i < max_depth; i++) {
+            for (int j = 0; j < max_actions; j++) {
+                sum[i] += actions[i][j];
+            }
+        }
+
+        // Break down to percentages
+        for (int i = 0; i < max_depth; i++) {
+            for (int j = 0; j < max_actions; j++) {
+                actions[i][j] /= sum[i];
+            }
+        }
+
+        return actions;
+    }
+
+    /**
+     * Stops the search threads. This seeder can't be used afterwards.
+     */
+    public void shutdown() {
+        shutdown = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
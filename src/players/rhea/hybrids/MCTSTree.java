@@ -0,0 +1,101 @@
+package players.rhea.hybrids;
+
+import core.GameState;
+import players.rhea.GameInterface;
+import players.rhea.utils.FMBudget;
+import utils.ElapsedCpuTimer;
+import utils.Types;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * One seeding MCTS tree. Holds the search state shared by all its nodes (which used to be static in MCTSNode) and a
+ * pool of nodes that is reused from one search to the next, instead of allocating a new tree every decision.
+ * A tree is only used by one thread at a time.
+ */
+class MCTSTree {
+    final GameInterface gameInterface;
+    final Random random;
+    final Types.ACTIONS[] actions;
+    final double K = Math.sqrt(2);
+
+    GameState rootState;
+    FMBudget fmBudget;
+    int rolloutDepth = 10;
+
+    // Nodes in use are the first nNodes in the pool, the root being the first one.
+    private ArrayList<MCTSNode> pool = new ArrayList<>();
+    private int nNodes;
+
+    /**
+     * @param gInterface - interface used to advance and evaluate states. Not shared with other trees.
+     * @param random - random generator for this tree.
+     * @param actions - actions available at every node.
+     */
+    MCTSTree(GameInterface gInterface, Random random, Types.ACTIONS[] actions) {
+        this.gameInterface = gInterface;
+        this.random = random;
+        this.actions = actions;
+    }
+
+    /**
+     * Runs MCTS from the given state within the budget, discarding the tree of the previous search.
+     * @param rootState - state at the root of the tree. Only copied.
+     * @param elapsedTimer - timer, if time budget. Not shared with other trees.
+     * @param fmBudget - FM budget tracker for this search.
+     * @param fm_budget - max FM calls for rollouts.
+     * @param iteration_budget - max iterations for this tree, if iteration budget.
+     * @param depth - max depth of the tree and rollouts.
+     */
+    void search(GameState rootState, ElapsedCpuTimer elapsedTimer, FMBudget fmBudget, int fm_budget,
+                int iteration_budget, int depth) {
+        this.rootState = rootState;
+        this.fmBudget = fmBudget;
+        rolloutDepth = depth;
+
+        nNodes = 0;
+        MCTSNode root = newNode(null, -1);
+        int numIters = iteration_budget;
+
+        while(gameInterface.budget(elapsedTimer, numIters, fmBudget)){
+            GameState state = rootState.copy();
+
+            MCTSNode selected = root.treePolicy(state);
+            double delta = selected.rollOut(state, fm_budget);
+            selected.backUp(delta);
+
+            numIters--;
+            gameInterface.endIteration(elapsedTimer, fmBudget);
+        }
+    }
+
+    /**
+     * Takes a node from the pool, creating a new one if all pooled nodes are in use.
+     */
+    MCTSNode newNode(MCTSNode parent, int childIdx) {
+        MCTSNode node;
+        if (nNodes < pool.size()) {
+            node = pool.get(nNodes);
+        } else {
+            node = new MCTSNode(this, actions.length);
+            pool.add(node);
+        }
+        node.reset(parent, childIdx);
+        nNodes++;
+        return node;
+    }
+
+    /**
+     * Adds the visit counts of all non-root nodes of the last search to the given counts, per depth and action.
+     * @param counts - array of shape (max_depth x number of actions). Nodes deeper than max_depth are ignored.
+     */
+    void addVisitCounts(double[][] counts) {
+        for (int i = 1; i < nNodes; i++) {
+            MCTSNode n = pool.get(i);
+            if (n.getDepth() <= counts.length) {
+                counts[n.getDepth() - 1][n.getChildIdx()] += n.getNVisits();
+            }
+        }
+    }
+}
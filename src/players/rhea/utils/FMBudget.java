@@ -1,49 +1,55 @@
 package players.rhea.utils;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of forward model calls. Safe to share between the evaluation workers of a single player.
+ */
 public class FMBudget {
-    private int remainingBudget;
+    private final AtomicInteger remainingBudget;
     private int maxBudget;
-    private int averageUsage;
-    private int nIters;
+    private volatile int averageUsage;
+    private final AtomicInteger nIters = new AtomicInteger();
 
     public FMBudget(int maxBudget) {
         this.maxBudget = maxBudget;
-        this.remainingBudget = maxBudget;
+        this.remainingBudget = new AtomicInteger(maxBudget);
         averageUsage = 0;
-        nIters = 0;
     }
 
     public void reset() {
-        remainingBudget = maxBudget;
+        remainingBudget.set(maxBudget);
     }
 
     public int remaining() {
-        return remainingBudget;
+        return remainingBudget.get();
     }
 
     public void use() {
-        remainingBudget--;
+        remainingBudget.decrementAndGet();
     }
 
     public void use(int amount) {
-        remainingBudget -= amount;
+        remainingBudget.addAndGet(-amount);
     }
 
-    public int getUsed() { return maxBudget - remainingBudget; }
+    public int getUsed() { return maxBudget - remainingBudget.get(); }
 
     /**
      * Calculates average number of FM calls spent per iteration.
      * @return - true if enough budget is left for another iteration, false otherwise.
      */
     public boolean enoughBudgetIteration() {
-        if (nIters == 0) averageUsage = 0; else averageUsage = (maxBudget - remainingBudget) / nIters;
-        return remainingBudget >= averageUsage;
+        int remaining = remainingBudget.get();
+        int iters = nIters.get();
+        if (iters == 0) averageUsage = 0; else averageUsage = (maxBudget - remaining) / iters;
+        return remaining >= averageUsage;
     }
 
     /**
      * We finished an iteration, so increasing the iteration count.
      */
     public void endIteration() {
-        nIters++;
+        nIters.incrementAndGet();
     }
 }
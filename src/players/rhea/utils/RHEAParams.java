@@ -22,6 +22,10 @@ public class RHEAParams implements ParameterSet {
     // Efficiency settings
     public int frame_skip = 0;
     public int frame_skip_type = SKIP_SEQUENCE;
+    public int evaluation_threads = 1;  // Individuals are evaluated concurrently if > 1. Not part of the search space.
+    public int mcts_threads = 1;  // Root-parallel MCTS seeding if > 1. Not part of the search space.
+    public int rollout_cache_size = 0;  // Max states cached per decision for action prefixes. 0 disables the cache.
+    public boolean racing = false;  // Offspring rollouts stop once they can't beat the best individual in the population.
 
     // EA parameters
     public int population_size = 1;
@@ -17,15 +17,26 @@ public class ElapsedCpuTimer {
     private long oldTime;
     private long maxTime;
     private int nIters;
+    private boolean wallClock;
 
     public ElapsedCpuTimer() {
+        this(false);
+    }
+
+    /**
+     * Creates a timer.
+     * @param wallClock - if true, measures wall-clock time instead of the CPU time of the calling thread. Needed when
+     *                  the work being timed is handed off to other threads while this one waits.
+     */
+    public ElapsedCpuTimer(boolean wallClock) {
+        this.wallClock = wallClock;
         oldTime = getTime();
         nIters = 0;
     }
 
     public ElapsedCpuTimer copy()
     {
-        ElapsedCpuTimer newCpuTimer = new ElapsedCpuTimer();
+        ElapsedCpuTimer newCpuTimer = new ElapsedCpuTimer(wallClock);
         newCpuTimer.maxTime = this.maxTime;
         newCpuTimer.oldTime = this.oldTime;
         newCpuTimer.bean = this.bean;
@@ -72,7 +83,7 @@ public class ElapsedCpuTimer {
 
     private long getCpuTime() {
 
-        if(OS_WIN)
+        if(OS_WIN || wallClock)
             return System.nanoTime();
 
         if (bean.isCurrentThreadCpuTimeSupported()) {
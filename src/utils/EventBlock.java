@@ -0,0 +1,121 @@
+package utils;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Events stored by column. This is how event logs are written: as blocks of an int number of events followed by
+ * each column in turn (int games, int ticks, byte types, byte players, short xs, short ys, long arguments).
+ */
+class EventBlock {
+    static final int BYTES_PER_EVENT = 4 + 4 + 1 + 1 + 2 + 2 + 8;
+
+    int size;
+    int[] games;
+    int[] ticks;
+    byte[] types;
+    byte[] players;
+    short[] xs;
+    short[] ys;
+    long[] args;
+
+    EventBlock(int capacity) {
+        games = new int[capacity];
+        ticks = new int[capacity];
+        types = new byte[capacity];
+        players = new byte[capacity];
+        xs = new short[capacity];
+        ys = new short[capacity];
+        args = new long[capacity];
+    }
+
+    void add(int game, int tick, byte type, byte player, short x, short y, long arg) {
+        if (size == games.length) {
+            grow(Math.max(16, size * 2));
+        }
+        games[size] = game;
+        ticks[size] = tick;
+        types[size] = type;
+        players[size] = player;
+        xs[size] = x;
+        ys[size] = y;
+        args[size] = arg;
+        size++;
+    }
+
+    boolean isFull() {
+        return size == games.length;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    private void grow(int capacity) {
+        games = Arrays.copyOf(games, capacity);
+        ticks = Arrays.copyOf(ticks, capacity);
+        types = Arrays.copyOf(types, capacity);
+        players = Arrays.copyOf(players, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        args = Arrays.copyOf(args, capacity);
+    }
+
+    /**
+     * Writes the events held as one block.
+     */
+    void write(OutputStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 + size * BYTES_PER_EVENT);
+        buffer.putInt(size);
+        buffer.asIntBuffer().put(games, 0, size);
+        buffer.position(buffer.position() + size * 4);
+        buffer.asIntBuffer().put(ticks, 0, size);
+        buffer.position(buffer.position() + size * 4);
+        buffer.put(types, 0, size);
+        buffer.put(players, 0, size);
+        buffer.asShortBuffer().put(xs, 0, size);
+        buffer.position(buffer.position() + size * 2);
+        buffer.asShortBuffer().put(ys, 0, size);
+        buffer.position(buffer.position() + size * 2);
+        buffer.asLongBuffer().put(args, 0, size);
+        out.write(buffer.array());
+    }
+
+    /**
+     * Reads one block and appends its events to the ones held.
+     * @return false if there are no more complete blocks to read.
+     */
+    boolean read(DataInputStream in) throws IOException {
+        byte[] data;
+        try {
+            int n = in.readInt();
+            data = new byte[n * BYTES_PER_EVENT];
+            in.readFully(data);
+        } catch (EOFException e) {
+            // End of the log, or a block cut short if the log wasn't closed
+            return false;
+        }
+        int n = data.length / BYTES_PER_EVENT;
+        if (size + n > games.length) {
+            grow(Math.max(size + n, games.length * 2));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        buffer.asIntBuffer().get(games, size, n);
+        buffer.position(n * 4);
+        buffer.asIntBuffer().get(ticks, size, n);
+        buffer.position(n * 8);
+        buffer.get(types, size, n);
+        buffer.get(players, size, n);
+        buffer.asShortBuffer().get(xs, size, n);
+        buffer.position(n * 12);
+        buffer.asShortBuffer().get(ys, size, n);
+        buffer.position(n * 14);
+        buffer.asLongBuffer().get(args, size, n);
+        size += n;
+        return true;
+    }
+}
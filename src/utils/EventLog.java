@@ -0,0 +1,174 @@
+package utils;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Event log of a tournament (all games played with the same configuration). Games post typed events to a lock-free
+ * ring buffer, and a background thread drains it into the log file, so logging costs the game little more than
+ * filling in a few array slots.
+ *
+ * The file starts with int magic ("PMEV") and short version, followed by blocks of events stored by column (see
+ * EventBlock). Read it with EventLogReader.
+ */
+public class EventLog implements Closeable {
+    static final int MAGIC = 0x504D4556;  // "PMEV"
+    static final short VERSION = 2;
+    public static final String FILE_NAME = "events.bin";
+
+    // Number of events the ring buffer holds, and written in each block of the file
+    public static int BUFFER_SIZE = 1 << 16;
+    public static int BLOCK_SIZE = 4096;
+
+    // How long the writer waits for new events when the buffer is empty
+    private static final long WRITER_PARK_NANOS = 1000000;
+
+    // Logs open, by game id string, and if they are closed on shutdown
+    private static final HashMap<String, EventLog> logs = new HashMap<>();
+    private static boolean shutdownHook = false;
+
+    private final EventRingBuffer buffer;
+    private final AtomicInteger nGames = new AtomicInteger();
+    private final OutputStream out;
+    private final Thread writer;
+    private volatile boolean closing = false;
+    private IOException writeError;
+
+    /**
+     * Creates the log file, overwriting it if it exists, and starts the writer thread.
+     * @param file - file to write to. Its folder is created if needed.
+     */
+    public EventLog(File file) throws IOException {
+        File folder = file.getAbsoluteFile().getParentFile();
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Folder " + folder + " does not exist nor could be created.");
+        }
+        buffer = new EventRingBuffer(BUFFER_SIZE);
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        dos.writeInt(MAGIC);
+        dos.writeShort(VERSION);
+        out = dos;
+        writer = new Thread(this::write, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Gets the event log of the tournament with the given id, opening it the first time. Logs still open when the
+     * program ends are closed then.
+     * @param gameIdStr - id of the tournament; the log is written to its game logs folder.
+     * @return the event log.
+     */
+    public static synchronized EventLog get(String gameIdStr) {
+        EventLog log = logs.get(gameIdStr);
+        if (log == null) {
+            try {
+                log = new EventLog(new File(EventsStatistics.experimentsFolderPath + gameIdStr + "/" + FILE_NAME));
+            } catch (IOException e) {
+                throw new RuntimeException("Could not create event log for " + gameIdStr, e);
+            }
+            logs.put(gameIdStr, log);
+            if (!shutdownHook) {
+                Runtime.getRuntime().addShutdownHook(new Thread(EventLog::closeAll));
+                shutdownHook = true;
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Closes all logs opened with get, writing out their remaining events.
+     */
+    public static synchronized void closeAll() {
+        for (EventLog log : logs.values()) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        logs.clear();
+    }
+
+    /**
+     * Registers a new game in this log.
+     * @param seed - seed of the game.
+     * @param rep - repetition of the game with this seed.
+     * @return id of the game, to tag its events with.
+     */
+    public int beginGame(long seed, int rep) {
+        int game = nGames.getAndIncrement();
+        add(game, rep, EventType.GAME_START, -1, -1, -1, seed);
+        return game;
+    }
+
+    /**
+     * Adds an event. Thread-safe and doesn't allocate; waits only if the writer has fallen a full buffer behind.
+     * @param game - id of the game, from beginGame.
+     * @param tick - tick of the game.
+     * @param type - type of event.
+     * @param player - index of the player involved, -1 if none.
+     * @param x - x coordinate of the event, -1 if none.
+     * @param y - y coordinate of the event, -1 if none.
+     * @param arg - argument of the event, depends on its type.
+     */
+    public void add(int game, int tick, EventType type, int player, int x, int y, long arg) {
+        buffer.put(game, tick, type, player, x, y, arg);
+    }
+
+    /**
+     * Writes out the remaining events and closes the file. Events must not be added after this.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closing) return;
+        closing = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    // Writer thread: moves events from the ring buffer to the file, one block at a time
+    private void write() {
+        EventBlock block = new EventBlock(BLOCK_SIZE);
+        while (true) {
+            // Read the flag first, so every event added before closing is drained afterwards
+            boolean done = closing;
+            int n = buffer.drainTo(block, BLOCK_SIZE - block.size);
+            if (block.isFull()) {
+                writeBlock(block);
+            } else if (n == 0) {
+                if (done) break;
+                LockSupport.parkNanos(WRITER_PARK_NANOS);
+            }
+        }
+        if (block.size > 0) {
+            writeBlock(block);
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (writeError == null) writeError = e;
+        }
+    }
+
+    // Once writing fails, events are still drained (and dropped) so the games don't wait for space
+    private void writeBlock(EventBlock block) {
+        if (writeError == null) {
+            try {
+                block.write(out);
+            } catch (IOException e) {
+                e.printStackTrace();
+                writeError = e;
+            }
+        }
+        block.clear();
+    }
+}
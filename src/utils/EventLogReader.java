@@ -0,0 +1,124 @@
+package utils;
+
+import java.io.*;
+
+/**
+ * Reads an event log written by EventLog. All events are loaded into columns, in the order they were logged; events
+ * of different games may be interleaved if the games ran in parallel.
+ */
+public class EventLogReader {
+    private final EventBlock events = new EventBlock(EventLog.BLOCK_SIZE);
+
+    private EventLogReader(DataInputStream in) throws IOException {
+        if (in.readInt() != EventLog.MAGIC) {
+            throw new IOException("Not an event log");
+        }
+        short version = in.readShort();
+        if (version != EventLog.VERSION) {
+            throw new IOException("Unsupported event log version " + version);
+        }
+        while (events.read(in)) {
+            // Keep reading blocks
+        }
+    }
+
+    /**
+     * Reads the given event log file.
+     * @param file - event log file.
+     * @return reader holding all its events.
+     */
+    public static EventLogReader open(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return new EventLogReader(in);
+        }
+    }
+
+    public int size() {
+        return events.size;
+    }
+
+    /**
+     * @param i - index of the event, in range [0, size()).
+     * @return id of the game the event belongs to.
+     */
+    public int getGame(int i) {
+        return events.games[i];
+    }
+
+    public int getTick(int i) {
+        return events.ticks[i];
+    }
+
+    public EventType getType(int i) {
+        return EventType.get(events.types[i]);
+    }
+
+    public int getPlayer(int i) {
+        return events.players[i];
+    }
+
+    public int getX(int i) {
+        return events.xs[i];
+    }
+
+    public int getY(int i) {
+        return events.ys[i];
+    }
+
+    public long getArg(int i) {
+        return events.args[i];
+    }
+
+    /**
+     * Describes an event the same way as the text event logs used to.
+     * @param i - index of the event, in range [0, size()).
+     * @return description of the event, ending in a new line.
+     */
+    public String toText(int i) {
+        int tick = getTick(i);
+        int player = getPlayer(i);
+        String at = " at (" + getX(i) + ", " + getY(i) + ")";
+        switch (getType(i)) {
+            case GAME_START:
+                return "game " + getGame(i) + " started, seed " + getArg(i) + ", repetition " + tick + "\n";
+            case GAME_END:
+                return tick + " | game " + getGame(i) + " ended\n";
+            case BOMB_PLACED:
+                return tick + " | [" + player + "] placed a bomb" + at + "\n";
+            case BOMB_FAILED:
+                return tick + " | [" + player + "] failed to place a bomb" + at + "\n";
+            case BOMB_EXPLODED:
+                return tick + " | [" + player + "]'s bomb exploded" + at + "\n";
+            case BOMB_TRIGGERED:
+                return tick + " | [" + player + "]'s bomb exploded" + at + " triggered by " + players(getArg(i))
+                        + "\n";
+            case DEATH:
+                return tick + " | [" + player + "] died" + at + " by " + players(getArg(i)) + "'s flame(s)"
+                        + ((getArg(i) & EventType.STUCK_FLAG) != 0 ? " (was stuck)" : "") + "\n";
+            case PICKUP:
+                return tick + " | [" + player + "] picked up " + pickupName((int) getArg(i)) + at + "\n";
+            case STUCK:
+                return tick + " | [" + player + "] got stuck" + at + "\n";
+            default:
+                throw new IllegalStateException("Unknown event type " + getType(i));
+        }
+    }
+
+    // Lists the players in a bit mask of player indices
+    private static String players(long mask) {
+        StringBuilder sb = new StringBuilder();
+        for (int p = 0; p < 32; p++) {
+            if ((mask & (1L << p)) != 0) {
+                sb.append("[").append(p).append("]");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String pickupName(int tileKey) {
+        if (tileKey == Types.TILETYPE.EXTRABOMB.getKey()) return "AMMO";
+        if (tileKey == Types.TILETYPE.INCRRANGE.getKey()) return "BLAST STRENGTH";
+        if (tileKey == Types.TILETYPE.KICK.getKey()) return "CAN KICK";
+        return "UNKNOWN";
+    }
+}
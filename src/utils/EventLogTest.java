@@ -0,0 +1,69 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLogTest {
+
+    @Test
+    void concurrentRoundTrip() throws Exception {
+        File file = File.createTempFile("events", ".bin");
+        file.deleteOnExit();
+
+        // Small buffer and blocks, so producers have to wait for the writer and several blocks are written
+        int bufferSize = EventLog.BUFFER_SIZE;
+        int blockSize = EventLog.BLOCK_SIZE;
+        EventLog.BUFFER_SIZE = 64;
+        EventLog.BLOCK_SIZE = 100;
+        EventLog log;
+        try {
+            log = new EventLog(file);
+        } finally {
+            EventLog.BUFFER_SIZE = bufferSize;
+            EventLog.BLOCK_SIZE = blockSize;
+        }
+
+        int nThreads = 4;
+        int nEvents = 5000;
+        Thread[] threads = new Thread[nThreads];
+        for (int t = 0; t < nThreads; t++) {
+            threads[t] = new Thread(() -> {
+                int game = log.beginGame(42, 0);
+                for (int i = 0; i < nEvents; i++) {
+                    log.add(game, i, EventType.PICKUP, game % 4, i % 300, i / 300 % 300, i * 7L);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        log.close();
+
+        EventLogReader reader = EventLogReader.open(file);
+        assertEquals(nThreads * (nEvents + 1), reader.size());
+
+        // Events of each game come out in the order they were added
+        int[] next = new int[nThreads];
+        for (int i = 0; i < reader.size(); i++) {
+            int game = reader.getGame(i);
+            if (reader.getType(i) == EventType.GAME_START) {
+                assertEquals(42, reader.getArg(i));
+                continue;
+            }
+            int n = next[game]++;
+            assertEquals(n, reader.getTick(i));
+            assertEquals(game % 4, reader.getPlayer(i));
+            // Coordinates of boards larger than a byte holds
+            assertEquals(n % 300, reader.getX(i));
+            assertEquals(n / 300 % 300, reader.getY(i));
+            assertEquals(n * 7L, reader.getArg(i));
+        }
+        for (int n : next) {
+            assertEquals(nEvents, n);
+        }
+    }
+}
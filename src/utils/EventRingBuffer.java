@@ -0,0 +1,90 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue of events, for any number of producer threads and a single consumer. Events are stored in
+ * preallocated primitive columns, so publishing one doesn't allocate.
+ *
+ * Producers claim a sequence number, wait for its slot to be free if the buffer is full, fill it in and mark it as
+ * published. The consumer takes published events in sequence order.
+ */
+class EventRingBuffer {
+    private final int capacity;
+    private final int mask;
+
+    private final int[] games;
+    private final int[] ticks;
+    private final byte[] types;
+    private final byte[] players;
+    private final short[] xs;
+    private final short[] ys;
+    private final long[] args;
+
+    // Sequence number + 1 of the event last published in each slot, 0 if none
+    private final AtomicLongArray published;
+
+    // Next sequence number to claim by producers, and next to take by the consumer
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+
+    /**
+     * @param capacity - number of events held, rounded up to a power of 2.
+     */
+    EventRingBuffer(int capacity) {
+        this.capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = this.capacity - 1;
+        games = new int[this.capacity];
+        ticks = new int[this.capacity];
+        types = new byte[this.capacity];
+        players = new byte[this.capacity];
+        xs = new short[this.capacity];
+        ys = new short[this.capacity];
+        args = new long[this.capacity];
+        published = new AtomicLongArray(this.capacity);
+    }
+
+    /**
+     * Adds an event, waiting for the consumer to make space if the buffer is full.
+     */
+    void put(int game, int tick, EventType type, int player, int x, int y, long arg) {
+        long seq = head.getAndIncrement();
+        while (seq - tail >= capacity) {
+            Thread.yield();
+        }
+        int i = (int) seq & mask;
+        games[i] = game;
+        ticks[i] = tick;
+        types[i] = (byte) type.ordinal();
+        players[i] = (byte) player;
+        xs[i] = (short) x;
+        ys[i] = (short) y;
+        args[i] = arg;
+        published.set(i, seq + 1);
+    }
+
+    /**
+     * Takes the events published so far, in order, up to the given number. Only to be called by the consumer.
+     * @param block - block to append the events to.
+     * @param max - maximum number of events to take.
+     * @return number of events taken.
+     */
+    int drainTo(EventBlock block, int max) {
+        long seq = tail;
+        int n = 0;
+        while (n < max) {
+            int i = (int) seq & mask;
+            if (published.get(i) != seq + 1) break;
+            block.add(games[i], ticks[i], types[i], players[i], xs[i], ys[i], args[i]);
+            seq++;
+            n++;
+        }
+        tail = seq;
+        return n;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
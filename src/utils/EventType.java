@@ -0,0 +1,32 @@
+package utils;
+
+/**
+ * Types of the events logged by EventsStatistics. Every event has a game, tick, player and position; the meaning of
+ * its argument depends on the type.
+ */
+public enum EventType {
+    GAME_START,     // Tick holds the repetition of the game instead, argument is the seed. No player or position.
+    GAME_END,       // Tick is the last tick of the game. No player or position.
+    BOMB_PLACED,
+    BOMB_FAILED,    // The player tried to place a bomb, but had no ammo or there was a bomb there already.
+    BOMB_EXPLODED,  // Player is the owner of the bomb (-1 if unknown).
+    BOMB_TRIGGERED, // Bomb exploded by a flame. Player is the owner, argument is a bit mask of the flames' owners.
+    DEATH,          // Argument is a bit mask of the owners of the flames that killed the player, plus STUCK_FLAG.
+    PICKUP,         // Argument is the key of the power-up's tile type.
+    STUCK;          // The player got into a position it can't escape from.
+
+    /**
+     * Flag set in the argument of DEATH events if the player was stuck when it died.
+     */
+    public static final long STUCK_FLAG = 1L << 32;
+
+    private static final EventType[] VALUES = values();
+
+    /**
+     * @param ordinal - ordinal of an event type.
+     * @return the event type with the given ordinal.
+     */
+    public static EventType get(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
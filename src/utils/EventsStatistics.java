@@ -1,16 +1,13 @@
 package utils;
 
-import java.io.*;
-import java.sql.Timestamp;
-import java.util.ArrayList;
-
+/**
+ * Statistics and events of one game, logged to the event log of its tournament (see EventLog).
+ */
 public class EventsStatistics {
 
 
     final static String experimentsFolderPath = "res/gamelogs/";
 
-    public ArrayList<String> events;
-
     // TODO: Configured for 4 agents by default
     public int[] bombPlacementsAttempted = {0, 0, 0, 0};
     public int[] bombsPlaced = {0, 0, 0, 0};
@@ -20,33 +17,88 @@ public class EventsStatistics {
 
     public static int REP = 0;
 
-    public EventsStatistics(){
-        events = new ArrayList<>();
+    private final EventLog log;
+    private final long seed;
+    private final int rep;
+
+    // Id of the game in the log. Registered with its first event, so games reset before being played are left out
+    private int game = -1;
+
+    /**
+     * Starts logging a game to the event log of its tournament.
+     * @param gameIdStr - id of the tournament.
+     * @param seed - seed of the game.
+     */
+    public EventsStatistics(String gameIdStr, long seed){
+        this(EventLog.get(gameIdStr), seed, REP);
     }
 
-    public void saveToTextFile(String gameIdStr, long seed){
+    /**
+     * Starts logging a game.
+     * @param log - event log to write to.
+     * @param seed - seed of the game.
+     * @param rep - repetition of the game with this seed.
+     */
+    public EventsStatistics(EventLog log, long seed, int rep){
+        this.log = log;
+        this.seed = seed;
+        this.rep = rep;
+    }
 
-        File file = new File(experimentsFolderPath+ gameIdStr + "/");
-        if (! file.exists()){
-            file.mkdir();
+    private void add(int tick, EventType type, int player, int x, int y, long arg){
+        if (game < 0) {
+            game = log.beginGame(seed, rep);
         }
+        log.add(game, tick, type, player, x, y, arg);
+    }
 
-        if (file.listFiles() == null) {
-            throw new Error("Folder specified at " + experimentsFolderPath + " does not exist nor could be created.");
-        }
+    public void bombPlaced(int tick, int player, int x, int y){
+        add(tick, EventType.BOMB_PLACED, player, x, y, 0);
+        bombsPlaced[player]++;
+        bombPlacementsAttempted[player]++;
+    }
 
-        String path = experimentsFolderPath + gameIdStr + "/" + seed + "_" + REP + "_events.txt";
+    public void bombFailed(int tick, int player, int x, int y){
+        add(tick, EventType.BOMB_FAILED, player, x, y, 0);
+        bombPlacementsAttempted[player]++;
+    }
 
-        try {
-            FileWriter writer = new FileWriter(path, true);
-            for (String event : events){
-                writer.write(event);
-            }
-            writer.close();
+    public void bombExploded(int tick, int owner, int x, int y){
+        add(tick, EventType.BOMB_EXPLODED, owner, x, y, 0);
+    }
 
-        } catch (IOException i) {
-            i.printStackTrace();
+    /**
+     * A bomb exploded because a flame reached it.
+     * @param flameOwners - bit mask of the owners of the flames at the bomb's position.
+     */
+    public void bombTriggered(int tick, int owner, int x, int y, long flameOwners){
+        add(tick, EventType.BOMB_TRIGGERED, owner, x, y, flameOwners);
+        for (int p = 0; p < bombsTriggered.length; p++) {
+            if ((flameOwners & (1L << p)) != 0) {
+                bombsTriggered[p]++;
+            }
         }
     }
 
+    /**
+     * @param killers - bit mask of the owners of the flames that killed the player.
+     * @param stuck - true if the player was stuck when it died.
+     */
+    public void death(int tick, int player, int x, int y, long killers, boolean stuck){
+        add(tick, EventType.DEATH, player, x, y, stuck ? killers | EventType.STUCK_FLAG : killers);
+    }
+
+    public void pickup(int tick, int player, int x, int y, Types.TILETYPE powerUp){
+        add(tick, EventType.PICKUP, player, x, y, powerUp.getKey());
+        powerUpsTaken[player]++;
+    }
+
+    public void stuck(int tick, int player, int x, int y){
+        add(tick, EventType.STUCK, player, x, y, 0);
+    }
+
+    public void endGame(int tick){
+        add(tick, EventType.GAME_END, -1, -1, -1, 0);
+    }
+
 }
@@ -91,6 +91,30 @@ public class GameLog implements Serializable {
         }
     }
 
+    /**
+     * File a binary log of this game is streamed to, next to the JSON logs of the same game id.
+     * @param gameIdStr - id of the game, used as folder name.
+     * @return file for the binary log.
+     */
+    public File getBinaryLogFile(String gameIdStr){
+        return new File(JSON_GAMELOGS_PATH + gameIdStr + "/" + seed + "_" + REP + "_" + gameMode.name()
+                + "[" + size + "x" + size + "]" + GameLogWriter.FILE_EXTENSION);
+    }
+
+    /**
+     * Read a binary log written by GameLogWriter
+     * @param path of the log file
+     * @return the GameLog object with all actions in that file
+     */
+    public static GameLog deserializeBinary(String path){
+        try {
+            return GameLogReader.open(new File(path)).toGameLog();
+        } catch (IOException i) {
+            i.printStackTrace();
+        }
+        return null;
+    }
+
     /**
      * Read the last logfile that was serialized
      * @return the GameLog object that was serialized to that file
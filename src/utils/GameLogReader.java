@@ -0,0 +1,307 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static utils.GameLogWriter.*;
+
+/**
+ * Reads binary game logs written by GameLogWriter. The file is memory-mapped and actions are decoded on demand, so
+ * large numbers of logs can be scanned without building a GameLog for each of them. Logs with checkpoints also give
+ * random access to the game state stored every checkpoint interval ticks (see core.Replay).
+ */
+public class GameLogReader {
+    private static final Types.ACTIONS[] ACTIONS = Types.ACTIONS.values();
+    private static final Types.GAME_MODE[] GAME_MODES = Types.GAME_MODE.values();
+
+    private final ByteBuffer data;
+    private final long seed;
+    private final int size;
+    private final Types.GAME_MODE gameMode;
+    private final int nPlayers;
+    private final int visionRange;
+    private final int maxGameTicks;
+    private final int nTicks;
+    private final int checkpointInterval;
+
+    // Tick and file offset of each checkpoint
+    private final int[] checkpointTicks;
+    private final int[] checkpointOffsets;
+
+    // Actions are stored in blocks of consecutive ticks, each starting at a byte boundary: first tick and file offset
+    private final int[] blockTicks;
+    private final int[] blockOffsets;
+
+    // Hashes of the states recorded while the game was played, and its results (version 3 only, else empty/null)
+    private final int[] stateHashes;
+    private final Types.RESULT[] results;
+
+    private GameLogReader(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary game log");
+        }
+        short version = data.getShort(4);
+        if (version != VERSION && version != VERSION_CHECKPOINTS && version != VERSION_HASHES) {
+            throw new IOException("Unsupported game log version " + version);
+        }
+        seed = data.getLong(6);
+        size = data.getInt(14);
+        gameMode = GAME_MODES[data.get(18)];
+        nPlayers = data.get(19);
+        visionRange = data.getInt(20);
+        maxGameTicks = data.getInt(24);
+        if (version == VERSION) {
+            // Padding is less than a byte, so it never adds up to a full tick
+            nTicks = (int) ((long) (data.limit() - HEADER_SIZE) * 8 / (nPlayers * BITS_PER_ACTION));
+            checkpointInterval = 0;
+            checkpointTicks = new int[0];
+            checkpointOffsets = new int[0];
+            blockTicks = new int[]{0};
+            blockOffsets = new int[]{HEADER_SIZE};
+            stateHashes = new int[0];
+            results = null;
+            return;
+        }
+
+        int footerSize = version == VERSION_HASHES ? FOOTER_SIZE_HASHES : FOOTER_SIZE;
+        int end = data.limit() - footerSize;
+        if (end < HEADER_SIZE_CHECKPOINTS || data.getInt(data.limit() - 4) != FOOTER_MAGIC) {
+            throw new IOException("Game log is incomplete, it was not closed");
+        }
+        checkpointInterval = data.getInt(28);
+        int nHashes = version == VERSION_HASHES ? data.getInt(end) : 0;
+        int nCheckpoints = data.getInt(data.limit() - 12);
+        nTicks = data.getInt(data.limit() - 8);
+
+        // Recorded hashes and results come between the index and the footer
+        stateHashes = new int[nHashes];
+        int hashesStart = end - (version == VERSION_HASHES ? nPlayers : 0) - nHashes * 4;
+        for (int i = 0; i < nHashes; i++) {
+            stateHashes[i] = data.getInt(hashesStart + i * 4);
+        }
+        Types.RESULT[] recorded = null;
+        if (version == VERSION_HASHES && (data.get(end - nPlayers) & 0xFF) != NO_RESULT) {
+            recorded = new Types.RESULT[nPlayers];
+            for (int i = 0; i < nPlayers; i++) {
+                recorded[i] = Types.RESULT.values()[data.get(end - nPlayers + i)];
+            }
+        }
+        results = recorded;
+
+        int indexStart = hashesStart - nCheckpoints * 8;
+        checkpointTicks = new int[nCheckpoints];
+        checkpointOffsets = new int[nCheckpoints];
+        for (int i = 0; i < nCheckpoints; i++) {
+            checkpointTicks[i] = data.getInt(indexStart + i * 8);
+            checkpointOffsets[i] = data.getInt(indexStart + i * 8 + 4);
+        }
+
+        // Actions of the ticks before the first checkpoint follow the header, the rest follow each checkpoint
+        boolean leading = nCheckpoints == 0 || checkpointTicks[0] > 0;
+        int nBlocks = nCheckpoints + (leading ? 1 : 0);
+        blockTicks = new int[nBlocks];
+        blockOffsets = new int[nBlocks];
+        int b = 0;
+        if (leading) {
+            blockTicks[0] = 0;
+            blockOffsets[0] = HEADER_SIZE_CHECKPOINTS;
+            b++;
+        }
+        for (int i = 0; i < nCheckpoints; i++, b++) {
+            blockTicks[b] = checkpointTicks[i];
+            blockOffsets[b] = checkpointOffsets[i] + 4 + data.getInt(checkpointOffsets[i]);
+        }
+    }
+
+    /**
+     * Maps the given log file into memory and reads its header.
+     * @param file - binary log file.
+     * @return reader for the log.
+     */
+    public static GameLogReader open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GameLogReader(buffer);
+        }
+    }
+
+    /**
+     * Lazily opens every binary log in the given folder, in file name order.
+     * @param folder - folder containing log files.
+     * @return logs in the folder. Files that can't be read as logs throw a RuntimeException when reached.
+     */
+    public static Iterable<GameLogReader> openAll(File folder) {
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+        File[] logFiles = files == null ? new File[0] : files;
+        Arrays.sort(logFiles);
+        return () -> new Iterator<GameLogReader>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < logFiles.length;
+            }
+
+            @Override
+            public GameLogReader next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                File file = logFiles[next++];
+                try {
+                    return open(file);
+                } catch (IOException e) {
+                    throw new RuntimeException("Could not read game log " + file, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param tick - tick of the game, in range [0, getNumTicks()).
+     * @param playerIdx - index of the player, in range [0, getNumPlayers()).
+     * @return action played.
+     */
+    public Types.ACTIONS getAction(int tick, int playerIdx) {
+        return getAction(findBlock(tick), tick, playerIdx);
+    }
+
+    private Types.ACTIONS getAction(int block, int tick, int playerIdx) {
+        long bit = ((long) (tick - blockTicks[block]) * nPlayers + playerIdx) * BITS_PER_ACTION;
+        int idx = blockOffsets[block] + (int) (bit >>> 3);
+        int shift = (int) (bit & 7);
+        int bits = data.get(idx) & 0xFF;
+        if (shift + BITS_PER_ACTION > 8) {
+            bits |= (data.get(idx + 1) & 0xFF) << 8;
+        }
+        return ACTIONS[(bits >>> shift) & ((1 << BITS_PER_ACTION) - 1)];
+    }
+
+    /**
+     * Decodes the actions of all players in one tick.
+     * @param tick - tick of the game, in range [0, getNumTicks()).
+     * @param actions - array to fill, with at least getNumPlayers() elements.
+     */
+    public void getActions(int tick, Types.ACTIONS[] actions) {
+        int block = findBlock(tick);
+        for (int i = 0; i < nPlayers; i++) {
+            actions[i] = getAction(block, tick, i);
+        }
+    }
+
+    // Index of the block holding the actions of the given tick
+    private int findBlock(int tick) {
+        int idx = Arrays.binarySearch(blockTicks, tick);
+        return idx >= 0 ? idx : -idx - 2;
+    }
+
+    /**
+     * @param tick - tick of the game.
+     * @return index of the last checkpoint at or before the given tick, or -1 if there is none.
+     */
+    public int findCheckpoint(int tick) {
+        int idx = Arrays.binarySearch(checkpointTicks, tick);
+        return idx >= 0 ? idx : -idx - 2;
+    }
+
+    /**
+     * @param checkpoint - index of the checkpoint, in range [0, getNumCheckpoints()).
+     * @return tick at which the checkpoint was taken, before that tick's actions were played.
+     */
+    public int getCheckpointTick(int checkpoint) {
+        return checkpointTicks[checkpoint];
+    }
+
+    /**
+     * @param checkpoint - index of the checkpoint, in range [0, getNumCheckpoints()).
+     * @return encoded game state of the checkpoint (see GameState.fromCheckpoint).
+     */
+    public byte[] getCheckpoint(int checkpoint) {
+        int offset = checkpointOffsets[checkpoint];
+        byte[] state = new byte[data.getInt(offset)];
+        ByteBuffer view = data.duplicate();
+        view.position(offset + 4);
+        view.get(state);
+        return state;
+    }
+
+    /**
+     * @return number of state hashes recorded while the game was played: one per tick plus the final state, or 0 if
+     * the log doesn't have them.
+     */
+    public int getNumStateHashes() {
+        return stateHashes.length;
+    }
+
+    /**
+     * @param tick - tick of the game, in range [0, getNumStateHashes()).
+     * @return hash of the state at the start of the tick, before its actions were played (see GameState.stateHash).
+     */
+    public int getStateHash(int tick) {
+        return stateHashes[tick];
+    }
+
+    /**
+     * @return results of the game recorded when it ended, or null if the log doesn't have them.
+     */
+    public Types.RESULT[] getResults() {
+        return results == null ? null : results.clone();
+    }
+
+    public int getNumCheckpoints() {
+        return checkpointTicks.length;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * @return a GameLog holding all the actions of this log.
+     */
+    public GameLog toGameLog() {
+        GameLog log = new GameLog(seed, size, gameMode);
+        for (int t = 0; t < nTicks; t++) {
+            Types.ACTIONS[] actions = new Types.ACTIONS[nPlayers];
+            getActions(t, actions);
+            log.addActions(actions);
+        }
+        return log;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Types.GAME_MODE getGameMode() {
+        return gameMode;
+    }
+
+    public int getNumPlayers() {
+        return nPlayers;
+    }
+
+    public int getVisionRange() {
+        return visionRange;
+    }
+
+    public int getMaxGameTicks() {
+        return maxGameTicks;
+    }
+
+    public int getNumTicks() {
+        return nTicks;
+    }
+}
@@ -2,6 +2,10 @@ package utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GameLogTest {
@@ -11,4 +15,32 @@ class GameLogTest {
         GameLog log = GameLog.deserializeLast();
         //Check if the outputted path in System.out corresponds with the last serialized log in your folder
     }
-}
\ No newline at end of file
+
+    @Test
+    void binaryLogRoundTrip() throws IOException {
+        File file = File.createTempFile("gamelog", GameLogWriter.FILE_EXTENSION);
+        file.deleteOnExit();
+
+        GameLog log = new GameLog(1234L, 11, Types.GAME_MODE.TEAM);
+        Random random = new Random(42);
+        try (GameLogWriter writer = new GameLogWriter(file, log.getSeed(), log.getSize(), log.getGameMode())) {
+            // Odd number of ticks, so the last byte is padded
+            for (int t = 0; t < 301; t++) {
+                Types.ACTIONS[] actions = new Types.ACTIONS[Types.NUM_PLAYERS];
+                for (int i = 0; i < actions.length; i++) {
+                    actions[i] = Types.ACTIONS.all().get(random.nextInt(Types.ACTIONS.all().size()));
+                }
+                log.addActions(actions);
+                writer.addActions(actions);
+            }
+        }
+
+        // 3 bits per player per tick after the header
+        assertEquals(GameLogWriter.HEADER_SIZE + (301 * 12 + 7) / 8, file.length());
+
+        GameLogReader reader = GameLogReader.open(file);
+        assertEquals(301, reader.getNumTicks());
+        assertEquals(Types.DEFAULT_VISION_RANGE, reader.getVisionRange());
+        assertEquals(log, reader.toGameLog());
+    }
+}
@@ -0,0 +1,198 @@
+package utils;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Streams the actions of a game to a compact binary log file, one tick at a time, so nothing has to be kept in
+ * memory or serialized at the end of the game. Logs are read back with GameLogReader.
+ *
+ * Format (big-endian):
+ *   int magic ("PMLG"), short version, long seed, int board size, byte game mode (ordinal), byte number of players,
+ *   int vision range, int max game ticks, [versions 2 and 3 only: int checkpoint interval]
+ * followed by the actions of every tick, 3 bits per player in player order, packed continuously from the least
+ * significant bit of each byte. The last byte is padded with 0s.
+ * Version 1 has nothing else, the number of ticks is implied by the file length.
+ * Version 2 (checkpoint interval > 0) also stores the full game state every checkpoint interval ticks, before the
+ * actions of that tick, as an int length followed by the encoded state. Actions restart on a byte boundary after
+ * each checkpoint. The file ends with an index: (int tick, int file offset) of every checkpoint, then int number of
+ * checkpoints, int number of ticks and int magic ("PMLX").
+ * Version 3 (written instead of version 2) also records what the game looked like while it was played, to verify
+ * replays against: after the index, an int hash of the state at the start of each tick and of the final state (see
+ * GameState.stateHash), and a byte result (ordinal, 0xFF if unknown) per player; the footer then starts with the
+ * int number of hashes.
+ */
+public class GameLogWriter implements Closeable {
+    static final int MAGIC = 0x504D4C47;  // "PMLG"
+    static final int FOOTER_MAGIC = 0x504D4C58;  // "PMLX"
+    static final short VERSION = 1;
+    static final short VERSION_CHECKPOINTS = 2;
+    static final short VERSION_HASHES = 3;
+    static final int HEADER_SIZE = 28;
+    static final int HEADER_SIZE_CHECKPOINTS = 32;
+    static final int FOOTER_SIZE = 12;
+    static final int FOOTER_SIZE_HASHES = 16;
+    static final int NO_RESULT = 0xFF;
+    static final int BITS_PER_ACTION = 3;
+    public static final String FILE_EXTENSION = ".bin";
+
+    private DataOutputStream out;
+    private int nPlayers;
+
+    // Bits not written yet, and how many of them there are (always less than 8 between ticks)
+    private int bitBuffer;
+    private int nBits;
+    private int nTicks;
+
+    // Ticks between checkpoints (0 if none) and the tick and file offset of each checkpoint written
+    private int checkpointInterval;
+    private ArrayList<int[]> checkpoints = new ArrayList<>();
+
+    // Hashes of the states of the game, one per tick plus the final one, and the results of the game if known
+    private int[] stateHashes = new int[0];
+    private int nStateHashes;
+    private Types.RESULT[] results;
+
+    /**
+     * Creates the log file, overwriting it if it exists, and writes the header.
+     * @param file - file to write to. Its folder is created if needed.
+     * @param seed - seed of the game.
+     * @param size - size of the board.
+     * @param gameMode - game mode.
+     */
+    public GameLogWriter(File file, long seed, int size, Types.GAME_MODE gameMode) throws IOException {
+        this(file, seed, size, gameMode, 0);
+    }
+
+    /**
+     * Creates the log file, overwriting it if it exists, and writes the header.
+     * @param file - file to write to. Its folder is created if needed.
+     * @param seed - seed of the game.
+     * @param size - size of the board.
+     * @param gameMode - game mode.
+     * @param checkpointInterval - ticks between state checkpoints, 0 for a log with actions only.
+     */
+    public GameLogWriter(File file, long seed, int size, Types.GAME_MODE gameMode, int checkpointInterval)
+            throws IOException {
+        File folder = file.getAbsoluteFile().getParentFile();
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Folder " + folder + " does not exist nor could be created.");
+        }
+        nPlayers = Types.NUM_PLAYERS;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        this.checkpointInterval = checkpointInterval;
+        out.writeInt(MAGIC);
+        out.writeShort(checkpointInterval > 0 ? VERSION_HASHES : VERSION);
+        out.writeLong(seed);
+        out.writeInt(size);
+        out.writeByte(gameMode.ordinal());
+        out.writeByte(nPlayers);
+        out.writeInt(Types.DEFAULT_VISION_RANGE);
+        out.writeInt(Types.MAX_GAME_TICKS);
+        if (checkpointInterval > 0) {
+            out.writeInt(checkpointInterval);
+        }
+    }
+
+    /**
+     * Records the hash of the state of the game at the start of the next tick, before its actions, or of the final
+     * state once all actions are added. Only stored in logs with checkpoints.
+     * @param hash - hash of the state.
+     */
+    public void addStateHash(int hash) {
+        if (nStateHashes == stateHashes.length) {
+            stateHashes = Arrays.copyOf(stateHashes, Math.max(256, nStateHashes * 2));
+        }
+        stateHashes[nStateHashes++] = hash;
+    }
+
+    /**
+     * Records the results of the game. Only stored in logs with checkpoints.
+     * @param results - result of each player.
+     */
+    public void setResults(Types.RESULT[] results) {
+        this.results = results.clone();
+    }
+
+    /**
+     * @return true if a checkpoint is due before the actions of the next tick.
+     */
+    public boolean needsCheckpoint() {
+        return checkpointInterval > 0 && nTicks % checkpointInterval == 0;
+    }
+
+    /**
+     * Stores the state of the game before the actions of the next tick.
+     * @param state - encoded game state.
+     */
+    public void addCheckpoint(byte[] state) throws IOException {
+        if (checkpointInterval <= 0) {
+            throw new IllegalStateException("This log was created without checkpoints");
+        }
+        flushBits();
+        checkpoints.add(new int[]{nTicks, out.size()});
+        out.writeInt(state.length);
+        out.write(state);
+    }
+
+    /**
+     * Appends the actions of one tick.
+     * @param actions - action of each player in this tick.
+     */
+    public void addActions(Types.ACTIONS[] actions) throws IOException {
+        for (int i = 0; i < nPlayers; i++) {
+            bitBuffer |= actions[i].getKey() << nBits;
+            nBits += BITS_PER_ACTION;
+            while (nBits >= 8) {
+                out.write(bitBuffer & 0xFF);
+                bitBuffer >>>= 8;
+                nBits -= 8;
+            }
+        }
+        nTicks++;
+    }
+
+    /**
+     * @return number of ticks written so far.
+     */
+    public int getNumTicks() {
+        return nTicks;
+    }
+
+    /**
+     * Writes out any pending bits and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (out == null) return;
+        flushBits();
+        if (checkpointInterval > 0) {
+            for (int[] checkpoint : checkpoints) {
+                out.writeInt(checkpoint[0]);
+                out.writeInt(checkpoint[1]);
+            }
+            for (int i = 0; i < nStateHashes; i++) {
+                out.writeInt(stateHashes[i]);
+            }
+            for (int i = 0; i < nPlayers; i++) {
+                out.writeByte(results == null ? NO_RESULT : results[i].ordinal());
+            }
+            out.writeInt(nStateHashes);
+            out.writeInt(checkpoints.size());
+            out.writeInt(nTicks);
+            out.writeInt(FOOTER_MAGIC);
+        }
+        out.close();
+        out = null;
+    }
+
+    // Writes out the bits of a partially filled byte, padded with 0s
+    private void flushBits() throws IOException {
+        if (nBits > 0) {
+            out.write(bitBuffer & 0xFF);
+            bitBuffer = 0;
+            nBits = 0;
+        }
+    }
+}
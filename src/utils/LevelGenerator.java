@@ -12,8 +12,12 @@ public class LevelGenerator {
 
 
     /**
-     * Constructs the board: places players and blocks in the level,
-     * guaranteeing a maximum of accessible passages.
+     * Constructs the board: places players and blocks in the level.
+     *
+     * Boards are not regenerated when some passages are inaccessible: generating again from the same seed makes the
+     * same board, so the check that used to follow (which gave up once it had looked from every agent) always kept
+     * the first one. Every seed keeps the board it always had; countInaccessibleTiles tells how many passages an
+     * agent can't reach.
      * @param seed Unique seed to generate this board.
      * @param size size of the board (size x size)
      * @param numRigid number of rigid, non-destructible, blocks to put in the board.
@@ -25,22 +29,10 @@ public class LevelGenerator {
         //Build the board
         int[][] board = make(seed, size, numRigid, numWood, agents);
 
-        //Make a record of all agent positions
-        ArrayList<Vector2d> agent_positions = new ArrayList<>();
-        for (GameObject p: agents) {
-            agent_positions.add(p.getPosition());
+        if (VERBOSE && agents.length > 0) {
+            System.out.println("Size of inaccessible passages: "
+                    + countInaccessibleTiles(board, agents[agents.length - 1].getPosition()));
         }
-
-        //Find out how many inaccessible passages exist in the board. If above certain threshold, repeat
-        int inaccessPassages = inaccesibleTiles(board, agent_positions).size();
-        while (inaccessPassages > Types.MAX_INACCESIBLE_TILES){
-            if (VERBOSE) {
-                System.out.println("Size of inaccessible passages: " + inaccessPassages);
-            }
-            board = make(seed, size, numRigid, numWood, agents);
-            inaccessPassages = inaccesibleTiles(board, agent_positions).size();
-        }
-
         return board;
     }
 
@@ -72,16 +64,16 @@ public class LevelGenerator {
         num_items = Math.min(numberOfWood, num_items);
 
         //buffer to make sure we don't use the same wooden box twice.
-        ArrayList<Vector2d> item_positions = new ArrayList<>();
+        boolean[][] used = new boolean[board.length][board[0].length];
 
         while (num_items > 0) {
             int row = random.nextInt(board.length);
             int col = random.nextInt(board[0].length);
             if (board[row][col] != Types.TILETYPE.WOOD.getKey()) continue;
-            if (item_positions.contains(new Vector2d(col, row))) continue;
+            if (used[row][col]) continue;
 
             //Here we have a position (row,col) where an item can be placed. Random power-up spawns here.
-            item_positions.add(new Vector2d(col, row));
+            used[row][col] = true;
             items[row][col] = powerUpTypes[random.nextInt(powerUpTypes.length)].getKey();
             num_items--;
         }
@@ -90,6 +82,10 @@ public class LevelGenerator {
 
     /**
      * Constructs a board: places players and blocks in the level. Doesn't check of inaccessible passages.
+     *
+     * Blocks are placed in pairs, symmetric about the main diagonal, on tiles picked from the free ones in row order.
+     * The free tiles are kept as a Fenwick tree of flags by tile index (y * size + x), so picking the k-th free tile
+     * and taking one out are O(log(size^2)) each.
      * @param seed Unique seed to generate this board.
      * @param size size of the board (size x size)
      * @param numRigid number of rigid, non-destructible, blocks to put in the board.
@@ -106,22 +102,8 @@ public class LevelGenerator {
         // board of all 0s
         int[][] board = new int[size][size];
 
-        if (VERBOSE) {
-            System.out.println("Initial map, all 0s: ");
-            for (int[] ints : board) {
-                System.out.println(Arrays.toString(ints));
-            }
-        }
-
-        //List of free coordinates on the board. Main diagonal is always free.
-        ArrayList<Vector2d> available_coordinates = new ArrayList<>();
-        for (int i = 0; i<size ; i++){
-            for (int j = 0; j < size; j++){
-                if (i != j){
-                    available_coordinates.add(new Vector2d(j, i));
-                }
-            }
-        }
+        //Free tiles on the board. Main diagonal is always free.
+        FreeTiles available = new FreeTiles(size);
 
         // Locate all the players in the board. they must respect a Types.CORNER_DISTANCE to
         // their respective corners.
@@ -131,45 +113,37 @@ public class LevelGenerator {
         board[Types.CORNER_DISTANCE][size-Types.CORNER_DISTANCE -1] = Types.TILETYPE.AGENT3.getKey();
 
         // Keep a list of the agent positions
-        ArrayList<Vector2d> agent_positions = new ArrayList<>();
-        agent_positions.add(new Vector2d(Types.CORNER_DISTANCE, Types.CORNER_DISTANCE));
-        agent_positions.add(new Vector2d(size-Types.CORNER_DISTANCE -1, Types.CORNER_DISTANCE));
-        agent_positions.add(new Vector2d(size-Types.CORNER_DISTANCE -1, size-Types.CORNER_DISTANCE -1));
-        agent_positions.add(new Vector2d(Types.CORNER_DISTANCE, size-Types.CORNER_DISTANCE -1));
+        Vector2d[] agent_positions = {
+                new Vector2d(Types.CORNER_DISTANCE, Types.CORNER_DISTANCE),
+                new Vector2d(size-Types.CORNER_DISTANCE -1, Types.CORNER_DISTANCE),
+                new Vector2d(size-Types.CORNER_DISTANCE -1, size-Types.CORNER_DISTANCE -1),
+                new Vector2d(Types.CORNER_DISTANCE, size-Types.CORNER_DISTANCE -1)};
 
         // and mark those as not available places to put more stuff
-        for (Vector2d agent_position : agent_positions) available_coordinates.remove(agent_position);
-
-
-        if (VERBOSE) {
-            System.out.println("Agents added: ");
-            for (int[] ints : board) {
-                System.out.println(Arrays.toString(ints));
-            }
-        }
+        for (Vector2d agent_position : agent_positions) available.remove(agent_position.x, agent_position.y);
 
         //Some positions around the agent must be free, so those are not valid coordinates either.
         int loc = Types.CORNER_DISTANCE;
         for (int i = 1; i <= BREATHING_SPACE; i++){
             //top left
             int avX = loc, avY = loc; // location of the avatar in this corner
-            available_coordinates.remove(new Vector2d(avX, avY + i));
-            available_coordinates.remove(new Vector2d(avX + i, avY));
+            available.remove(avX, avY + i);
+            available.remove(avX + i, avY);
 
             //bottom right
             avX = size - 1 - loc; avY = size - 1 - loc;  // location of the avatar in this corner
-            available_coordinates.remove(new Vector2d(avX, avY - i));
-            available_coordinates.remove(new Vector2d(avX - i, avY));
+            available.remove(avX, avY - i);
+            available.remove(avX - i, avY);
 
             //top right
             avX = size - 1 - loc; avY = loc;  // location of the avatar in this corner
-            available_coordinates.remove(new Vector2d(avX, avY + i));
-            available_coordinates.remove(new Vector2d(avX - i, avY));
+            available.remove(avX, avY + i);
+            available.remove(avX - i, avY);
 
             //bottom left
             avX = loc; avY = size - 1 - loc;  // location of the avatar in this corner
-            available_coordinates.remove(new Vector2d(avX + i, avY));
-            available_coordinates.remove(new Vector2d(avX, avY - i));
+            available.remove(avX + i, avY);
+            available.remove(avX, avY - i);
         }
 
         //Create a wooden passage in the rows and columns between agents
@@ -183,34 +157,40 @@ public class LevelGenerator {
             int y0 = loc;
             board[x0][y0] = WOOD;
             board[y0][x0] = WOOD;
-            available_coordinates.remove(new Vector2d(x0, y0));
-            available_coordinates.remove(new Vector2d(y0, x0));
+            available.remove(x0, y0);
+            available.remove(y0, x0);
 
             //From bottom right
             int x1 = size - 1 - x0;
             int y1 = size - 1 - loc;
             board[x1][y1] = WOOD;
             board[y1][x1] = WOOD;
-            available_coordinates.remove(new Vector2d(x1, y1));
-            available_coordinates.remove(new Vector2d(y1, x1));
+            available.remove(x1, y1);
+            available.remove(y1, x1);
 
             numWood -= 4;
         }
 
+        if (VERBOSE) {
+            System.out.println("Agents and passages added: ");
+            for (int[] ints : board) {
+                System.out.println(Arrays.toString(ints));
+            }
+        }
 
         //Place more rigid tiles until all desired ones are placed.
         int RIGID = Types.TILETYPE.RIGID.getKey();
-        while (numRigid >0 && available_coordinates.size()>1){
-            numRigid = placeBlock(seed, RIGID, numRigid, available_coordinates, board);
+        while (numRigid >0 && available.size()>1){
+            numRigid = placeBlock(seed, RIGID, numRigid, available, board);
         }
 
-        while (numWood > 0 && available_coordinates.size()>1){
-            numWood = placeBlock(seed, WOOD, numWood, available_coordinates, board);
+        while (numWood > 0 && available.size()>1){
+            numWood = placeBlock(seed, WOOD, numWood, available, board);
         }
 
         //Finally, set the positions to the agent objects.
         for (int i = 0; i < agents.length; i++) {
-            agents[i].setPosition(agent_positions.get(i));
+            agents[i].setPosition(agent_positions[i]);
         }
 
         return board;
@@ -222,17 +202,18 @@ public class LevelGenerator {
      * @param seed random seed of this genreator
      * @param type type of block to add
      * @param num_left number of blocks left at this point
-     * @param coordinates set of possible coordinates to place a block
+     * @param available free tiles where a block can be placed
      * @param board Board to place a block in.
      * @return number of blocks left to put after this addition.
      */
-    private static int placeBlock(long seed, int type, int num_left, ArrayList<Vector2d> coordinates, int[][] board){
+    private static int placeBlock(long seed, int type, int num_left, FreeTiles available, int[][] board){
         Random r = new Random(seed);
-        Vector2d rnd = coordinates.get(r.nextInt(coordinates.size()));
-        int x = rnd.x;
-        int y = rnd.y;
-        coordinates.remove(rnd);
-        coordinates.remove(new Vector2d(y, x));
+        int tile = available.get(r.nextInt(available.size()));
+        int size = board.length;
+        int x = tile % size;
+        int y = tile / size;
+        available.remove(x, y);
+        available.remove(y, x);
         board[y][x] = type;
         board[x][y] = type;
         num_left-=2;
@@ -240,119 +221,119 @@ public class LevelGenerator {
     }
 
     /**
-     * Gets all the positions, as vectors, of tiles in the board of type 'type'
-     * @param board level of the game
-     * @param type type of the tile we're looking for.
-     * @return list of positions where there's a tile of type 'type'
+     * Counts the passages that can't be reached from a position, moving through any tile that is not rigid.
+     * @param board level of the game.
+     * @param start position to start from, usually an agent's.
+     * @return the number of passages that are inaccessible.
      */
-    private static ArrayList<Vector2d> findIndices(int[][] board, int type){
+    public static int countInaccessibleTiles(int[][] board, Vector2d start)
+    {
         int size = board.length;
-        ArrayList<Vector2d> indices = new ArrayList<>();
-        for (int i = 0; i < size; i++){
-            for(int j = 0; j < size; j++){
-                if(board[i][j] == type ){
-                    indices.add(new Vector2d(i, j));
+        int RIGID = Types.TILETYPE.RIGID.getKey();
+        int PASSAGE = Types.TILETYPE.PASSAGE.getKey();
+
+        BitSet passages = new BitSet(size * size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (board[y][x] == PASSAGE) {
+                    passages.set(y * size + x);
                 }
             }
         }
-        return indices;
-    }
 
-    /**
-     * Checks if a position is within the board dimensions
-     * @param position position to check
-     * @param size size of the board
-     * @return true if position is inside board, false otherwise.
-     */
-    private static boolean isOnBoard(Vector2d position, int size){
-        int x = position.x;
-        int y = position.y;
+        // Flood fill, each tile is pushed at most once
+        BitSet reached = new BitSet(size * size);
+        int[] stack = new int[size * size];
+        int top = 0;
+        stack[top++] = start.y * size + start.x;
+        reached.set(start.y * size + start.x);
+        while (top > 0) {
+            int tile = stack[--top];
+            int x = tile % size;
+            int y = tile / size;
+            if (x > 0 && !reached.get(tile - 1) && board[y][x - 1] != RIGID) {
+                reached.set(tile - 1);
+                stack[top++] = tile - 1;
+            }
+            if (x < size - 1 && !reached.get(tile + 1) && board[y][x + 1] != RIGID) {
+                reached.set(tile + 1);
+                stack[top++] = tile + 1;
+            }
+            if (y > 0 && !reached.get(tile - size) && board[y - 1][x] != RIGID) {
+                reached.set(tile - size);
+                stack[top++] = tile - size;
+            }
+            if (y < size - 1 && !reached.get(tile + size) && board[y + 1][x] != RIGID) {
+                reached.set(tile + size);
+                stack[top++] = tile + size;
+            }
+        }
 
-        return x < size && x >= 0 && y < size && y >= 0;
+        passages.andNot(reached);
+        return passages.cardinality();
     }
 
     /**
-     * Calculates a list of inaccessible tiles (due to board limits and rigid blocks) in the board.
-     * @param board the board with blocks already placed.
-     * @param agent_positions positions of the agents.
-     * @return the list of tiles that are inaccessible
+     * Free tiles of a board, off the main diagonal, in row order: flags by tile index (y * size + x) with a Fenwick
+     * tree of their counts.
      */
-    private static ArrayList<Vector2d> inaccesibleTiles(int[][] board, ArrayList<Vector2d> agent_positions)
-    {
-        int size = board.length;
-        if (VERBOSE) {
-            System.out.println("Solving inaccessible passage for board:");
-            for (int[] ints : board) {
-                System.out.println(Arrays.toString(ints));
+    private static class FreeTiles {
+        private final int size;
+        private final boolean[] free;
+        private final int[] tree;   // tree[i] = free tiles in (i - lowbit(i), i], 1-based
+        private int count;
+
+        FreeTiles(int size) {
+            this.size = size;
+            int n = size * size;
+            free = new boolean[n];
+            tree = new int[n + 1];
+            for (int tile = 0; tile < n; tile++) {
+                if (tile / size != tile % size) {
+                    free[tile] = true;
+                    tree[tile + 1]++;
+                    count++;
+                }
+                // Built in linear time, adding each node to its parent once complete
+                int parent = (tile + 1) + ((tile + 1) & -(tile + 1));
+                if (parent <= n) {
+                    tree[parent] += tree[tile + 1];
+                }
             }
         }
 
-        //Get a list of positions in the board that are free.
-        ArrayList<Vector2d> passage_positions = findIndices(board, Types.TILETYPE.PASSAGE.getKey());
-
-        //Odd case. No agents mean nothing is unreachable.
-        if (agent_positions.size() == 0) {
-            passage_positions.clear();
-            return passage_positions;
+        int size() {
+            return count;
         }
 
-
-        //Now, use Dijkstra to try to reach them all.
-
-        Set<Vector2d> seen = new HashSet<>();
-
-        Vector2d agent_position = agent_positions.get(agent_positions.size() - 1);
-        agent_positions.remove(agent_positions.size() - 1);
-
-        ArrayList<Vector2d> Q = new ArrayList<>();
-        Q.add(agent_position);
-
-        Types.DIRECTIONS[] positions_to_be_checked = Types.DIRECTIONS.values();
-
-        while(Q.size() > 0){
-            Vector2d rowcol = Q.get(Q.size() - 1);
-            Q.remove(Q.size() - 1);
-
-            for (Types.DIRECTIONS position_to_be_checked : positions_to_be_checked) {
-                int rowcol_x = rowcol.x;
-                int rowcol_y = rowcol.y;
-
-                Vector2d pos = position_to_be_checked.toVec();
-                int position_to_be_checked_x = pos.x;
-                int position_to_be_checked_y = pos.y;
-
-                Vector2d next_position = new Vector2d(rowcol_x + position_to_be_checked_x,
-                        rowcol_y + position_to_be_checked_y);
-
-                if (seen.contains(next_position)) {
-                    continue;
-                }
-
-                if (!isOnBoard(next_position, size)) {
-                    continue;
-                }
-
-                if (board[next_position.y][next_position.x] == Types.TILETYPE.RIGID.getKey()){
-                    continue;
-                }
-
-                if (passage_positions.contains(next_position)) {
-                    //If the position has been found, remove it from the list.
-                    passage_positions.remove(next_position);
-
-                    //All free positions have been checked
-                    if (passage_positions.size() == 0) {
-                        return new ArrayList<>();
-                    }
+        /**
+         * @return the k-th free tile (from 0) in row order.
+         */
+        int get(int k) {
+            int pos = 0;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+                if (pos + step < tree.length && tree[pos + step] <= k) {
+                    pos += step;
+                    k -= tree[pos];
                 }
-
-                seen.add(next_position);
-                Q.add(next_position);
             }
+            return pos;
         }
 
-        //All remaining ones hae not been found by the algorithm.
-        return passage_positions;
+        /**
+         * Takes tile (x, y) out, if it is on the board and free.
+         */
+        void remove(int x, int y) {
+            if (x < 0 || x >= size || y < 0 || y >= size || !free[y * size + x]) {
+                return;
+            }
+            int tile = y * size + x;
+            free[tile] = false;
+            count--;
+            for (int i = tile + 1; i < tree.length; i += i & -i) {
+                tree[i]--;
+            }
+        }
     }
 
 
@@ -0,0 +1,65 @@
+package utils;
+
+import objects.Avatar;
+import objects.GameObject;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelGeneratorTest {
+
+    // Hashes of the levels of LevelPool.PAPER_SEEDS (size 11), as generated before LevelGenerator used FreeTiles
+    private static final long[] PAPER_HASHES = {
+            5762889139098740546L, -622352961384961819L, 6171231666875107114L,
+            6840918396789401858L, -8551453928470979738L, -1907021087421082013L,
+            7766851577144052508L, -3670771959084111720L, -688843589027746578L,
+            -8601939259606165812L, -5222347248427412592L, 8021972472142622016L,
+            4074973947512690018L, 5693172581261335475L, 1482481379856439229L,
+            -3045145760118027152L, 5610438264115430097L, -4873492458062050642L,
+            5072710334801013640L, 1884883646177583287L
+    };
+
+    // Size, seed and hash of larger levels, generated the same way
+    private static final long[][] LARGE_HASHES = {
+            {15, 7919, -5789775375265245056L},
+            {15, 15838, -622346236132713623L},
+            {15, 23757, -1482482660563333827L},
+            {15, 31676, -1584539979666605090L},
+            {15, 39595, -2963504621218448960L},
+            {21, 7919, -7750600401991483824L},
+            {21, 15838, -5501357477442895053L},
+            {21, 23757, 1646182315944672406L},
+            {21, 31676, -2045087766214653540L},
+            {21, 39595, -1443524804377227825L}
+    };
+
+    // FNV-1a of the board and items made from a seed, with the default settings of Types
+    private static long levelHash(long seed, int size) {
+        GameObject[] agents = new GameObject[Types.NUM_PLAYERS];
+        for (int i = 0; i < agents.length; i++) {
+            agents[i] = new Avatar(Types.TILETYPE.AGENT0.getKey() + i, Types.GAME_MODE.FFA);
+        }
+        int[][] board = LevelGenerator.makeBoard(seed, size, Types.BOARD_NUM_RIGID, Types.BOARD_NUM_WOOD, agents);
+        int[][] items = LevelGenerator.makeItems(board, Types.BOARD_NUM_ITEMS, seed);
+        long hash = 0xcbf29ce484222325L;
+        for (int[][] tiles : new int[][][]{board, items}) {
+            for (int[] row : tiles) {
+                for (int tile : row) {
+                    hash ^= tile;
+                    hash *= 0x100000001b3L;
+                }
+            }
+        }
+        return hash;
+    }
+
+    @Test
+    void levelsDontChange() {
+        for (int i = 0; i < LevelPool.PAPER_SEEDS.length; i++) {
+            assertEquals(PAPER_HASHES[i], levelHash(LevelPool.PAPER_SEEDS[i], 11), "Seed " + LevelPool.PAPER_SEEDS[i]);
+        }
+        for (long[] level : LARGE_HASHES) {
+            assertEquals(level[2], levelHash(level[1], (int) level[0]), "Size " + level[0] + ", seed " + level[1]);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package utils;
+
+import objects.Avatar;
+import objects.GameObject;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Levels already generated (see LevelGenerator), so games on the same seed don't generate their level again. A level
+ * is the finished board and items, keyed by seed and everything that changes the level made from it: the size of the
+ * board and Types.BOARD_NUM_RIGID, BOARD_NUM_WOOD, BOARD_NUM_ITEMS, CORNER_DISTANCE and BREATHING_SPACE at the time.
+ *
+ * Levels generated while playing are kept in memory, up to CAPACITY of them (least recently used go first). Levels
+ * can also be saved to a pool file and loaded from it, e.g. by all the processes of a tournament; loaded levels stay
+ * in memory. Pools are made with:
+ *   java utils.LevelPool [file] [seeds = the 20 of the paper]
+ *
+ * Pool format (big-endian):
+ *   int magic ("PLVL"), short version, int number of levels, and for each level:
+ *   long seed, 6 shorts with its size and settings (in the order above), size x size bytes of board tiles and
+ *   size x size bytes of items (both TILETYPE keys, rows first).
+ */
+public class LevelPool {
+    static final int MAGIC = 0x504C564C;  // "PLVL"
+    static final short VERSION = 2;
+
+    // Levels generated while playing kept in memory
+    public static int CAPACITY = 1024;
+
+    // Seeds of the levels played in the experiments of the paper
+    public static final long[] PAPER_SEEDS = {93988, 19067, 64416, 83884, 55636, 27599, 44350, 87872, 40815,
+            11772, 58367, 17546, 75375, 75772, 58237, 30464, 27180, 23643, 67054, 19508};
+
+    private static final LinkedHashMap<Key, Level> loaded = new LinkedHashMap<>();
+    private static final LinkedHashMap<Key, Level> recent = new LinkedHashMap<Key, Level>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Level> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * A level: the board (walls, wood, passages and agents) and the items hidden under the wood.
+     */
+    public static class Level {
+        public final long seed;
+        private final int[][] board;
+        private final int[][] items;
+
+        Level(long seed, int[][] board, int[][] items) {
+            this.seed = seed;
+            this.board = board;
+            this.items = items;
+        }
+
+        /**
+         * @return a copy of the board, as LevelGenerator.makeBoard makes it.
+         */
+        public int[][] getBoard() {
+            return copy(board);
+        }
+
+        /**
+         * @return a copy of the items, as LevelGenerator.makeItems makes them.
+         */
+        public int[][] getItems() {
+            return copy(items);
+        }
+
+        private static int[][] copy(int[][] a) {
+            int[][] c = new int[a.length][];
+            for (int i = 0; i < a.length; i++) {
+                c[i] = a[i].clone();
+            }
+            return c;
+        }
+    }
+
+    private static class Key {
+        final long seed;
+        final int[] settings;
+
+        Key(long seed, int[] settings) {
+            this.seed = seed;
+            this.settings = settings;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).seed == seed && Arrays.equals(((Key) o).settings, settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(seed) + Arrays.hashCode(settings);
+        }
+    }
+
+    /**
+     * Gets a level, generating it if it is not in memory.
+     * @param seed - seed of the level.
+     * @param size - size of the board (size x size).
+     * @return the level, with the current settings of Types.
+     */
+    public static Level get(long seed, int size) {
+        Key key = new Key(seed, currentSettings(size));
+        synchronized (LevelPool.class) {
+            Level level = loaded.get(key);
+            if (level == null) {
+                level = recent.get(key);
+            }
+            if (level != null) {
+                return level;
+            }
+        }
+        Level level = generate(seed, size);
+        synchronized (LevelPool.class) {
+            recent.put(key, level);
+        }
+        return level;
+    }
+
+    /**
+     * Generates a level, without looking in memory or keeping it.
+     * @param seed - seed of the level.
+     * @param size - size of the board (size x size).
+     * @return the level, with the current settings of Types.
+     */
+    public static Level generate(long seed, int size) {
+        // Only the positions of these agents are set, the board has the agents already
+        GameObject[] agents = new GameObject[Types.NUM_PLAYERS];
+        for (int i = 0; i < agents.length; i++) {
+            agents[i] = new Avatar(Types.TILETYPE.AGENT0.getKey() + i, Types.GAME_MODE.FFA);
+        }
+        int[][] board = LevelGenerator.makeBoard(seed, size, Types.BOARD_NUM_RIGID, Types.BOARD_NUM_WOOD, agents);
+        int[][] items = LevelGenerator.makeItems(board, Types.BOARD_NUM_ITEMS, seed);
+        return new Level(seed, board, items);
+    }
+
+    /**
+     * @return the seeds of the levels loaded from pool files, in the order of the files.
+     */
+    public static synchronized long[] getLoadedSeeds() {
+        return loaded.keySet().stream().mapToLong(key -> key.seed).toArray();
+    }
+
+    /**
+     * Forgets all levels, loaded or generated.
+     */
+    public static synchronized void clear() {
+        loaded.clear();
+        recent.clear();
+    }
+
+    /**
+     * @return number of levels in memory, loaded or generated.
+     */
+    public static synchronized int size() {
+        return loaded.size() + recent.size();
+    }
+
+    private static int[] currentSettings(int size) {
+        return new int[]{size, Types.BOARD_NUM_RIGID, Types.BOARD_NUM_WOOD, Types.BOARD_NUM_ITEMS,
+                Types.CORNER_DISTANCE, Types.BREATHING_SPACE};
+    }
+
+    /**
+     * Generates levels with the current settings of Types and saves them to a pool file, replacing it atomically.
+     * @param file - file to write to.
+     * @param seeds - seeds of the levels.
+     * @param size - size of the boards.
+     */
+    public static void save(File file, long[] seeds, int size) throws IOException {
+        int[] settings = currentSettings(size);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(seeds.length);
+            for (long seed : seeds) {
+                Level level = get(seed, size);
+                out.writeLong(seed);
+                for (int s : settings) {
+                    out.writeShort(s);
+                }
+                for (int[][] tiles : new int[][][]{level.board, level.items}) {
+                    for (int[] row : tiles) {
+                        for (int tile : row) {
+                            out.writeByte(tile);
+                        }
+                    }
+                }
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Loads the levels of a pool file, which stay in memory. Levels made with other settings than the current ones
+     * are loaded too, and used if the settings change to theirs.
+     * @param file - file to read from.
+     * @return number of levels loaded.
+     */
+    public static int load(File file) throws IOException {
+        LinkedHashMap<Key, Level> levels = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a level pool");
+            }
+            short version = in.readShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported level pool version " + version);
+            }
+            int n = in.readInt();
+            for (int l = 0; l < n; l++) {
+                long seed = in.readLong();
+                int[] settings = new int[currentSettings(0).length];
+                for (int s = 0; s < settings.length; s++) {
+                    settings[s] = in.readShort();
+                }
+                int size = settings[0];
+                int[][] board = new int[size][size];
+                int[][] items = new int[size][size];
+                for (int[][] tiles : new int[][][]{board, items}) {
+                    for (int[] row : tiles) {
+                        for (int i = 0; i < size; i++) {
+                            row[i] = in.readUnsignedByte();
+                        }
+                    }
+                }
+                levels.put(new Key(seed, settings), new Level(seed, board, items));
+            }
+        }
+        synchronized (LevelPool.class) {
+            loaded.putAll(levels);
+        }
+        return levels.size();
+    }
+
+    public static void main(String[] args) throws IOException {
+        File file = new File(args[0]);
+        long[] seeds = PAPER_SEEDS;
+        if (args.length > 1) {
+            seeds = new long[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                seeds[i - 1] = Long.parseLong(args[i]);
+            }
+        }
+        save(file, seeds, Types.BOARD_SIZE);
+        System.out.println("Saved " + seeds.length + " levels of size " + Types.BOARD_SIZE + " to " + file);
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import objects.Avatar;
+import objects.GameObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelPoolTest {
+
+    @Test
+    void levelsMatchGenerator() {
+        LevelPool.clear();
+        for (long seed : LevelPool.PAPER_SEEDS) {
+            GameObject[] agents = new GameObject[Types.NUM_PLAYERS];
+            for (int i = 0; i < agents.length; i++) {
+                agents[i] = new Avatar(Types.TILETYPE.AGENT0.getKey() + i, Types.GAME_MODE.FFA);
+            }
+            int[][] board = LevelGenerator.makeBoard(seed, 11, Types.BOARD_NUM_RIGID, Types.BOARD_NUM_WOOD, agents);
+            int[][] items = LevelGenerator.makeItems(board, Types.BOARD_NUM_ITEMS, seed);
+
+            // Generated the first time, kept the second
+            for (int k = 0; k < 2; k++) {
+                LevelPool.Level level = LevelPool.get(seed, 11);
+                assertArrayEquals(board, level.getBoard());
+                assertArrayEquals(items, level.getItems());
+            }
+        }
+        assertEquals(LevelPool.PAPER_SEEDS.length, LevelPool.size());
+    }
+
+    @Test
+    void poolRoundTrip() throws IOException {
+        File file = File.createTempFile("levels", ".pool");
+        file.deleteOnExit();
+        LevelPool.clear();
+        LevelPool.save(file, LevelPool.PAPER_SEEDS, 11);
+        int[][] board = LevelPool.get(LevelPool.PAPER_SEEDS[3], 11).getBoard();
+
+        LevelPool.clear();
+        assertEquals(LevelPool.PAPER_SEEDS.length, LevelPool.load(file));
+        assertArrayEquals(board, LevelPool.get(LevelPool.PAPER_SEEDS[3], 11).getBoard());
+        // Found among the levels loaded, not generated again
+        assertEquals(LevelPool.PAPER_SEEDS.length, LevelPool.size());
+
+        // Other settings make other levels
+        int numWood = Types.BOARD_NUM_WOOD;
+        try {
+            Types.BOARD_NUM_WOOD = numWood - 4;
+            LevelPool.get(LevelPool.PAPER_SEEDS[3], 11);
+            assertEquals(LevelPool.PAPER_SEEDS.length + 1, LevelPool.size());
+        } finally {
+            Types.BOARD_NUM_WOOD = numWood;
+        }
+    }
+}
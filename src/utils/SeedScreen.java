@@ -0,0 +1,386 @@
+package utils;
+
+import core.Game;
+import objects.Avatar;
+import objects.GameObject;
+import players.Player;
+import players.SimplePlayer;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Screens level seeds for fairness, to choose the levels of benchmarks. For each seed it generates the level (see
+ * LevelGenerator) and measures, for the agent in each corner:
+ *   reach     - tiles it can walk to before breaking any wood,
+ *   wood      - wood tiles closer to it than to any other agent (ties count for all of them),
+ *   item      - distance to the nearest item, once wood is out of the way (NO_ITEM if none can be reached),
+ *   wins      - games won in self-play, all four agents SimplePlayers (optional).
+ * Seeds are screened in parallel with fork/join, in blocks whose records are appended to an index file in seed order.
+ *
+ * Usage: java utils.SeedScreen build [index file] [first seed] [seeds] [self-play games per seed = 1] [max ticks = 200]
+ *        java utils.SeedScreen query [index file] [max imbalance] [seeds = all] [level pool file to save them to]
+ * Query prints the seeds whose corners are balanced within the given imbalance (see imbalance()), in seed order. The
+ * level pool saved can be played with Run, see its arguments.
+ *
+ * Index format (big-endian):
+ *   int magic ("PSIX"), short version, short board size, shorts BOARD_NUM_RIGID, BOARD_NUM_WOOD, BOARD_NUM_ITEMS,
+ *   CORNER_DISTANCE, BREATHING_SPACE, short self-play games and short max ticks per game, then a record per seed:
+ *   long seed, and for each corner short reach, short wood, short item and byte wins (RECORD_SIZE bytes).
+ */
+public class SeedScreen {
+    static final int MAGIC = 0x50534958;  // "PSIX"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 4 + 2 + 2 * 8;
+    static final int RECORD_SIZE = 8 + Types.NUM_PLAYERS * 7;
+
+    // Distance to the nearest item when no item can be reached
+    public static final int NO_ITEM = 0xFFFF;
+
+    // Seeds screened before their records are written
+    static int BLOCK_SIZE = 1 << 14;
+    // Seeds screened by each fork/join task
+    static int TASK_SIZE = 64;
+
+    /**
+     * Measures of a seed, indexed by corner (the agent starting there).
+     */
+    public static class Record {
+        public long seed;
+        public final int[] reach = new int[Types.NUM_PLAYERS];
+        public final int[] wood = new int[Types.NUM_PLAYERS];
+        public final int[] item = new int[Types.NUM_PLAYERS];
+        public final int[] wins = new int[Types.NUM_PLAYERS];
+
+        void write(DataOutput out) throws IOException {
+            out.writeLong(seed);
+            for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                out.writeShort(reach[i]);
+                out.writeShort(wood[i]);
+                out.writeShort(item[i]);
+                out.writeByte(wins[i]);
+            }
+        }
+
+        static Record read(DataInput in) throws IOException {
+            Record r = new Record();
+            r.seed = in.readLong();
+            for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                r.reach[i] = in.readUnsignedShort();
+                r.wood[i] = in.readUnsignedShort();
+                r.item[i] = in.readUnsignedShort();
+                r.wins[i] = in.readUnsignedByte();
+            }
+            return r;
+        }
+
+        @Override
+        public String toString() {
+            return seed + "\t reach " + Arrays.toString(reach) + "\t wood " + Arrays.toString(wood)
+                    + "\t item " + Arrays.toString(item) + "\t wins " + Arrays.toString(wins);
+        }
+    }
+
+    /**
+     * How unfair a level is to some corner: the largest, over the measures, of the spread between the corners.
+     * Reach, wood and item distance spread by (max - min) / max; wins by (max - min) / games played. A corner that
+     * can't reach any item when another can makes the level as unfair as it gets.
+     * @param r - measures of the level.
+     * @param games - self-play games played per seed, 0 if none.
+     * @return imbalance, from 0 (all corners equal) to 1.
+     */
+    public static double imbalance(Record r, int games) {
+        double imbalance = Math.max(spread(r.reach), spread(r.wood));
+        imbalance = Math.max(imbalance, spread(r.item));
+        if (games > 0) {
+            int max = Arrays.stream(r.wins).max().getAsInt();
+            int min = Arrays.stream(r.wins).min().getAsInt();
+            imbalance = Math.max(imbalance, (double) (max - min) / games);
+        }
+        return imbalance;
+    }
+
+    private static double spread(int[] values) {
+        int max = Arrays.stream(values).max().getAsInt();
+        int min = Arrays.stream(values).min().getAsInt();
+        return max == 0 ? 0 : (double) (max - min) / max;
+    }
+
+    /**
+     * Measures a seed, with the current settings of Types.
+     * @param seed - seed of the level.
+     * @param size - size of the board.
+     * @param games - self-play games to play, each with other player seeds.
+     * @return the measures.
+     */
+    public static Record screen(long seed, int size, int games) {
+        GameObject[] agents = new GameObject[Types.NUM_PLAYERS];
+        for (int i = 0; i < agents.length; i++) {
+            agents[i] = new Avatar(Types.TILETYPE.AGENT0.getKey() + i, Types.GAME_MODE.FFA);
+        }
+        int[][] board = LevelGenerator.makeBoard(seed, size, Types.BOARD_NUM_RIGID, Types.BOARD_NUM_WOOD, agents);
+        int[][] items = LevelGenerator.makeItems(board, Types.BOARD_NUM_ITEMS, seed);
+
+        Record r = new Record();
+        r.seed = seed;
+        int[][] distance = new int[Types.NUM_PLAYERS][];
+        for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+            int start = find(board, Types.TILETYPE.AGENT0.getKey() + i);
+            r.reach[i] = count(distances(board, start, false));
+            distance[i] = distances(board, start, true);
+            r.item[i] = NO_ITEM;
+            for (int tile = 0; tile < size * size; tile++) {
+                if (items[tile / size][tile % size] != 0 && distance[i][tile] >= 0) {
+                    r.item[i] = Math.min(r.item[i], distance[i][tile]);
+                }
+            }
+        }
+        for (int tile = 0; tile < size * size; tile++) {
+            if (board[tile / size][tile % size] != Types.TILETYPE.WOOD.getKey()) {
+                continue;
+            }
+            int closest = Integer.MAX_VALUE;
+            for (int[] d : distance) {
+                if (d[tile] >= 0) {
+                    closest = Math.min(closest, d[tile]);
+                }
+            }
+            for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                if (distance[i][tile] == closest) {
+                    r.wood[i]++;
+                }
+            }
+        }
+
+        for (int g = 0; g < games; g++) {
+            Game game = new Game(seed, size, Types.GAME_MODE.FFA, "");
+            ArrayList<Player> players = new ArrayList<>();
+            for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                players.add(new SimplePlayer(seed + g, Types.TILETYPE.AGENT0.getKey() + i));
+            }
+            game.setPlayers(players);
+            Types.RESULT[] results = game.run(false);
+            for (int i = 0; i < Types.NUM_PLAYERS; i++) {
+                if (results[i] == Types.RESULT.WIN) {
+                    r.wins[i]++;
+                }
+            }
+        }
+        return r;
+    }
+
+    private static int find(int[][] board, int type) {
+        for (int tile = 0; tile < board.length * board.length; tile++) {
+            if (board[tile / board.length][tile % board.length] == type) {
+                return tile;
+            }
+        }
+        throw new RuntimeException("No tile " + type + " on the board");
+    }
+
+    /**
+     * Distances, in moves, from a tile to all others: breadth first through passages and agents, and also through
+     * wood and items if throughWood (but never through rigid blocks).
+     * @return distance to each tile (y * size + x), -1 for those that can't be reached.
+     */
+    private static int[] distances(int[][] board, int start, boolean throughWood) {
+        int size = board.length;
+        int[] distance = new int[size * size];
+        Arrays.fill(distance, -1);
+        int[] queue = new int[size * size];
+        int head = 0, tail = 0;
+        distance[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int tile = queue[head++];
+            int x = tile % size;
+            int y = tile / size;
+            for (int next : new int[]{x > 0 ? tile - 1 : -1, x < size - 1 ? tile + 1 : -1,
+                    y > 0 ? tile - size : -1, y < size - 1 ? tile + size : -1}) {
+                if (next >= 0 && distance[next] < 0 && passable(board[next / size][next % size], throughWood)) {
+                    distance[next] = distance[tile] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static boolean passable(int tile, boolean throughWood) {
+        if (tile == Types.TILETYPE.RIGID.getKey()) {
+            return false;
+        }
+        return throughWood || tile != Types.TILETYPE.WOOD.getKey();
+    }
+
+    private static int count(int[] distance) {
+        int n = 0;
+        for (int d : distance) {
+            if (d >= 0) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Screens the seeds of a range into records[seed - first], splitting it among fork/join tasks.
+     */
+    private static class ScreenTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Record[] records;
+        private final long first;
+        private final int from, to, size, games;
+
+        ScreenTask(Record[] records, long first, int from, int to, int size, int games) {
+            this.records = records;
+            this.first = first;
+            this.from = from;
+            this.to = to;
+            this.size = size;
+            this.games = games;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_SIZE) {
+                for (int i = from; i < to; i++) {
+                    records[i] = screen(first + i, size, games);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ScreenTask(records, first, from, mid, size, games),
+                        new ScreenTask(records, first, mid, to, size, games));
+            }
+        }
+    }
+
+    /**
+     * Screens a range of seeds, with the current settings of Types, writing their records to an index file as they
+     * are measured.
+     * @param file - index file, replaced.
+     * @param first - first seed.
+     * @param n - number of seeds.
+     * @param size - size of the boards.
+     * @param games - self-play games per seed.
+     */
+    public static void build(File file, long first, long n, int size, int games) throws IOException {
+        if (games > 255) {
+            throw new IllegalArgumentException("At most 255 self-play games per seed");
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            for (int s : new int[]{size, Types.BOARD_NUM_RIGID, Types.BOARD_NUM_WOOD, Types.BOARD_NUM_ITEMS,
+                    Types.CORNER_DISTANCE, Types.BREATHING_SPACE, games, Types.MAX_GAME_TICKS}) {
+                out.writeShort(s);
+            }
+            for (long block = 0; block < n; block += BLOCK_SIZE) {
+                Record[] records = new Record[(int) Math.min(BLOCK_SIZE, n - block)];
+                ForkJoinPool.commonPool().invoke(new ScreenTask(records, first + block, 0, records.length, size,
+                        games));
+                for (Record r : records) {
+                    r.write(out);
+                }
+                out.flush();
+            }
+        }
+    }
+
+    /**
+     * Reads the seeds of an index file whose corners are balanced.
+     * @param file - index file.
+     * @param maxImbalance - largest imbalance of the seeds chosen, see imbalance().
+     * @param max - largest number of seeds to choose.
+     * @return the seeds chosen, in the order of the file.
+     */
+    public static ArrayList<Record> query(File file, double maxImbalance, long max) throws IOException {
+        ArrayList<Record> chosen = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int games = readSettings(in)[6];
+            long n = (file.length() - HEADER_SIZE) / RECORD_SIZE;
+            for (long i = 0; i < n && chosen.size() < max; i++) {
+                Record r = Record.read(in);
+                if (imbalance(r, games) <= maxImbalance) {
+                    chosen.add(r);
+                }
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Reads the header of an index file.
+     * @return board size, level settings, games and ticks, in the order of the header.
+     */
+    private static int[] readSettings(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a seed index");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported seed index version " + version);
+        }
+        int[] settings = new int[8];
+        for (int i = 0; i < settings.length; i++) {
+            settings[i] = in.readShort();
+        }
+        return settings;
+    }
+
+    public static void main(String[] args) throws IOException {
+        File file = new File(args[1]);
+        if (args[0].equals("build")) {
+            long first = Long.parseLong(args[2]);
+            long n = Long.parseLong(args[3]);
+            int games = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+            Types.MAX_GAME_TICKS = args.length > 5 ? Integer.parseInt(args[5]) : 200;
+
+            // Games print their results, keep them quiet
+            PrintStream stdout = System.out;
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+            }));
+            long start = System.currentTimeMillis();
+            try {
+                build(file, first, n, Types.BOARD_SIZE, games);
+            } finally {
+                System.setOut(stdout);
+            }
+            System.out.println("Screened " + n + " seeds in " + (System.currentTimeMillis() - start) + " ms");
+        } else if (args[0].equals("query")) {
+            double maxImbalance = Double.parseDouble(args[2]);
+            long max = args.length > 3 ? Long.parseLong(args[3]) : Long.MAX_VALUE;
+            ArrayList<Record> chosen = query(file, maxImbalance, max);
+            for (Record r : chosen) {
+                System.out.println(r);
+            }
+            System.out.println(chosen.size() + " seeds balanced within " + maxImbalance);
+            if (args.length > 4) {
+                long[] seeds = new long[chosen.size()];
+                for (int i = 0; i < seeds.length; i++) {
+                    seeds[i] = chosen.get(i).seed;
+                }
+                int[] settings;
+                try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                    settings = readSettings(in);
+                }
+                if (settings[1] != Types.BOARD_NUM_RIGID || settings[2] != Types.BOARD_NUM_WOOD
+                        || settings[3] != Types.BOARD_NUM_ITEMS || settings[4] != Types.CORNER_DISTANCE
+                        || settings[5] != Types.BREATHING_SPACE) {
+                    throw new IOException("The index was built with other level settings than the current ones");
+                }
+                LevelPool.save(new File(args[4]), seeds, settings[0]);
+            }
+        } else {
+            System.out.println("Usage: java utils.SeedScreen build [index file] [first seed] [seeds] [games] [ticks]");
+            System.out.println("       java utils.SeedScreen query [index file] [max imbalance] [seeds] [level pool]");
+        }
+    }
+}
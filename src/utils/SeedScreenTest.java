@@ -0,0 +1,41 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeedScreenTest {
+
+    @Test
+    void indexRoundTrip() throws IOException {
+        File file = File.createTempFile("seeds", ".index");
+        file.deleteOnExit();
+        int blockSize = SeedScreen.BLOCK_SIZE;
+        try {
+            // Several blocks, the last one partial
+            SeedScreen.BLOCK_SIZE = 128;
+            SeedScreen.build(file, 1000, 300, 11, 0);
+        } finally {
+            SeedScreen.BLOCK_SIZE = blockSize;
+        }
+        assertEquals(SeedScreen.HEADER_SIZE + 300 * SeedScreen.RECORD_SIZE, file.length());
+
+        ArrayList<SeedScreen.Record> all = SeedScreen.query(file, 1, Long.MAX_VALUE);
+        assertEquals(300, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            SeedScreen.Record r = all.get(i);
+            assertEquals(1000 + i, r.seed);
+            assertEquals(SeedScreen.screen(r.seed, 11, 0).toString(), r.toString());
+        }
+
+        ArrayList<SeedScreen.Record> balanced = SeedScreen.query(file, 0.1, 10);
+        assertTrue(balanced.size() <= 10);
+        for (SeedScreen.Record r : balanced) {
+            assertTrue(SeedScreen.imbalance(r, 0) <= 0.1);
+        }
+    }
+}
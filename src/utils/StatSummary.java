@@ -186,6 +186,10 @@ public class StatSummary {
         return sum;
     }
 
+    public double sumsq(){
+        return sumsq;
+    }
+
     public StatSummary copy()
     {
         StatSummary ss = new StatSummary();
@@ -6,6 +6,7 @@ import core.gameConfig.OriginalGameConfig;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 public class Types {
 
@@ -31,7 +32,7 @@ public class Types {
     public static int BOARD_NUM_RIGID = 20;         //Number of rigid blocks to put in the level.
     public static int BOARD_NUM_WOOD = 20;          //Number of wooden (destroyable) blocks for the level.
     public static int BOARD_NUM_ITEMS = 10;         //Number of items to put in level.
-    public static int MAX_INACCESIBLE_TILES = 4;    //Number of inaccessible parts of the level allowed.
+    public static int MAX_INACCESIBLE_TILES = 4;    //Not used: levels are no longer regenerated, see LevelGenerator.makeBoard.
     public static int CORNER_DISTANCE = 1;          //Distance to the corner, in tiles, of the starting agent position.
     public static int BREATHING_SPACE = 2;          //Breathing space, L shaped tile section free at start around agent.
 
@@ -129,11 +130,12 @@ public class Types {
         }
 
         /**
-         * Returns all power up types.
+         * Returns all power up types, always in the same order: the level generator picks them by index, so a
+         * hash order (which for enums changes from run to run) would place different power-ups for the same seed.
          * @return all power up types.
          */
         public static HashSet<TILETYPE> getPowerUpTypes() {
-            HashSet<TILETYPE> types = new HashSet<>();
+            HashSet<TILETYPE> types = new LinkedHashSet<>();
             types.add(EXTRABOMB);
             types.add(INCRRANGE);
             types.add(KICK);